@@ -104,6 +104,16 @@ public class CodecDeflate implements ICompressionEncoder, ICompressionDecoder {
 
     @Override
     public int[] decode(int nRows, int nColumns, byte[] packing) throws IOException {
+        int[] output = new int[nRows * nColumns];
+        if (decode(nRows, nColumns, packing, output)) {
+            return output;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean decode(int nRows, int nColumns, byte[] packing, int[] output)
+        throws IOException {
         PredictorModelType predictorType = PredictorModelType.valueOf(packing[1]);
         IPredictorModel pcc = null;
         switch (predictorType) {
@@ -140,14 +150,13 @@ public class CodecDeflate implements ICompressionEncoder, ICompressionDecoder {
             int test = inflater.inflate(codeM32s);
             inflater.end();
             if (test > 0) {
-                int[] output = new int[nRows * nColumns];
                 pcc.decode(seed, nRows, nColumns, codeM32s, 0, nM32, output);
-                return output;
+                return true;
             }
         } catch (DataFormatException dfe) {
             throw new IOException(dfe.getMessage(), dfe);
         }
-        return null;
+        return false;
     }
 
     @Override
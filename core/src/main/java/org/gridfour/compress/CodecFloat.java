@@ -74,6 +74,12 @@ public class CodecFloat implements ICompressionEncoder, ICompressionDecoder {
     int nCellsInTile;
     boolean wasDataEncoded;
 
+    // Scratch arrays for decoding, retained between calls so that
+    // reading a sequence of same-sized tiles does not allocate.
+    // Codec instances are not shared between threads (see CodecMaster).
+    private byte[] decodeScratch;
+    private int[] decodeRawInt;
+
     SimpleStats sTotal = new SimpleStats();
     SimpleStats sSignBit = new SimpleStats();
     SimpleStats sExp = new SimpleStats();
@@ -278,10 +284,21 @@ public class CodecFloat implements ICompressionEncoder, ICompressionDecoder {
 
     @Override
     public float[] decodeFloats(int nRows, int nColumns, byte[] packing) throws IOException {
+        float[] f = new float[nRows * nColumns];
+        decodeFloats(nRows, nColumns, packing, f);
+        return f;
+    }
+
+    @Override
+    public boolean decodeFloats(int nRows, int nColumns, byte[] packing, float[] f)
+        throws IOException {
         nCellsInTile = nRows * nColumns;
-        byte[] scratch = new byte[nCellsInTile];
-        int[] rawInt = new int[nCellsInTile];
-        float[] f = new float[nCellsInTile];
+        if (decodeScratch == null || decodeScratch.length < nCellsInTile) {
+            decodeScratch = new byte[nCellsInTile];
+            decodeRawInt = new int[nCellsInTile];
+        }
+        byte[] scratch = decodeScratch;
+        int[] rawInt = decodeRawInt;
         int nSignBytes = (nCellsInTile + 7) / 8;
 
         // int index = packing[0];      // no used at this time
@@ -290,7 +307,7 @@ public class CodecFloat implements ICompressionEncoder, ICompressionDecoder {
         int n = unpackInteger(packing, offset);
         offset += 4;
         doInflate(packing, offset, n, scratch, nSignBytes);
-        BitInputStore bins = new BitInputStore(scratch);
+        BitInputStore bins = new BitInputStore(scratch, 0, nSignBytes);
         int signBit = 0;
         for (int i = 0; i < nCellsInTile; i++) {
             signBit = bins.getBit();
@@ -339,7 +356,7 @@ public class CodecFloat implements ICompressionEncoder, ICompressionDecoder {
             f[i] = Float.intBitsToFloat(rawInt[i]);
         }
 
-        return f;
+        return true;
     }
 
     @Override
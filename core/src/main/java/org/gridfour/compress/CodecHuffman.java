@@ -131,6 +131,14 @@ public class CodecHuffman implements ICompressionEncoder, ICompressionDecoder {
 
     @Override
     public int[] decode(int nRows, int nColumns, byte[] packing) throws IOException {
+        int[] output = new int[nRows * nColumns];
+        decode(nRows, nColumns, packing, output);
+        return output;
+    }
+
+    @Override
+    public boolean decode(int nRows, int nColumns, byte[] packing, int[] output)
+        throws IOException {
         IPredictorModel pcc = this.decodePredictorCorrector(packing[1]);
         int seed
             = (packing[2] & 0xff)
@@ -147,9 +155,8 @@ public class CodecHuffman implements ICompressionEncoder, ICompressionDecoder {
         byte[] codeM32s = new byte[nM32];
         decoder.decode(inputStore, nM32, codeM32s);
 
-        int[] output = new int[nRows * nColumns];
         pcc.decode(seed, nRows, nColumns, codeM32s, 0, nM32, output);
-        return output;
+        return true;
     }
 
     private IPredictorModel decodePredictorCorrector(int code) throws IOException {
@@ -110,4 +110,64 @@ public interface ICompressionDecoder {
      */
     float[] decodeFloats(int nRows, int nColumns, byte[] packing) throws IOException;
 
+    /**
+     * Decodes the content of the packing and stores the results in
+     * the specified array. This method allows an application to avoid
+     * the overhead of allocating a new array for each packing.
+     * <p>
+     * The default implementation delegates to the decode method
+     * that allocates a new array. Implementations are encouraged to
+     * override it.
+     *
+     * @param nRows a value of 1 or greater giving the number of rows in the
+     * tile
+     * @param nColumns a value of 1 or greater giving the number of columns in
+     * the tile
+     * @param packing an array of bytes containing the encoded data to be
+     * decompressed
+     * @param output an array of at least nRows*nColumns elements to receive
+     * the content of the tile in row-major order
+     * @return true if successful; otherwise, false
+     * @throws IOException in the event of an incompatible packing
+     */
+    default boolean decode(int nRows, int nColumns, byte[] packing, int[] output)
+        throws IOException {
+        int[] values = decode(nRows, nColumns, packing);
+        if (values == null) {
+            return false;
+        }
+        System.arraycopy(values, 0, output, 0, nRows * nColumns);
+        return true;
+    }
+
+    /**
+     * Decodes the content of the packing and stores the results in
+     * the specified array. This method allows an application to avoid
+     * the overhead of allocating a new array for each packing.
+     * <p>
+     * The default implementation delegates to the decodeFloats method
+     * that allocates a new array. Implementations are encouraged to
+     * override it.
+     *
+     * @param nRows a value of 1 or greater giving the number of rows in the
+     * tile
+     * @param nColumns a value of 1 or greater giving the number of columns in
+     * the tile
+     * @param packing an array of bytes containing the encoded data to be
+     * decompressed
+     * @param output an array of at least nRows*nColumns elements to receive
+     * the content of the tile in row-major order
+     * @return true if successful; otherwise, false
+     * @throws IOException in the event of an incompatible packing
+     */
+    default boolean decodeFloats(int nRows, int nColumns, byte[] packing, float[] output)
+        throws IOException {
+        float[] values = decodeFloats(nRows, nColumns, packing);
+        if (values == null) {
+            return false;
+        }
+        System.arraycopy(values, 0, output, 0, nRows * nColumns);
+        return true;
+    }
+
 }
@@ -54,6 +54,7 @@ class CodecMaster {
 
     List<CodecHolder> codecList = new ArrayList<>();
     private boolean implementsFloats;
+    private int[] intScratch;
 
     CodecMaster(List<CodecHolder> rasterCodecList) {
         codecList = new ArrayList<>();
@@ -67,6 +68,24 @@ class CodecMaster {
         }
     }
 
+    /**
+     * Constructs a new instance with the same codec specifications as
+     * this one, but with its own encoder and decoder instances. Because
+     * the codec implementations may maintain state data, an instance
+     * of this class cannot safely be used by more than one thread
+     * at a time. Applications that perform coding and decoding in
+     * parallel should use a separate copy for each thread.
+     *
+     * @return a valid instance.
+     */
+    CodecMaster copy() {
+        List<CodecHolder> list = new ArrayList<>();
+        for (CodecHolder holder : codecList) {
+            list.add(new CodecHolder(holder));
+        }
+        return new CodecMaster(list);
+    }
+
     void setCodecs(List<CodecHolder> csList) throws IOException {
         codecList = new ArrayList<>();
         codecList.addAll(csList);
@@ -108,6 +127,64 @@ class CodecMaster {
         return decompressor.decode(nRows, nColumns, packing);
     }
 
+    /**
+     * Decodes the packing and stores the results in the specified array.
+     *
+     * @param nRows the number of rows in the tile
+     * @param nColumns the number of columns in the tile
+     * @param packing a valid packing
+     * @param output an array of at least nRows*nColumns elements
+     * @return true if successful; otherwise, false
+     * @throws IOException in the event of an incompatible packing
+     */
+    boolean decode(int nRows, int nColumns, byte[] packing, int[] output)
+        throws IOException {
+        int index = packing[0] & 0xff;
+        if (index >= codecList.size()) {
+            throw new IOException("Invalid compression-type code " + index);
+        }
+        CodecHolder codec = codecList.get(index);
+        ICompressionDecoder decompressor = codec.getDecoderInstance();
+        return decompressor.decode(nRows, nColumns, packing, output);
+    }
+
+    /**
+     * Decodes the packing and stores the results in the specified array.
+     *
+     * @param nRows the number of rows in the tile
+     * @param nColumns the number of columns in the tile
+     * @param packing a valid packing
+     * @param output an array of at least nRows*nColumns elements
+     * @return true if successful; otherwise, false
+     * @throws IOException in the event of an incompatible packing
+     */
+    boolean decodeFloats(int nRows, int nColumns, byte[] packing, float[] output)
+        throws IOException {
+        int index = packing[0] & 0xff;
+        if (index >= codecList.size()) {
+            throw new IOException("Invalid compression-type code " + index);
+        }
+        CodecHolder codec = codecList.get(index);
+        ICompressionDecoder decompressor = codec.getDecoderInstance();
+        return decompressor.decodeFloats(nRows, nColumns, packing, output);
+    }
+
+    /**
+     * Gets an integer array of at least the specified length for use
+     * as temporary storage during decoding. The array is retained
+     * and returned by subsequent calls, so its content is valid only
+     * until the next call.
+     *
+     * @param n the minimum length for the array
+     * @return a valid array of at least n elements.
+     */
+    int[] getIntScratch(int n) {
+        if (intScratch == null || intScratch.length < n) {
+            intScratch = new int[n];
+        }
+        return intScratch;
+    }
+
     void analyze(int nRows, int nColumns, byte[] packing) throws IOException {
         int index = packing[0] & 0xff;
         if (index >= codecList.size()) {
@@ -0,0 +1,156 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides a secondary cache that holds the compressed packings for
+ * tiles. Compressed packings are typically a fraction of the size of the
+ * decoded tiles, so a secondary cache allows a much larger portion of a
+ * data set to be held in memory than would be possible using decoded tiles
+ * alone. A tile that is not found in the primary cache can be decoded
+ * from its packing without accessing the file.
+ * <p>
+ * The packings are held in least-recently-used order and are discarded
+ * when the number of bytes held exceeds the size specified for the cache.
+ * This class is not thread safe. It is intended to be accessed
+ * only by the thread that owns the tile cache.
+ */
+class CompressedTileCache {
+
+    // an estimate of the memory used for each entry in addition to
+    // the packing, including the map entry and the array header.
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long sizeInBytes;
+    private long nBytesInCache;
+    private final LinkedHashMap<Integer, byte[]> packingMap
+        = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Counters for gathering access statistics
+    private long nPackingGets;
+    private long nPackingsFound;
+    private long nPackingsDiscarded;
+
+    /**
+     * Constructs a cache with the specified size.
+     *
+     * @param sizeInBytes the maximum number of bytes to be held in the cache.
+     */
+    CompressedTileCache(long sizeInBytes) {
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Gets the packing for the specified tile.
+     *
+     * @param tileIndex a valid tile index
+     * @return if found, a valid array; otherwise, a null.
+     */
+    byte[] get(int tileIndex) {
+        nPackingGets++;
+        byte[] packing = packingMap.get(tileIndex);
+        if (packing != null) {
+            nPackingsFound++;
+        }
+        return packing;
+    }
+
+    /**
+     * Adds the packing for the specified tile to the cache, replacing
+     * any packing that was previously stored for the tile.
+     *
+     * @param tileIndex a valid tile index
+     * @param packing the compressed packing for the tile
+     */
+    void put(int tileIndex, byte[] packing) {
+        remove(tileIndex);
+        long n = packing.length + ENTRY_OVERHEAD;
+        if (n > sizeInBytes) {
+            return;
+        }
+        packingMap.put(tileIndex, packing);
+        nBytesInCache += n;
+        Iterator<Map.Entry<Integer, byte[]>> iterator
+            = packingMap.entrySet().iterator();
+        while (nBytesInCache > sizeInBytes) {
+            byte[] eldest = iterator.next().getValue();
+            iterator.remove();
+            nBytesInCache -= eldest.length + ENTRY_OVERHEAD;
+            nPackingsDiscarded++;
+        }
+    }
+
+    /**
+     * Removes the packing for the specified tile. This method is called
+     * when the tile is modified and the packing is no longer valid.
+     *
+     * @param tileIndex a valid tile index
+     */
+    void remove(int tileIndex) {
+        byte[] packing = packingMap.remove(tileIndex);
+        if (packing != null) {
+            nBytesInCache -= packing.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * Gets an estimate of the number of bytes of memory currently used
+     * by the cache.
+     *
+     * @return a positive value, or zero if the cache is empty.
+     */
+    long getBytesInCache() {
+        return nBytesInCache;
+    }
+
+    void summarize(PrintStream ps) {
+        ps.format("Compressed Tile Cache%n");
+        ps.format("   Packings In Map:           %12d%n", packingMap.size());
+        ps.format("   Bytes In Cache:            %12d%n", nBytesInCache);
+        ps.format("   Byte Limit:                %12d%n", sizeInBytes);
+        ps.format("   Packings Fetched:          %12d%n", nPackingGets);
+        ps.format("   Packings Found:            %12d%n", nPackingsFound);
+        ps.format("   Packings Dropped:          %12d%n", nPackingsDiscarded);
+    }
+}
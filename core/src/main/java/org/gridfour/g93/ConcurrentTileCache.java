@@ -0,0 +1,207 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides a tile cache that supports concurrent read access by multiple
+ * threads. This cache is intended for use with files opened for read-only
+ * access, so tiles are never modified once they are loaded.
+ * <p>
+ * Look-ups are performed against a concurrent hash map and do not
+ * require locking. Tile replacement follows the CLOCK algorithm, an
+ * approximation to least-recently-used replacement in which an access
+ * sets a reference flag rather than re-ordering a list. Locking is required
+ * only when a tile is added to the cache, and the potentially time-consuming
+ * read and decompression operations are performed outside of any locks.
+ */
+class ConcurrentTileCache {
+
+    private static final int DEFAULT_TILE_CACHE_SIZE = 16;
+
+    private final G93TileStore tileStore;
+    private final G93FileSpecification spec;
+    private final ConcurrentHashMap<Integer, RasterTile> tileMap;
+    private final ThreadLocal<TileReadContext> readContext;
+
+    // The CLOCK policy selects tiles for removal from the cache.
+    // Except for tile accesses, it is guarded by its own monitor.
+    private final TileReplacementPolicyClock clock
+        = new TileReplacementPolicyClock();
+    private volatile int tileCacheSize;
+    private volatile long tileCacheSizeInBytes = Long.MAX_VALUE;
+    private long nBytesInCache; // guarded by the clock monitor
+
+    // Counters for gathering access statistics
+    private final LongAdder nTileGets = new LongAdder();
+    private final LongAdder nTileRead = new LongAdder();
+    private final LongAdder nTilesDiscarded = new LongAdder();
+
+    ConcurrentTileCache(
+        G93FileSpecification spec,
+        G93TileStore tileStore,
+        final CodecMaster codecMaster) {
+        this.spec = spec;
+        this.tileStore = tileStore;
+        tileCacheSize = DEFAULT_TILE_CACHE_SIZE;
+        tileMap = new ConcurrentHashMap<>(
+            DEFAULT_TILE_CACHE_SIZE * 2,
+            0.75f,
+            Runtime.getRuntime().availableProcessors());
+        readContext = new ThreadLocal<TileReadContext>() {
+            @Override
+            protected TileReadContext initialValue() {
+                return new TileReadContext(codecMaster.copy());
+            }
+        };
+    }
+
+    void setTileCacheSize(int tileCacheSize) throws IOException {
+        if (tileCacheSize <= 0) {
+            throw new IOException(
+                "Cache size less than one is not supported");
+        }
+        this.tileCacheSize = tileCacheSize;
+        this.tileCacheSizeInBytes = Long.MAX_VALUE;
+        synchronized (clock) {
+            trimToSize();
+        }
+    }
+
+    void setTileCacheSizeInBytes(long tileCacheSizeInBytes) throws IOException {
+        if (tileCacheSizeInBytes <= 0) {
+            throw new IOException(
+                "Cache size less than one byte is not supported");
+        }
+        this.tileCacheSize = Integer.MAX_VALUE;
+        this.tileCacheSizeInBytes = tileCacheSizeInBytes;
+        synchronized (clock) {
+            trimToSize();
+        }
+    }
+
+    long getBytesInCache() {
+        synchronized (clock) {
+            return nBytesInCache;
+        }
+    }
+
+    /**
+     * Removes tiles until the cache conforms to its size limits.
+     * Must be called while holding the clock monitor.
+     */
+    private void trimToSize() {
+        while (clock.size() > tileCacheSize
+            || (clock.size() > 1 && nBytesInCache > tileCacheSizeInBytes)) {
+            RasterTile tile = clock.selectTileForRemoval();
+            tileMap.remove(tile.tileIndex);
+            nBytesInCache -= tile.getMemoryFootprint();
+            nTilesDiscarded.increment();
+        }
+    }
+
+    /**
+     * Gets the tile with the specified index, reading it from the file
+     * if necessary. This method may be called by multiple threads at once.
+     *
+     * @param tileIndex a positive integer
+     * @return if the tile exists, a valid instance; otherwise, a null.
+     * @throws IOException in the event of an I/O error.
+     */
+    RasterTile getTile(int tileIndex) throws IOException {
+        nTileGets.increment();
+        RasterTile tile = tileMap.get(tileIndex);
+        if (tile != null) {
+            clock.tileAccessed(tile);
+            return tile;
+        }
+
+        if (!tileStore.doesTileExist(tileIndex)) {
+            return null;
+        }
+
+        // It is possible that two threads will read the same tile at the
+        // same time.  If so, the first one to be added to the map is
+        // retained and the other is discarded.
+        tile = RasterTile.allocate(spec, tileIndex, false);
+        tileStore.readTile(tile, readContext.get());
+        nTileRead.increment();
+        RasterTile prior = tileMap.putIfAbsent(tileIndex, tile);
+        if (prior != null) {
+            return prior;
+        }
+        synchronized (clock) {
+            clock.tileAdded(tile);
+            nBytesInCache += tile.getMemoryFootprint();
+            trimToSize();
+        }
+        return tile;
+    }
+
+    void summarize(PrintStream ps) {
+        long nGets = nTileGets.sum();
+        long nRead = nTileRead.sum();
+        long nFoundInCache = nGets - nRead;
+        if (nFoundInCache < 0) {
+            nFoundInCache = 0;
+        }
+        double percentInCache = 0;
+        if (nGets > 0) {
+            percentInCache = 100.0 * ((double) nFoundInCache / (double) nGets);
+            // make sure it never says 100 percent.
+            if (percentInCache > 99.91) {
+                percentInCache = 99.91;
+            }
+        }
+        ps.format("Tile Cache (concurrent access)%n");
+        ps.format("   Tiles In Map:              %12d%n", tileMap.size());
+        ps.format("   Bytes In Cache:            %12d%n", getBytesInCache());
+        if (tileCacheSizeInBytes < Long.MAX_VALUE) {
+            ps.format("   Byte Limit:                %12d%n", tileCacheSizeInBytes);
+        }
+        ps.format("   Tiles Fetched:             %12d%n", nGets);
+        ps.format("   Tiles Fetched from Cache:  %12d (%4.1f%%)%n", nFoundInCache, percentInCache);
+        ps.format("   Tiles Read:                %12d%n", nRead);
+        ps.format("   Tiles Dropped From Cache:  %12d%n", nTilesDiscarded.sum());
+    }
+}
@@ -0,0 +1,234 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maintains the set of free blocks of file space in a tile store.
+ * The blocks are indexed both by file position and by size, so that
+ * the best-fitting block for an allocation can be found, and a
+ * released block can be merged with its neighbors, in O(log n) time.
+ * <p>
+ * This class manages only the bookkeeping for free space. The
+ * tile store is responsible for recording the state of the blocks
+ * in the file itself.
+ */
+class FileSpaceManager {
+
+    /**
+     * A block of free space in the file. Instances are immutable so that
+     * they may safely serve as keys for the size-ordered index.
+     */
+    static class FreeBlock {
+
+        final long filePos;
+        final int blockSize;
+
+        FreeBlock(long filePos, int blockSize) {
+            this.filePos = filePos;
+            this.blockSize = blockSize;
+        }
+
+        long getEndPosition() {
+            return filePos + blockSize;
+        }
+    }
+
+    private static class SizeComparator implements Comparator<FreeBlock> {
+
+        @Override
+        public int compare(FreeBlock o1, FreeBlock o2) {
+            int test = Integer.compare(o1.blockSize, o2.blockSize);
+            if (test == 0) {
+                test = Long.compare(o1.filePos, o2.filePos);
+            }
+            return test;
+        }
+    }
+
+    private final TreeMap<Long, FreeBlock> blocksByPosition = new TreeMap<>();
+    private final TreeSet<FreeBlock> blocksBySize
+        = new TreeSet<>(new SizeComparator());
+    private long freeSpace;
+
+    /**
+     * Adds a block of free space without attempting to merge it with
+     * its neighbors. Intended for use when the free space is being
+     * reconstructed from a file or index.
+     *
+     * @param filePos the file position of the block
+     * @param blockSize the size of the block, in bytes
+     */
+    void add(long filePos, int blockSize) {
+        FreeBlock block = new FreeBlock(filePos, blockSize);
+        FreeBlock prior = blocksByPosition.put(filePos, block);
+        if (prior != null) {
+            blocksBySize.remove(prior);
+            freeSpace -= prior.blockSize;
+        }
+        blocksBySize.add(block);
+        freeSpace += blockSize;
+    }
+
+    /**
+     * Removes the specified block from the free space.
+     *
+     * @param block a block currently managed by this instance.
+     */
+    void remove(FreeBlock block) {
+        blocksByPosition.remove(block.filePos);
+        blocksBySize.remove(block);
+        freeSpace -= block.blockSize;
+    }
+
+    /**
+     * Finds the smallest free block that is either exactly the specified
+     * size or large enough to be split leaving a surplus of at least
+     * the specified minimum size. The block is removed from the free space;
+     * it is the responsibility of the calling application to restore any
+     * surplus using the add() method.
+     *
+     * @param sizeToStore the size of the allocation, in bytes
+     * @param minSurplus the minimum size for a surplus block
+     * @return if successful, a valid block; otherwise, a null.
+     */
+    FreeBlock allocate(int sizeToStore, int minSurplus) {
+        FreeBlock block = blocksBySize.ceiling(
+            new FreeBlock(Long.MIN_VALUE, sizeToStore));
+        if (block != null && block.blockSize != sizeToStore) {
+            block = blocksBySize.ceiling(
+                new FreeBlock(Long.MIN_VALUE, sizeToStore + minSurplus));
+        }
+        if (block != null) {
+            remove(block);
+        }
+        return block;
+    }
+
+    /**
+     * Releases the specified block of file space, merging it with any
+     * adjacent free blocks.
+     *
+     * @param filePos the file position of the block
+     * @param blockSize the size of the block, in bytes
+     * @return the free block that includes the released space.
+     */
+    FreeBlock release(long filePos, int blockSize) {
+        long startPos = filePos;
+        long endPos = filePos + blockSize;
+        Map.Entry<Long, FreeBlock> entry = blocksByPosition.lowerEntry(filePos);
+        if (entry != null && entry.getValue().getEndPosition() == startPos) {
+            FreeBlock prior = entry.getValue();
+            remove(prior);
+            startPos = prior.filePos;
+        }
+        FreeBlock next = blocksByPosition.get(endPos);
+        if (next != null) {
+            remove(next);
+            endPos = next.getEndPosition();
+        }
+        add(startPos, (int) (endPos - startPos));
+        return blocksByPosition.get(startPos);
+    }
+
+    /**
+     * Removes all blocks from the free space.
+     */
+    void clear() {
+        blocksByPosition.clear();
+        blocksBySize.clear();
+        freeSpace = 0;
+    }
+
+    /**
+     * Gets the free blocks in order of file position.
+     *
+     * @return a valid, potentially empty list.
+     */
+    List<FreeBlock> getFreeBlocks() {
+        return new ArrayList<>(blocksByPosition.values());
+    }
+
+    /**
+     * Gets the number of free blocks.
+     *
+     * @return a positive value, or zero if there is no free space.
+     */
+    int getFreeBlockCount() {
+        return blocksByPosition.size();
+    }
+
+    /**
+     * Gets the total size of the free blocks.
+     *
+     * @return a positive value, or zero if there is no free space.
+     */
+    long getFreeSpace() {
+        return freeSpace;
+    }
+
+    /**
+     * Gets the size of the largest free block.
+     *
+     * @return a positive value, or zero if there is no free space.
+     */
+    int getLargestFreeBlockSize() {
+        if (blocksBySize.isEmpty()) {
+            return 0;
+        }
+        return blocksBySize.last().blockSize;
+    }
+
+    /**
+     * Gets the number of free blocks smaller than the specified size.
+     *
+     * @param blockSize a size, in bytes
+     * @return a positive value, or zero if there are no smaller blocks.
+     */
+    int getFreeBlockCountBelow(int blockSize) {
+        return blocksBySize.headSet(
+            new FreeBlock(Long.MIN_VALUE, blockSize)).size();
+    }
+}
@@ -0,0 +1,67 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Specifies the policy used to select tiles for removal when the
+ * tile cache for a G93File is full.
+ */
+public enum G93CachePolicy {
+    /**
+     * Least-recently-used replacement, the default. This policy is
+     * effective for most access patterns but a single scan of a large
+     * portion of a file will replace the entire content of the cache.
+     */
+    LRU,
+    /**
+     * The CLOCK algorithm, an approximation to least-recently-used
+     * replacement in which an access sets a reference flag rather
+     * than re-ordering a list.
+     */
+    CLOCK,
+    /**
+     * The 2Q algorithm, a scan-resistant policy. Tiles are initially
+     * admitted to a small first-in-first-out queue and are promoted
+     * to the main least-recently-used queue only if they are requested
+     * again after they leave it. Thus tiles that are accessed once
+     * during a full-file scan do not displace the frequently used tiles
+     * in the main queue.
+     */
+    TwoQueue;
+}
@@ -42,14 +42,28 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.SimpleTimeZone;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.gridfour.io.BufferedRandomAccessFile;
 import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
 
@@ -69,13 +83,27 @@ public class G93File implements Closeable, AutoCloseable {
     private boolean isClosed;
     private boolean openedForWriting;
     private boolean indexCreationEnabled;
+    private boolean tileDirectoryEnabled;
     private long timeModified;
+    // the count of tile writes when the overview levels were last current
+    private long overviewTileWrites;
+    private boolean tilePrefetchEnabled;
+    private int tilePrefetchLookahead = 4;
+    private boolean writeBehindEnabled;
+    private int writeBehindQueueCapacity = 16;
 
     private long filePosTileStore;
 
     private final G93TileStore tileStore;
     private final RasterTileCache tileCache;
 
+    // the concurrent-access cache is non-null only if the file
+    // was opened using the openShared() method.
+    private final ConcurrentTileCache sharedTileCache;
+
+    // the connection to a cache shared by multiple files, if any
+    private G93SharedTileCache.Client sharedTileCacheClient;
+
     private class TileAccessElements {
 
         int tileIndex;
@@ -169,7 +197,9 @@ public class G93File implements Closeable, AutoCloseable {
         braf.flush();
 
         tileStore = new G93TileStore(spec, rasterCodec, braf, filePosTileStore);
+        tileStore.loadTileSummaries(timeModified);
         tileCache = new RasterTileCache(spec, tileStore);
+        sharedTileCache = null;
 
         List<CodecHolder> csList = spec.getCompressionCodecs();
         if (!csList.isEmpty()) {
@@ -199,6 +229,30 @@ public class G93File implements Closeable, AutoCloseable {
      * @throws IOException in the event of an unrecoverable I/O error
      */
     public G93File(File file, String access) throws IOException {
+        this(file, access, false);
+    }
+
+    /**
+     * Opens an existing raster file for read-only access by multiple
+     * threads. The readValue(), readIntValue(), readValues(), and readBlock()
+     * methods of the resulting instance may be called concurrently from
+     * any number of threads.
+     * <p>
+     * Tiles are read using position-based I/O operations that do not depend
+     * on a shared file pointer and are held in a cache that supports
+     * concurrent access. Each thread uses its own instances of the
+     * decompression codecs. The methods that modify the file are not
+     * supported.
+     *
+     * @param file a valid file
+     * @return a valid instance
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    public static G93File openShared(File file) throws IOException {
+        return new G93File(file, "r", true);
+    }
+
+    private G93File(File file, String access, boolean shared) throws IOException {
         if (file == null) {
             throw new IOException("Null file reference not supported");
         }
@@ -257,10 +311,42 @@ public class G93File implements Closeable, AutoCloseable {
 
         rasterCodec = new CodecMaster(spec.codecList);
         tileStore = new G93TileStore(spec, rasterCodec, braf, filePosTileStore);
-        if (!readIndexFile(timeModified)) {
+        if (!tileStore.readTileDirectory(timeModified)
+            && !readIndexFile(timeModified)) {
             tileStore.scanFileForTiles();
+            // if an index file exists, it is out-of-date.  Replace it
+            // so that the file can be opened without a scan in the future.
+            // Files opened for writing will write an index when they are closed
+            // if index creation is enabled.
+            File indexFile = getIndexFile();
+            if (!openedForWriting && indexFile != null && indexFile.exists()) {
+                try {
+                    writeIndexFile(timeModified);
+                } catch (IOException ioex) {
+                    // the index is an optimization and the file may be
+                    // in a location where the application lacks write access.
+                    // so the failure is not treated as an error.
+                }
+            }
+        }
+        // a file that contains a tile directory will continue to do so.
+        // the existing directory will not reflect changes to the file,
+        // so it is released and a new one is written when the file is closed.
+        tileDirectoryEnabled = tileStore.hasTileDirectory();
+        if (openedForWriting) {
+            tileStore.releaseTileDirectory();
         }
         tileCache = new RasterTileCache(spec, tileStore);
+        if (shared) {
+            if (openedForWriting) {
+                throw new IOException(
+                    "Shared access is supported only for read-only files");
+            }
+            tileStore.openConcurrentReadChannel(file);
+            sharedTileCache = new ConcurrentTileCache(spec, tileStore, rasterCodec);
+        } else {
+            sharedTileCache = null;
+        }
 
         // See if the source file specified Java codecs.
         List<CodecSpecification> codecSpecificationList = new ArrayList<>();
@@ -277,6 +363,15 @@ public class G93File implements Closeable, AutoCloseable {
         spec.integrateCodecSpecificationsFromFile(codecSpecificationList);
         rasterCodec.setCodecs(spec.codecList);
 
+        // Like the tile directory, the record containing the tile summaries
+        // would be obsolete once the file is modified. So it is released
+        // and a new one is written when the file is closed.
+        tileStore.loadTileSummaries(timeModified);
+        if (openedForWriting) {
+            removeTileSummaryRecord();
+        }
+        loadOverviews();
+
     }
 
     private void resolveCodecs(G93FileSpecification fileSpec, List<CodecSpecification> specList) throws IOException {
@@ -347,6 +442,35 @@ public class G93File implements Closeable, AutoCloseable {
         }
     }
 
+    /**
+     * Rewrites the content of the file so that the tiles and variable-length
+     * records are stored contiguously and the unused space left behind by
+     * prior modifications is removed. Tiles are written in order of tile
+     * index, which improves the locality of subsequent read operations.
+     * Compressed tiles are moved without being decoded.
+     * <p>
+     * The operation works in place and uses a small, fixed amount of memory
+     * regardless of the size of the file. Any data held in the tile cache is
+     * written to the file before compaction begins. If the operation is
+     * interrupted (for example, by a system failure), the file may be left
+     * in an unusable state, so applications may wish to make a backup copy
+     * before calling this method.
+     *
+     * @return the number of bytes by which the size of the file was reduced.
+     * @throws IOException in the event of an I/O error or if the file
+     * is not opened for writing.
+     */
+    public long compact() throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (!openedForWriting) {
+            throw new IOException("Raster file not opened for writing");
+        }
+        tileCache.flush();
+        return tileStore.compact();
+    }
+
     /**
      * Closes the file and releases all associated resources. If the file is
      * open
@@ -360,8 +484,22 @@ public class G93File implements Closeable, AutoCloseable {
         if (!isClosed) {
             if (openedForWriting) {
                 tileCache.flush();
-                braf.seek(FILEPOS_MODIFICATION_TIME);
+                tileStore.setBulkLoadEnabled(false);
+                if (tileStore.overviews != null
+                    && tileStore.nTileWrites != overviewTileWrites) {
+                    // the overviews no longer reflect the content of the file
+                    tileStore.removeOverviews();
+                }
+                if (tileStore.isCompactionRequired()) {
+                    tileStore.compact();
+                }
                 long closingTime = System.currentTimeMillis();
+                writeOverviews(closingTime);
+                writeTileSummaries(closingTime);
+                if (tileDirectoryEnabled) {
+                    tileStore.writeTileDirectory(closingTime);
+                }
+                braf.seek(FILEPOS_MODIFICATION_TIME);
                 braf.leWriteLong(closingTime);
                 braf.leWriteLong(0); // opened for writing time
                 braf.flush();
@@ -372,10 +510,44 @@ public class G93File implements Closeable, AutoCloseable {
             }
             openedForWriting = false;
             isClosed = true;
+            tileCache.setPrefetcher(null);
+            tileCache.setWriteBehind(null);
+            if (sharedTileCacheClient != null) {
+                sharedTileCacheClient.release();
+                sharedTileCacheClient = null;
+            }
+            tileStore.closeConcurrentReadChannel();
             braf.close();
         }
     }
 
+    private void removeTileSummaryRecord() throws IOException {
+        for (VariableLengthRecord vlr : getVariableLengthRecords()) {
+            if (TileSummaryTable.USER_ID.equals(vlr.getUserId())) {
+                tileStore.removeVariableLengthRecord(vlr);
+            }
+        }
+    }
+
+    /**
+     * Replaces the record containing the tile summaries. The record
+     * is stamped with the closing time for the file so that a record
+     * left behind by a version of this library that did not maintain
+     * the summaries can be detected.
+     *
+     * @param closingTime the modification time for the file
+     * @throws IOException in the event of an I/O error
+     */
+    private void writeTileSummaries(long closingTime) throws IOException {
+        removeTileSummaryRecord();
+        byte[] payload = tileStore.tileSummaries.getPayload(closingTime);
+        storeVariableLengthRecord(
+            TileSummaryTable.USER_ID,
+            TileSummaryTable.RECORD_ID,
+            TileSummaryTable.DESCRIPTION,
+            payload, 0, payload.length, false);
+    }
+
     /**
      * Scans the file and writes a summary of its content to the specified
      * PrintStream.
@@ -402,7 +574,13 @@ public class G93File implements Closeable, AutoCloseable {
         ps.format("Time last modified:     %s (UTC)%n", sdFormat.format(date));
 
         tileStore.summarize(ps);
-        tileCache.summarize(ps);
+        if (sharedTileCacheClient != null) {
+            sharedTileCacheClient.getCache().summarize(ps);
+        } else if (sharedTileCache == null) {
+            tileCache.summarize(ps);
+        } else {
+            sharedTileCache.summarize(ps);
+        }
         if (analyze && !braf.isClosed()) {
             try {
                 tileStore.analyzeAndReport(ps);
@@ -476,13 +654,21 @@ public class G93File implements Closeable, AutoCloseable {
         if (this.isClosed) {
             throw new IOException("Raster file is closed");
         }
-        accessElements.computeElements(row, column);
-
-        RasterTile tile = tileCache.getTile(accessElements.tileIndex);
+        // Local variables are used rather than the accessElements
+        // so that this method may be used by multiple threads
+        // when the file is opened for shared access.
+        checkRowAndColumn(row, column);
+        int tileRow = row / spec.nRowsInTile;
+        int tileCol = column / spec.nColsInTile;
+        int tileIndex = tileRow * spec.nColsOfTiles + tileCol;
+
+        RasterTile tile = getTileForReading(tileIndex);
         if (tile == null) {
             return INT4_NULL_CODE;
         }
-        return tile.getIntValue(accessElements.rowInTile, accessElements.colInTile);
+        return tile.getIntValue(
+            row - tileRow * spec.nRowsInTile,
+            column - tileCol * spec.nColsInTile);
     }
 
     /**
@@ -531,13 +717,18 @@ public class G93File implements Closeable, AutoCloseable {
         if (this.isClosed) {
             throw new IOException("Raster file is closed");
         }
-        accessElements.computeElements(row, column);
+        checkRowAndColumn(row, column);
+        int tileRow = row / spec.nRowsInTile;
+        int tileCol = column / spec.nColsInTile;
+        int tileIndex = tileRow * spec.nColsOfTiles + tileCol;
 
-        RasterTile tile = tileCache.getTile(accessElements.tileIndex);
+        RasterTile tile = getTileForReading(tileIndex);
         if (tile == null) {
             return Float.NaN;
         }
-        return tile.getValue(accessElements.rowInTile, accessElements.colInTile);
+        return tile.getValue(
+            row - tileRow * spec.nRowsInTile,
+            column - tileCol * spec.nColsInTile);
     }
 
     /**
@@ -582,149 +773,1648 @@ public class G93File implements Closeable, AutoCloseable {
     }
 
     /**
-     * Reads a floating-point value from the G93File. If no data exists for the
-     * specified row and column, the value Float.NaN will be returned. This
-     * method
-     * is intended to support cases where the file definition has a dimension
-     * greater
-     * than 1 (i.e. in cases where the file stores vector elements).
+     * Stores a block (sub-grid) of floating-point values in the G93 file.
+     * The organization of the input array is the same as for the array
+     * returned by readBlock(). Thus, the index into the array for a
+     * particular row, column, and layer within the sub-grid would be
+     * <p>
+     * index = row*nColumns + column + layer*nRows*nColumns
+     * <p>
+     * Only the tiles that intersect the block are loaded or allocated,
+     * and the values are copied into each tile one row at a time.
+     * Writing data in a block is much more efficient than storing
+     * values one grid cell at a time.
+     * <p>
+     * The value Float.NaN is reserved for the representation of null data.
      *
-     * @param row a positive value in the range defined by the file
-     * specifications.
-     * @param column a positive value in the range defined by the file
-     * specifications.
-     * @param values an array of at least the dimension of the file, used to
-     * store the
-     * results of a read operation.
-     * @throws IOException in the event of a non-recoverable I/O exception.
+     * @param row the grid row index for the starting row of the block
+     * @param column the grid column index for the starting column of the block
+     * @param nRows the number of rows in the block
+     * @param nColumns the number of columns in the block
+     * @param block an array of size at least nRows*nColumns*dimension
+     * @throws IOException in the event of an I/O error or if the
+     * block does not fit within the grid.
      */
-    public void readValues(int row, int column, float[] values) throws IOException {
-        if (this.isClosed) {
+    public void writeBlock(int row, int column, int nRows, int nColumns,
+        float[] block) throws IOException {
+        checkWriteBlock(row, column, nRows, nColumns,
+            block == null ? -1 : block.length);
+        writeBlock(row, column, nRows, nColumns, block, null);
+    }
+
+    /**
+     * Stores a block (sub-grid) of integer values in the G93 file.
+     * The organization of the input array is the same as for
+     * the floating-point variation of this method. For files using the
+     * integer data type, the values are stored without conversion.
+     * For files using the float data type, the values are converted
+     * using the scale and offset from the file specification, as in
+     * storeIntValue().
+     * <p>
+     * The value INT4_NULL_CODE is reserved for the representation of
+     * null data.
+     *
+     * @param row the grid row index for the starting row of the block
+     * @param column the grid column index for the starting column of the block
+     * @param nRows the number of rows in the block
+     * @param nColumns the number of columns in the block
+     * @param block an array of size at least nRows*nColumns*dimension
+     * @throws IOException in the event of an I/O error or if the
+     * block does not fit within the grid.
+     */
+    public void writeBlock(int row, int column, int nRows, int nColumns,
+        int[] block) throws IOException {
+        checkWriteBlock(row, column, nRows, nColumns,
+            block == null ? -1 : block.length);
+        writeBlock(row, column, nRows, nColumns, null, block);
+    }
+
+    private void checkWriteBlock(
+        int row, int column, int nRows, int nColumns, int length)
+        throws IOException {
+        if (!openedForWriting) {
+            throw new IOException("Raster file not opened for writing");
+        }
+        if (nRows < 1 || nColumns < 1) {
+            throw new IOException(
+                "Invalid dimensions: nRows=" + nRows + ", nColumns=" + nColumns);
+        }
+        checkRowAndColumn(row, column);
+        checkRowAndColumn(row + nRows - 1, column + nColumns - 1);
+        if (length < 0) {
+            throw new IOException("Null array for block");
+        }
+        long nRequired = (long) nRows * nColumns * spec.dimension;
+        if (nRequired > length) {
+            throw new IOException("Array of length " + length
+                + " is too small for block, " + nRequired + " required");
+        }
+    }
+
+    /**
+     * Stores a block of values from either a floating-point or an integer
+     * array. Exactly one of the arrays is expected to be non-null.
+     * The naming conventions for the index variables follow those
+     * used in readBlock().
+     */
+    private void writeBlock(int row, int column, int nRows, int nColumns,
+        float[] fBlock, int[] iBlock) throws IOException {
+        int nValuesInSubBlock = nRows * nColumns;
+        int gr0 = row;
+        int gc0 = column;
+        int gr1 = row + nRows - 1;
+        int gc1 = column + nColumns - 1;
+        int tileRow0 = gr0 / spec.nRowsInTile;
+        int tileCol0 = gc0 / spec.nColsInTile;
+        int tileRow1 = gr1 / spec.nRowsInTile;
+        int tileCol1 = gc1 / spec.nColsInTile;
+
+        for (int tileRow = tileRow0; tileRow <= tileRow1; tileRow++) {
+            int gtRowOffset = tileRow * spec.nRowsInTile;
+            int tr0 = Math.max(gr0, gtRowOffset) - gtRowOffset;
+            int tr1 = Math.min(gr1, gtRowOffset + spec.nRowsInTile - 1) - gtRowOffset;
+            for (int tileCol = tileCol0; tileCol <= tileCol1; tileCol++) {
+                int gtColOffset = tileCol * spec.nColsInTile;
+                int tc0 = Math.max(gc0, gtColOffset) - gtColOffset;
+                int tc1 = Math.min(gc1, gtColOffset + spec.nColsInTile - 1) - gtColOffset;
+                int n = tc1 - tc0 + 1;
+
+                int tileIndex = tileRow * spec.nColsOfTiles + tileCol;
+                RasterTile tile = tileCache.getTile(tileIndex);
+                if (tile == null) {
+                    tile = tileCache.allocateNewTile(tileIndex);
+                }
+                for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
+                    for (int tr = tr0; tr <= tr1; tr++) {
+                        int br = tr + gtRowOffset - gr0;
+                        int bc = tc0 + gtColOffset - gc0;
+                        int bIndex = br * nColumns + bc + iDimension * nValuesInSubBlock;
+                        int tIndex = tr * spec.nColsInTile + tc0;
+                        if (fBlock != null) {
+                            storeRow(tile, iDimension, tIndex, n, fBlock, bIndex);
+                        } else {
+                            storeRow(tile, iDimension, tIndex, n, iBlock, bIndex);
+                        }
+                    }
+                }
+                tile.writingRequired = true;
+            }
+        }
+    }
+
+    /**
+     * Copies a range of values from a floating-point block to one row of
+     * a tile, converting to integer values if necessary.
+     */
+    private static void storeRow(
+        RasterTile tile, int iDimension, int tIndex, int n, float[] block, int bIndex) {
+        if (tile instanceof RasterTileFloat) {
+            float[] v = ((RasterTileFloat) tile).valuesArray[iDimension];
+            System.arraycopy(block, bIndex, v, tIndex, n);
+        } else {
+            int[] v = ((RasterTileInt) tile).valuesArray[iDimension];
+            for (int i = 0; i < n; i++) {
+                float f = block[bIndex + i];
+                if (Float.isNaN(f)) {
+                    v[tIndex + i] = INT4_NULL_CODE;
+                } else {
+                    v[tIndex + i]
+                        = (int) Math.floor((f - tile.valueOffset) * tile.valueScale + 0.5f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a range of values from an integer block to one row of
+     * a tile, converting to floating-point values if necessary.
+     */
+    private static void storeRow(
+        RasterTile tile, int iDimension, int tIndex, int n, int[] block, int bIndex) {
+        if (tile instanceof RasterTileInt) {
+            int[] v = ((RasterTileInt) tile).valuesArray[iDimension];
+            System.arraycopy(block, bIndex, v, tIndex, n);
+        } else {
+            float[] v = ((RasterTileFloat) tile).valuesArray[iDimension];
+            for (int i = 0; i < n; i++) {
+                int s = block[bIndex + i];
+                if (s == INT4_NULL_CODE) {
+                    v[tIndex + i] = Float.NaN;
+                } else {
+                    v[tIndex + i] = s / tile.valueScale + tile.valueOffset;
+                }
+            }
+        }
+    }
+
+    private int checkTileRowAndColumn(int tileRow, int tileColumn)
+        throws IOException {
+        if (isClosed) {
             throw new IOException("Raster file is closed");
         }
-        accessElements.computeElements(row, column);
+        if (tileRow < 0 || tileRow >= spec.nRowsOfTiles) {
+            throw new IOException("Tile row out of bounds " + tileRow);
+        }
+        if (tileColumn < 0 || tileColumn >= spec.nColsOfTiles) {
+            throw new IOException("Tile column out of bounds " + tileColumn);
+        }
+        return tileRow * spec.nColsOfTiles + tileColumn;
+    }
 
-        RasterTile tile = tileCache.getTile(accessElements.tileIndex);
-        if (tile == null) {
-            Arrays.fill(values, Float.NaN);
+    private void checkTileArray(int length) throws IOException {
+        if (length < spec.nCellsInTile * spec.dimension) {
+            throw new IOException("Array of length " + length
+                + " is too small for tile, "
+                + (spec.nCellsInTile * spec.dimension) + " required");
         }
-        tile.getValues(accessElements.rowInTile, accessElements.colInTile, values);
     }
 
     /**
-     * Sets the tile cache size. Tile cache can have a significant effect on
-     * both
-     * performance and memory use for raster file operations.
+     * Reads the floating-point values for a tile into an array supplied
+     * by the calling application. The values are given in row-major order
+     * within the tile. If the file has a dimension greater than one,
+     * the values for each layer are given one at a time. Thus, the index
+     * into the array for a particular row, column, and layer within
+     * the tile would be
+     * <p>
+     * index = row*nColumnsInTile + column + layer*nRowsInTile*nColumnsInTile
+     * <p>
+     * Tiles on the last row or column of tiles may extend beyond the
+     * bounds of the grid. The values for cells outside the grid are
+     * null. If the tile is not populated, all values are set to Float.NaN.
      *
-     * @param tileCacheSize a positive integer greater than zero.
-     * @throws IOException in the event of a non-recoverable I/O exception.
+     * @param tileRow the row of the tile within the grid of tiles
+     * @param tileColumn the column of the tile within the grid of tiles
+     * @param values an array of size at least nCellsInTile*dimension
+     * @return true if the tile is populated; otherwise, false.
+     * @throws IOException in the event of an I/O error
      */
-    public void setTileCacheSize(int tileCacheSize) throws IOException {
-        if (tileCacheSize <= 0) {
-            throw new IOException("Cache size of " + tileCacheSize
-                + " is not within of valid range");
+    public boolean readTile(int tileRow, int tileColumn, float[] values)
+        throws IOException {
+        int tileIndex = checkTileRowAndColumn(tileRow, tileColumn);
+        checkTileArray(values == null ? -1 : values.length);
+        RasterTile tile = getTileForReading(tileIndex);
+        int nValues = spec.nCellsInTile;
+        for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
+            copyRow(tile, iDimension, 0, nValues - 1, values, iDimension * nValues);
         }
-        tileCache.setTileCacheSize(tileCacheSize);
+        return tile != null;
     }
 
     /**
-     * Sets the tile cache size to one of the standard sizes defined by the
-     * specified enumeration. In general, the Large size should be used when
-     * creating data products. Size should be based on the anticipated pattern
-     * of
-     * access for the file.
+     * Reads the integer values for a tile into an array supplied by the
+     * calling application. The organization of the array is the same as
+     * for the floating-point variation of this method. The values are
+     * given as described for readBlockInt(). If the tile is not
+     * populated, all values are set to INT4_NULL_CODE.
      *
-     * @param cacheSize a valid instance
-     * @throws IOException in the event of a non-recoverable I/P exception.
+     * @param tileRow the row of the tile within the grid of tiles
+     * @param tileColumn the column of the tile within the grid of tiles
+     * @param values an array of size at least nCellsInTile*dimension
+     * @return true if the tile is populated; otherwise, false.
+     * @throws IOException in the event of an I/O error
      */
-    public void setTileCacheSize(G93CacheSize cacheSize) throws IOException {
-        switch (cacheSize) {
-            case Small:
-                setTileCacheSize(4);
-                break;
-            case Medium:
-                setTileCacheSize(16);
-                break;
-            case Large:
-                int nC = spec.nColsOfTiles;
-                int nR = spec.nRowsOfTiles;
-                int nT = nC > nR ? nC : nR;
-                setTileCacheSize(nT + 4);
+    public boolean readTile(int tileRow, int tileColumn, int[] values)
+        throws IOException {
+        int tileIndex = checkTileRowAndColumn(tileRow, tileColumn);
+        checkTileArray(values == null ? -1 : values.length);
+        RasterTile tile = getTileForReading(tileIndex);
+        int nValues = spec.nCellsInTile;
+        for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
+            copyRow(tile, iDimension, 0, nValues - 1, values, iDimension * nValues);
         }
+        return tile != null;
     }
 
     /**
-     * Gets a safe copy of the g93 raster specification associated with this
-     * file.
+     * Stores the floating-point values for a tile. The organization of the
+     * array is the same as for readTile(). When the bypass option is
+     * set and the tile is not already held in the cache, the tile is
+     * written directly to the file without being added to the cache.
+     * This option is appropriate for applications that write each tile
+     * once and would otherwise displace useful content from the cache.
+     * If write-behind is enabled, or the tile is already in the cache,
+     * the cache is always used.
      *
-     * @return a valid instance.
+     * @param tileRow the row of the tile within the grid of tiles
+     * @param tileColumn the column of the tile within the grid of tiles
+     * @param values an array of size at least nCellsInTile*dimension
+     * @param bypassCache true if the tile is to be written directly to
+     * the file; false if it is to be stored in the cache.
+     * @throws IOException in the event of an I/O error
      */
-    public G93FileSpecification getSpecification() {
-        return new G93FileSpecification(spec);
+    public void writeTile(
+        int tileRow, int tileColumn, float[] values, boolean bypassCache)
+        throws IOException {
+        writeTile(tileRow, tileColumn, values, null, bypassCache);
     }
 
     /**
-     * Sets or clears a flag indicating that the instance should generate an
-     * index
-     * file when a writable file is closed.
+     * Stores the integer values for a tile. The organization of the array
+     * is the same as for readTile(). The values are converted as described
+     * for the integer variation of writeBlock(). The bypass option is
+     * described in the floating-point variation of this method.
      *
-     * @param indexCreationEnabled true if an index is to be created; otherwise
-     * false.
+     * @param tileRow the row of the tile within the grid of tiles
+     * @param tileColumn the column of the tile within the grid of tiles
+     * @param values an array of size at least nCellsInTile*dimension
+     * @param bypassCache true if the tile is to be written directly to
+     * the file; false if it is to be stored in the cache.
+     * @throws IOException in the event of an I/O error
      */
-    public void setIndexCreationEnabled(boolean indexCreationEnabled) {
-        this.indexCreationEnabled = indexCreationEnabled;
+    public void writeTile(
+        int tileRow, int tileColumn, int[] values, boolean bypassCache)
+        throws IOException {
+        writeTile(tileRow, tileColumn, null, values, bypassCache);
     }
 
-    private File getIndexFile() {
-        String name = file.getName();
-        int extensionIndex = name.lastIndexOf('.');
-        if (extensionIndex <= 0 || extensionIndex == name.length() - 1) {
-            return null;
+    private void writeTile(int tileRow, int tileColumn,
+        float[] fValues, int[] iValues, boolean bypassCache) throws IOException {
+        if (!openedForWriting) {
+            throw new IOException("Raster file not opened for writing");
         }
-
-        String extension;
-        char c = name.charAt(extensionIndex + 1);
-        if (Character.isLowerCase(c)) {
-            extension = RasterFileType.G93index.getExtension().toLowerCase();
-        } else if (Character.isUpperCase(c)) {
-            extension = RasterFileType.G93index.getExtension().toUpperCase();
-        } else {
-            return null;
+        int tileIndex = checkTileRowAndColumn(tileRow, tileColumn);
+        checkTileArray(fValues == null
+            ? (iValues == null ? -1 : iValues.length) : fValues.length);
+
+        if (bypassCache && tileCache.isBypassPossible(tileIndex)) {
+            RasterTile tile = RasterTile.allocate(spec, tileIndex, false);
+            storeTileValues(tile, fValues, iValues);
+            tileCache.storeTileBypassingCache(tile);
+            return;
         }
 
-        String indexName = name.substring(0, extensionIndex + 1) + extension;
-        File parent = file.getParentFile();
-        if (parent == null) {
-            return new File(indexName);
-        } else {
-            return new File(parent, indexName);
+        RasterTile tile = tileCache.getTile(tileIndex);
+        if (tile == null) {
+            tile = tileCache.allocateNewTile(tileIndex);
         }
+        storeTileValues(tile, fValues, iValues);
     }
 
-    private void writeIndexFile(long closingTime) throws IOException {
-        File indexFile = getIndexFile();
-        if (indexFile == null) {
-            throw new IOException(
-                "Unable to resolve index name for " + file.getPath());
+    private void storeTileValues(RasterTile tile, float[] fValues, int[] iValues) {
+        int nValues = spec.nCellsInTile;
+        for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
+            if (fValues != null) {
+                storeRow(tile, iDimension, 0, nValues, fValues, iDimension * nValues);
+            } else {
+                storeRow(tile, iDimension, 0, nValues, iValues, iDimension * nValues);
+            }
         }
+        tile.writingRequired = true;
+    }
 
-        if (indexFile.exists() && !indexFile.delete()) {
-            throw new IOException(
-                "Unable to delete old index file " + file.getPath());
+    /**
+     * Indicates whether the tile with the specified index contains data,
+     * either in the file or, for files opened for writing, in the cache.
+     * This method does not perform any file access.
+     *
+     * @param tileIndex a valid tile index
+     * @return true if the tile is populated; otherwise, false.
+     */
+    boolean isTilePopulated(int tileIndex) {
+        return tileStore.doesTileExist(tileIndex)
+            || openedForWriting && tileCache.isTileInCache(tileIndex);
+    }
+
+    /**
+     * Gets an iterator over the tiles that contain data. Tiles are
+     * given in order of tile index. Because the determination of
+     * whether a tile is populated is based on the tile positions
+     * held in memory, regions of the grid that contain no data are
+     * skipped without any file access. The iterator does not read
+     * the tiles; their content may be obtained using readTile().
+     * <p>
+     * The iterator reflects the state of the file at the time each
+     * tile is visited. Tiles that are populated while the iteration
+     * is in progress may or may not be included.
+     *
+     * @return a valid instance
+     * @throws IOException if the file is closed
+     */
+    public Iterator<G93TileCoordinates> getPopulatedTileIterator()
+        throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
         }
+        final int nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
+        return new Iterator<G93TileCoordinates>() {
+            int nextIndex = findNext(0);
 
-        BufferedRandomAccessFile idxraf
-            = new BufferedRandomAccessFile(indexFile, "rw");
-        idxraf.writeASCII(RasterFileType.G93index.getIdentifier(), 12);
-        idxraf.writeByte(G93FileSpecification.VERSION);
-        idxraf.writeByte(G93FileSpecification.SUB_VERSION);
-        idxraf.writeByte(0); // reserved
-        idxraf.writeByte(0); // reserved
+            private int findNext(int tileIndex) {
+                while (tileIndex < nTiles && !isTilePopulated(tileIndex)) {
+                    tileIndex++;
+                }
+                return tileIndex;
+            }
 
-        idxraf.leWriteLong(closingTime);  // time modified
-        idxraf.leWriteLong(spec.uuid.getLeastSignificantBits());
-        idxraf.leWriteLong(spec.uuid.getMostSignificantBits());
-        tileStore.writeTilePositionsToIndexFile(idxraf);
+            @Override
+            public boolean hasNext() {
+                return nextIndex < nTiles;
+            }
+
+            @Override
+            public G93TileCoordinates next() {
+                if (nextIndex >= nTiles) {
+                    throw new NoSuchElementException();
+                }
+                G93TileCoordinates coordinates
+                    = new G93TileCoordinates(spec, nextIndex);
+                nextIndex = findNext(nextIndex + 1);
+                return coordinates;
+            }
+        };
+    }
+
+    /**
+     * Gets a stream of views of the populated tiles in the file, given
+     * in order of tile index. The stream is sequential, but may be
+     * converted to a parallel stream using its parallel() method. In that
+     * case, the tiles are divided into ranges that are read and decoded
+     * by separate threads, each using its own codec instance and
+     * position-based reads from a shared file channel. The tile cache
+     * is not used.
+     * <p>
+     * Each view holds its own copy of the tile data. Errors that occur
+     * while reading a tile are reported as UncheckedIOExceptions. The file
+     * must not be closed while the stream is in use.
+     * <p>
+     * This method is supported only for files opened for read-only access.
+     *
+     * @return a valid stream
+     * @throws IOException if the file is closed or opened for writing,
+     * or in the event of an I/O error.
+     */
+    public Stream<G93TileView> tiles() throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (openedForWriting) {
+            throw new IOException(
+                "Tile streams are supported only for read-only files");
+        }
+        tileStore.openConcurrentReadChannel(file);
+
+        int[] tileIndices = getPopulatedTiles(
+            0, 0, spec.nRowsInRaster - 1, spec.nColsInRaster - 1);
+        return StreamSupport.stream(new TileSpliterator(
+            spec, tileStore, newReadContext(), tileIndices), false);
+    }
+
+    private ThreadLocal<TileReadContext> newReadContext() {
+        final CodecMaster codecMaster = rasterCodec;
+        return new ThreadLocal<TileReadContext>() {
+            @Override
+            protected TileReadContext initialValue() {
+                return new TileReadContext(codecMaster.copy());
+            }
+        };
+    }
+
+    /**
+     * Computes summary statistics for the values in the file.
+     * For files opened for read-only access, the tiles are read and
+     * decoded in parallel using the common fork-join pool.
+     * For files with a dimension greater than one, the statistics
+     * are computed for the first element.
+     *
+     * @return a valid instance
+     * @throws IOException in the event of an I/O error
+     */
+    public G93Statistics computeStatistics() throws IOException {
+        return computeStatistics(
+            0, 0, spec.nRowsInRaster, spec.nColsInRaster, 0, 0, 0);
+    }
+
+    /**
+     * Computes summary statistics and an optional histogram for the
+     * values in a rectangular region of the file. Only the populated
+     * tiles that intersect the region are read. For files opened for
+     * read-only access, the tiles are read and decoded in parallel using
+     * the common fork-join pool, with each thread accumulating
+     * its own partial results which are then merged. Files opened
+     * for writing are processed serially through the tile cache so that
+     * the results reflect any changes that have not yet been written.
+     * For files with a dimension greater than one, the statistics
+     * are computed for the first element.
+     * <p>
+     * The histogram divides the range from histogramMin to histogramMax
+     * into nBins bins of equal width. Values outside the range are
+     * counted separately.
+     *
+     * @param row the grid row index for the starting row of the region
+     * @param column the grid column index for the starting column
+     * of the region
+     * @param nRows the number of rows in the region
+     * @param nColumns the number of columns in the region
+     * @param histogramMin the minimum value for the histogram
+     * @param histogramMax the maximum value for the histogram, must be
+     * greater than the minimum if a histogram is to be computed.
+     * @param nBins the number of bins for the histogram, or zero if
+     * no histogram is to be computed.
+     * @return a valid instance
+     * @throws IOException in the event of an I/O error or invalid
+     * specifications.
+     */
+    public G93Statistics computeStatistics(
+        int row, int column, int nRows, int nColumns,
+        final double histogramMin, final double histogramMax, final int nBins)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        checkRowAndColumn(row, column);
+        checkRowAndColumn(row + nRows - 1, column + nColumns - 1);
+        if (nBins < 0 || nBins > 0 && !(histogramMax > histogramMin)) {
+            throw new IOException("Invalid histogram specification: min="
+                + histogramMin + ", max=" + histogramMax + ", nBins=" + nBins);
+        }
+        final int gr0 = row;
+        final int gc0 = column;
+        final int gr1 = row + nRows - 1;
+        final int gc1 = column + nColumns - 1;
+        int[] tileIndices = getPopulatedTiles(gr0, gc0, gr1, gc1);
+
+        G93Statistics stats;
+        if (openedForWriting) {
+            stats = new G93Statistics(histogramMin, histogramMax, nBins);
+            for (int tileIndex : tileIndices) {
+                RasterTile tile = getTileForReading(tileIndex);
+                if (tile != null) {
+                    stats.addTile(tile, 0, gr0, gr1, gc0, gc1);
+                }
+            }
+        } else {
+            tileStore.openConcurrentReadChannel(file);
+            try {
+                stats = StreamSupport.stream(new TileSpliterator(
+                    spec, tileStore, newReadContext(), tileIndices), true)
+                    .collect(new Supplier<G93Statistics>() {
+                        @Override
+                        public G93Statistics get() {
+                            return new G93Statistics(histogramMin, histogramMax, nBins);
+                        }
+                    }, new BiConsumer<G93Statistics, G93TileView>() {
+                        @Override
+                        public void accept(G93Statistics s, G93TileView view) {
+                            s.addTile(view.getTile(), 0, gr0, gr1, gc0, gc1);
+                        }
+                    }, new BiConsumer<G93Statistics, G93Statistics>() {
+                        @Override
+                        public void accept(G93Statistics s, G93Statistics other) {
+                            s.merge(other);
+                        }
+                    });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+        stats.setCellCount((long) nRows * nColumns);
+        return stats;
+    }
+
+    /**
+     * Gets the indices of the populated tiles that intersect a rectangular
+     * region of the grid, in order of tile index.
+     *
+     * @param gr0 the first grid row of the region
+     * @param gc0 the first grid column of the region
+     * @param gr1 the last grid row of the region
+     * @param gc1 the last grid column of the region
+     * @return a valid, potentially empty, array
+     */
+    private int[] getPopulatedTiles(int gr0, int gc0, int gr1, int gc1) {
+        int tileRow0 = gr0 / spec.nRowsInTile;
+        int tileCol0 = gc0 / spec.nColsInTile;
+        int tileRow1 = gr1 / spec.nRowsInTile;
+        int tileCol1 = gc1 / spec.nColsInTile;
+        int[] tileIndices = new int[(tileRow1 - tileRow0 + 1) * (tileCol1 - tileCol0 + 1)];
+        int n = 0;
+        for (int tileRow = tileRow0; tileRow <= tileRow1; tileRow++) {
+            for (int tileCol = tileCol0; tileCol <= tileCol1; tileCol++) {
+                int tileIndex = tileRow * spec.nColsOfTiles + tileCol;
+                if (isTilePopulated(tileIndex)) {
+                    tileIndices[n++] = tileIndex;
+                }
+            }
+        }
+        return Arrays.copyOf(tileIndices, n);
+    }
+
+    /**
+     * Gets the summary statistics for a tile. Summaries are maintained
+     * as tiles are written and are stored in the file, so they can
+     * usually be obtained without reading the tile. If the summary is
+     * not available, as may be the case for files written by earlier
+     * versions of this library, it is computed from the tile content and
+     * retained for subsequent requests. For files opened for writing,
+     * the summary reflects any changes that have not yet been written.
+     *
+     * @param tileRow the row of the tile within the grid of tiles
+     * @param tileColumn the column of the tile within the grid of tiles
+     * @return a valid instance
+     * @throws IOException in the event of an I/O error
+     */
+    public G93TileSummary getTileSummary(int tileRow, int tileColumn)
+        throws IOException {
+        return getTileSummary(checkTileRowAndColumn(tileRow, tileColumn));
+    }
+
+    G93TileSummary getTileSummary(int tileIndex) throws IOException {
+        if (openedForWriting) {
+            if (tileCache.isTileInCache(tileIndex)) {
+                RasterTile tile = tileCache.getTile(tileIndex);
+                if (tile.isWritingRequired()) {
+                    return TileSummaryTable.summarize(tile);
+                }
+            }
+            // a modified tile that was removed from the cache may still be
+            // queued for write-behind, in which case the table holds the
+            // summary of its earlier content.
+            tileCache.drainWriteBehind();
+        }
+        G93TileSummary summary = tileStore.tileSummaries.get(tileIndex);
+        if (summary == null) {
+            RasterTile tile = getTileForReading(tileIndex);
+            if (tile == null) {
+                return new G93TileSummary(0, Float.NaN, Float.NaN, 0);
+            }
+            tileStore.tileSummaries.update(tile);
+            summary = tileStore.tileSummaries.get(tileIndex);
+        }
+        return summary;
+    }
+
+    /**
+     * Indicates whether the summaries for all tiles are available
+     * without reading tile content.
+     *
+     * @return true if all summaries are available; otherwise, false.
+     */
+    public boolean isTileSummaryAvailable() {
+        int nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
+        for (int tileIndex = 0; tileIndex < nTiles; tileIndex++) {
+            if (!tileStore.tileSummaries.isKnown(tileIndex)
+                && !(openedForWriting && tileCache.isTileInCache(tileIndex))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets summary statistics for the entire file by combining the
+     * tile summaries. When the tile summaries are available, this method
+     * does not read any tile content.
+     *
+     * @return a valid instance
+     * @throws IOException in the event of an I/O error
+     */
+    public G93TileSummary getSummary() throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        G93TileSummary summary = new G93TileSummary(0, Float.NaN, Float.NaN, 0);
+        int nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
+        for (int tileIndex = 0; tileIndex < nTiles; tileIndex++) {
+            if (isTilePopulated(tileIndex)) {
+                summary = summary.combine(getTileSummary(tileIndex));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Gets the extent of the tiles that contain valid data. The extent
+     * is determined from the tile summaries and is given to the
+     * resolution of the tiles, clipped to the bounds of the grid.
+     * When the tile summaries are available, this method does not read
+     * any tile content.
+     *
+     * @return if the file contains data, an array giving the first row,
+     * first column, last row, and last column of the extent in grid
+     * coordinates; otherwise, a null.
+     * @throws IOException in the event of an I/O error
+     */
+    public int[] getDataExtent() throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        int tileRow0 = Integer.MAX_VALUE;
+        int tileCol0 = Integer.MAX_VALUE;
+        int tileRow1 = -1;
+        int tileCol1 = -1;
+        int nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
+        for (int tileIndex = 0; tileIndex < nTiles; tileIndex++) {
+            if (isTilePopulated(tileIndex)
+                && getTileSummary(tileIndex).getCount() > 0) {
+                int tileRow = tileIndex / spec.nColsOfTiles;
+                int tileCol = tileIndex - tileRow * spec.nColsOfTiles;
+                tileRow0 = Math.min(tileRow0, tileRow);
+                tileCol0 = Math.min(tileCol0, tileCol);
+                tileRow1 = Math.max(tileRow1, tileRow);
+                tileCol1 = Math.max(tileCol1, tileCol);
+            }
+        }
+        if (tileRow1 < 0) {
+            return null;
+        }
+        return new int[]{
+            tileRow0 * spec.nRowsInTile,
+            tileCol0 * spec.nColsInTile,
+            Math.min(spec.nRowsInRaster, (tileRow1 + 1) * spec.nRowsInTile) - 1,
+            Math.min(spec.nColsInRaster, (tileCol1 + 1) * spec.nColsInTile) - 1
+        };
+    }
+
+    /**
+     * Gets a stream of the grid cells whose values lie within a specified
+     * range. Each cell is given as an index computed as
+     * row*nColumnsInGrid + column. Cells containing null values are never
+     * included. Tiles whose summaries show that they contain no values
+     * in the range are skipped without being read.
+     * For files with a dimension greater than one, the first element
+     * is tested.
+     *
+     * @param minValue the minimum value for the range, inclusive
+     * @param maxValue the maximum value for the range, inclusive
+     * @return a valid stream
+     * @throws IOException in the event of an I/O error or an
+     * invalid range.
+     */
+    public LongStream queryValueRange(float minValue, float maxValue)
+        throws IOException {
+        return queryValueRange(0, 0, spec.nRowsInRaster, spec.nColsInRaster,
+            minValue, maxValue);
+    }
+
+    /**
+     * Gets a stream of the grid cells within a rectangular region of the
+     * file whose values lie within a specified range. Each cell is given as
+     * an index computed as row*nColumnsInGrid + column, where the row and
+     * column are in grid coordinates. The cells are grouped by tile, in
+     * order of tile index, and are given in row-major order within each
+     * tile. Cells containing null values are never included.
+     * <p>
+     * Only the populated tiles that intersect the region are considered.
+     * Tiles whose summaries show that they contain no values in the range
+     * are skipped without being read. When the summary for a tile is not
+     * available, it is computed when the tile is first scanned and
+     * retained for subsequent queries.
+     * <p>
+     * For files opened for read-only access, the stream is evaluated
+     * lazily and may be converted to a parallel stream using its parallel()
+     * method, in which case the tiles are read and decoded by separate
+     * threads. Errors that occur while reading a tile are reported as
+     * UncheckedIOExceptions and the file must not be closed while the
+     * stream is in use. For files opened for writing, the tiles are scanned
+     * serially through the tile cache before this method returns so that
+     * the results reflect any changes that have not yet been written.
+     * For files with a dimension greater than one, the first element
+     * is tested.
+     *
+     * @param row the grid row index for the starting row of the region
+     * @param column the grid column index for the starting column
+     * of the region
+     * @param nRows the number of rows in the region
+     * @param nColumns the number of columns in the region
+     * @param minValue the minimum value for the range, inclusive
+     * @param maxValue the maximum value for the range, inclusive
+     * @return a valid stream
+     * @throws IOException in the event of an I/O error or invalid
+     * specifications.
+     */
+    public LongStream queryValueRange(
+        int row, int column, int nRows, int nColumns,
+        float minValue, float maxValue)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        checkRowAndColumn(row, column);
+        checkRowAndColumn(row + nRows - 1, column + nColumns - 1);
+        if (!(minValue <= maxValue)) {
+            throw new IOException("Invalid value range: min="
+                + minValue + ", max=" + maxValue);
+        }
+        final ValueRangeFilter filter = new ValueRangeFilter(spec,
+            minValue, maxValue,
+            row, column, row + nRows - 1, column + nColumns - 1);
+        int[] tileIndices = getPopulatedTiles(
+            row, column, row + nRows - 1, column + nColumns - 1);
+
+        if (openedForWriting) {
+            List<long[]> tileMatches = new ArrayList<>();
+            int nMatches = 0;
+            for (int tileIndex : tileIndices) {
+                if (!filter.mayContainMatches(getTileSummary(tileIndex))) {
+                    continue;
+                }
+                RasterTile tile = getTileForReading(tileIndex);
+                if (tile != null) {
+                    long[] m = filter.getMatches(tile);
+                    tileMatches.add(m);
+                    nMatches += m.length;
+                }
+            }
+            long[] matches = new long[nMatches];
+            int k = 0;
+            for (long[] m : tileMatches) {
+                System.arraycopy(m, 0, matches, k, m.length);
+                k += m.length;
+            }
+            return LongStream.of(matches);
+        }
+
+        int n = 0;
+        for (int tileIndex : tileIndices) {
+            if (filter.mayContainMatches(tileStore.tileSummaries.get(tileIndex))) {
+                tileIndices[n++] = tileIndex;
+            }
+        }
+        tileStore.openConcurrentReadChannel(file);
+        final TileSummaryTable tileSummaries = tileStore.tileSummaries;
+        return StreamSupport.stream(new TileSpliterator(spec, tileStore,
+            newReadContext(), Arrays.copyOf(tileIndices, n)), false)
+            .flatMapToLong(new Function<G93TileView, LongStream>() {
+                @Override
+                public LongStream apply(G93TileView view) {
+                    RasterTile tile = view.getTile();
+                    if (!tileSummaries.isKnown(tile.tileIndex)) {
+                        tileSummaries.update(tile);
+                    }
+                    return LongStream.of(filter.getMatches(tile));
+                }
+            });
+    }
+
+    /**
+     * Gets a bitmap indicating which of the grid cells within a rectangular
+     * region of the file have values that lie within a specified range.
+     * The bit for a cell is given by the index r*nColumns + c, where r and
+     * c are the row and column relative to the start of the region.
+     * For files opened for read-only access, the tiles are read and
+     * decoded in parallel using the common fork-join pool. Otherwise,
+     * the behavior is as described for the queryValueRange method.
+     *
+     * @param row the grid row index for the starting row of the region
+     * @param column the grid column index for the starting column
+     * of the region
+     * @param nRows the number of rows in the region
+     * @param nColumns the number of columns in the region
+     * @param minValue the minimum value for the range, inclusive
+     * @param maxValue the maximum value for the range, inclusive
+     * @return a valid instance
+     * @throws IOException in the event of an I/O error or invalid
+     * specifications.
+     */
+    public BitSet queryValueRangeBitmap(
+        final int row, final int column, int nRows, final int nColumns,
+        float minValue, float maxValue)
+        throws IOException {
+        if ((long) nRows * nColumns > Integer.MAX_VALUE) {
+            throw new IOException(
+                "Region too large for bitmap: " + nRows + " by " + nColumns);
+        }
+        final long nColumnsInGrid = spec.nColsInRaster;
+        LongStream matches = queryValueRange(
+            row, column, nRows, nColumns, minValue, maxValue);
+        try {
+            return matches.parallel().collect(new Supplier<BitSet>() {
+                @Override
+                public BitSet get() {
+                    return new BitSet();
+                }
+            }, new ObjLongConsumer<BitSet>() {
+                @Override
+                public void accept(BitSet bitmap, long index) {
+                    int r = (int) (index / nColumnsInGrid) - row;
+                    int c = (int) (index % nColumnsInGrid) - column;
+                    bitmap.set(r * nColumns + c);
+                }
+            }, new BiConsumer<BitSet, BitSet>() {
+                @Override
+                public void accept(BitSet bitmap, BitSet other) {
+                    bitmap.or(other);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Builds the full set of overview levels for the file, adding levels
+     * until the grid for the last level fits within a single tile.
+     *
+     * @param sampling the method used to compute the values for
+     * the overview levels
+     * @throws IOException in the event of an I/O error, if the file is
+     * not opened for writing, or if the grid fits within a single tile.
+     * @see #buildOverviews(int, G93OverviewSampling)
+     */
+    public void buildOverviews(G93OverviewSampling sampling) throws IOException {
+        buildOverviews(OverviewPyramid.getMaximumLevelCount(spec), sampling);
+    }
+
+    /**
+     * Builds reduced-resolution overview levels for the file and stores them
+     * in the file. Level 1 has half the resolution of the full grid in each
+     * direction, level 2 has a quarter, and so forth. The overview levels
+     * allow an application to read a large region of the grid at a coarse
+     * resolution without reading all of the full-resolution tiles that
+     * it covers.
+     * <p>
+     * The levels are built in a single pass over the tiles of the full grid,
+     * with each tile read once. The work is performed in parallel using the
+     * common fork-join pool. Any data held in the tile cache is written to
+     * the file before the levels are built and any existing overview levels
+     * are replaced.
+     * <p>
+     * The overview levels are not updated when the content of the file is
+     * modified. If the file is modified after the levels are built, they
+     * are no longer used and are removed from the file when it is closed.
+     *
+     * @param nLevels the number of overview levels, from 1 up to the number
+     * of levels required for the grid for the last level to fit within
+     * a single tile.
+     * @param sampling the method used to compute the values for
+     * the overview levels
+     * @throws IOException in the event of an I/O error, if the file is
+     * not opened for writing, or if the number of levels is out of range.
+     */
+    public void buildOverviews(int nLevels, G93OverviewSampling sampling)
+        throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (!openedForWriting) {
+            throw new IOException("Raster file not opened for writing");
+        }
+        if (sampling == null) {
+            throw new IOException("Null overview sampling specification");
+        }
+        int maxLevels = OverviewPyramid.getMaximumLevelCount(spec);
+        if (nLevels < 1 || nLevels > maxLevels) {
+            throw new IOException("Number of overview levels " + nLevels
+                + " out of range 1 to " + maxLevels);
+        }
+        flush();
+        tileStore.removeOverviews();
+        OverviewPyramid pyramid = new OverviewPyramid(spec, nLevels, sampling);
+        tileStore.overviews = pyramid;
+        tileStore.openConcurrentReadChannel(file);
+        try {
+            new OverviewBuilder(spec, tileStore, newReadContext(), pyramid).build();
+        } catch (IOException ex) {
+            tileStore.removeOverviews();
+            throw ex;
+        } finally {
+            // the tile positions may change once writing resumes
+            tileStore.closeConcurrentReadChannel();
+        }
+        braf.flush();
+        overviewTileWrites = tileStore.nTileWrites;
+    }
+
+    /**
+     * Gets the number of overview levels that are available for reading.
+     * Overview levels that no longer reflect the content of the file are
+     * not counted. For files opened for writing, any data held in the tile
+     * cache is written to the file before the levels are checked.
+     *
+     * @return a positive integer, or zero if no overview levels are
+     * available.
+     * @throws IOException in the event of an I/O error
+     */
+    public int getOverviewLevelCount() throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (!isOverviewCurrent()) {
+            return 0;
+        }
+        return tileStore.overviews.levels.length;
+    }
+
+    private boolean isOverviewCurrent() throws IOException {
+        if (tileStore.overviews == null) {
+            return false;
+        }
+        if (openedForWriting) {
+            tileCache.flush();
+        }
+        return tileStore.nTileWrites == overviewTileWrites;
+    }
+
+    /**
+     * Reads a block of values from a rectangular region of the file at a
+     * reduced resolution. The values are taken at intervals of the specified
+     * step in each direction, starting with the first row and column of
+     * the region, so the result has (nRows+step-1)/step rows and
+     * (nColumns+step-1)/step columns. The result is arranged in the same
+     * manner as for the readBlock method.
+     * <p>
+     * When the file has overview levels, the values are taken from the
+     * coarsest level whose resolution is at least that of the step, which
+     * is level n for a step of 2<sup>n</sup>. Each value then gives the
+     * overview value for the cell that contains the sample point. When
+     * no suitable level is available, values are taken directly from the
+     * full-resolution grid.
+     *
+     * @param row the grid row index for the starting row of the region
+     * @param column the grid column index for the starting column
+     * of the region
+     * @param nRows the number of rows in the region
+     * @param nColumns the number of columns in the region
+     * @param step the spacing of the sample points, in grid cells; a value
+     * of 1 gives the full resolution.
+     * @return if successful, a valid array giving the values for each
+     * sample point, times the dimension of the file.
+     * @throws IOException in the event of an I/O error or invalid
+     * specifications.
+     */
+    public float[] readBlockAtResolution(
+        int row, int column, int nRows, int nColumns, int step)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        checkRowAndColumn(row, column);
+        checkRowAndColumn(row + nRows - 1, column + nColumns - 1);
+        if (step < 1) {
+            throw new IOException("Invalid step " + step);
+        }
+        int nRowsOut = (nRows + step - 1) / step;
+        int nColsOut = (nColumns + step - 1) / step;
+        int nCellsOut = nRowsOut * nColsOut;
+        int dimension = spec.dimension;
+        float[] block = new float[nCellsOut * dimension];
+        float[] values = new float[dimension];
+
+        OverviewPyramid.Level level = null;
+        if (step > 1 && isOverviewCurrent()) {
+            int iLevel = Math.min(
+                31 - Integer.numberOfLeadingZeros(step),
+                tileStore.overviews.levels.length);
+            level = tileStore.overviews.getLevel(iLevel);
+        }
+        int shift = level == null ? 0 : level.level;
+        int nColsOfTiles = level == null ? spec.nColsOfTiles : level.nColsOfTiles;
+        Map<Integer, RasterTile> overviewTiles = new HashMap<>();
+
+        for (int iRow = 0; iRow < nRowsOut; iRow++) {
+            int gRow = (row + iRow * step) >> shift;
+            int tileRow = gRow / spec.nRowsInTile;
+            int rowInTile = gRow - tileRow * spec.nRowsInTile;
+            for (int iCol = 0; iCol < nColsOut; iCol++) {
+                int gCol = (column + iCol * step) >> shift;
+                int tileCol = gCol / spec.nColsInTile;
+                int colInTile = gCol - tileCol * spec.nColsInTile;
+                int tileIndex = tileRow * nColsOfTiles + tileCol;
+                RasterTile tile;
+                if (level == null) {
+                    tile = getTileForReading(tileIndex);
+                } else {
+                    tile = overviewTiles.get(tileIndex);
+                    if (tile == null) {
+                        tile = RasterTile.allocate(
+                            spec, tileIndex, tileRow, tileCol, false, null);
+                        tileStore.readOverviewTile(level, tile);
+                        overviewTiles.put(tileIndex, tile);
+                    }
+                }
+                int index = iRow * nColsOut + iCol;
+                if (tile == null) {
+                    for (int k = 0; k < dimension; k++) {
+                        block[index + k * nCellsOut] = Float.NaN;
+                    }
+                } else {
+                    tile.getValues(rowInTile, colInTile, values);
+                    for (int k = 0; k < dimension; k++) {
+                        block[index + k * nCellsOut] = values[k];
+                    }
+                }
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Loads the tables for the overview levels when a file is opened.
+     * Like the tile summaries, the record containing the tables is released
+     * for files opened for writing and a new one is written when the file
+     * is closed. Overview records that are not described by a current
+     * table are released.
+     */
+    private void loadOverviews() throws IOException {
+        for (VariableLengthRecord vlr : getVariableLengthRecords()) {
+            if (OverviewPyramid.USER_ID.equals(vlr.getUserId())) {
+                tileStore.overviews
+                    = OverviewPyramid.load(spec, vlr.readPayload(), timeModified);
+                if (openedForWriting) {
+                    tileStore.removeVariableLengthRecord(vlr);
+                }
+            }
+        }
+        if (tileStore.overviews != null) {
+            tileStore.scannedOverviewRecords.clear();
+        } else if (openedForWriting && !tileStore.scannedOverviewRecords.isEmpty()) {
+            tileStore.removeOverviews();
+        }
+        overviewTileWrites = tileStore.nTileWrites;
+    }
+
+    private void writeOverviews(long closingTime) throws IOException {
+        if (tileStore.overviews != null) {
+            byte[] payload = tileStore.overviews.getPayload(closingTime);
+            storeVariableLengthRecord(
+                OverviewPyramid.USER_ID,
+                OverviewPyramid.RECORD_ID,
+                OverviewPyramid.DESCRIPTION,
+                payload, 0, payload.length, false);
+        }
+    }
+
+    /**
+     * Reads a floating-point value from the G93File. If no data exists for the
+     * specified row and column, the value Float.NaN will be returned. This
+     * method
+     * is intended to support cases where the file definition has a dimension
+     * greater
+     * than 1 (i.e. in cases where the file stores vector elements).
+     *
+     * @param row a positive value in the range defined by the file
+     * specifications.
+     * @param column a positive value in the range defined by the file
+     * specifications.
+     * @param values an array of at least the dimension of the file, used to
+     * store the
+     * results of a read operation.
+     * @throws IOException in the event of a non-recoverable I/O exception.
+     */
+    public void readValues(int row, int column, float[] values) throws IOException {
+        if (this.isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        checkRowAndColumn(row, column);
+        int tileRow = row / spec.nRowsInTile;
+        int tileCol = column / spec.nColsInTile;
+        int tileIndex = tileRow * spec.nColsOfTiles + tileCol;
+
+        RasterTile tile = getTileForReading(tileIndex);
+        if (tile == null) {
+            Arrays.fill(values, 0, spec.dimension, Float.NaN);
+        } else {
+            tile.getValues(
+                row - tileRow * spec.nRowsInTile,
+                column - tileCol * spec.nColsInTile,
+                values);
+        }
+    }
+
+    /**
+     * Verifies that the specified row and column are within the bounds
+     * of the raster.
+     *
+     * @param row the grid row
+     * @param col the grid column
+     * @throws IOException if the coordinates are out of bounds
+     */
+    private void checkRowAndColumn(int row, int col) throws IOException {
+        if (row < 0 || row >= spec.nRowsInRaster) {
+            throw new IOException("Row out of bounds " + row);
+        }
+        if (col < 0 || col >= spec.nColsInRaster) {
+            throw new IOException("Column out of bounds " + col);
+        }
+    }
+
+    /**
+     * Gets the tile with the specified index from the cache that is
+     * appropriate for the access mode of the file.
+     *
+     * @param tileIndex a valid tile index
+     * @return if the tile exists, a valid instance; otherwise, a null
+     * @throws IOException in the event of an I/O error
+     */
+    private RasterTile getTileForReading(int tileIndex) throws IOException {
+        if (sharedTileCacheClient != null) {
+            return sharedTileCacheClient.getTile(tileIndex);
+        }
+        if (sharedTileCache != null) {
+            return sharedTileCache.getTile(tileIndex);
+        }
+        return tileCache.getTile(tileIndex);
+    }
+
+    /**
+     * Sets the tile cache size. Tile cache can have a significant effect on
+     * both
+     * performance and memory use for raster file operations.
+     *
+     * @param tileCacheSize a positive integer greater than zero.
+     * @throws IOException in the event of a non-recoverable I/O exception.
+     */
+    public void setTileCacheSize(int tileCacheSize) throws IOException {
+        if (tileCacheSize <= 0) {
+            throw new IOException("Cache size of " + tileCacheSize
+                + " is not within of valid range");
+        }
+        if (sharedTileCache != null) {
+            sharedTileCache.setTileCacheSize(tileCacheSize);
+        } else {
+            tileCache.setTileCacheSize(tileCacheSize);
+        }
+    }
+
+    /**
+     * Sets the maximum amount of memory, in bytes, to be used by the
+     * tile cache. The memory used by each tile is estimated based on
+     * the number of values it contains and the dimension of the raster
+     * specification, plus a small allowance for overhead. This setting
+     * allows applications that access files with different tile sizes
+     * to manage memory consistently. It replaces any limit that was
+     * set on the number of tiles in the cache.
+     * <p>
+     * Regardless of the setting, the cache always holds at least the
+     * tile that was most recently accessed.
+     *
+     * @param tileCacheSizeInBytes a positive value
+     * @throws IOException if the value is out of range or in the event
+     * of a non-recoverable I/O exception.
+     */
+    public void setTileCacheSizeInBytes(long tileCacheSizeInBytes) throws IOException {
+        if (tileCacheSizeInBytes <= 0) {
+            throw new IOException("Cache size of " + tileCacheSizeInBytes
+                + " bytes is not within of valid range");
+        }
+        if (sharedTileCache != null) {
+            sharedTileCache.setTileCacheSizeInBytes(tileCacheSizeInBytes);
+        } else {
+            tileCache.setTileCacheSizeInBytes(tileCacheSizeInBytes);
+        }
+    }
+
+    /**
+     * Gets an estimate of the number of bytes of memory currently used
+     * by the tiles held in the tile cache.
+     *
+     * @return a positive value, or zero if the cache is empty.
+     */
+    public long getTileCacheBytesInUse() {
+        if (sharedTileCache != null) {
+            return sharedTileCache.getBytesInCache();
+        }
+        return tileCache.getBytesInCache();
+    }
+
+    /**
+     * Sets the size of a secondary cache that holds tiles in compressed form.
+     * Because compressed tiles are usually much smaller than decoded tiles,
+     * the secondary cache allows a larger portion of a data set to be held
+     * in memory. When a tile is not found in the primary tile cache,
+     * it is decoded from the secondary cache, if possible, rather than
+     * being read from the file. The secondary cache is disabled by default
+     * and is only useful for files that use data compression.
+     * This option is not supported for files opened for shared access.
+     *
+     * @param sizeInBytes the maximum number of bytes to be used by the
+     * secondary cache, or zero to disable it.
+     * @throws IOException if the value is out of range or the file
+     * is opened for shared access.
+     */
+    public void setCompressedTileCacheSizeInBytes(long sizeInBytes) throws IOException {
+        if (sizeInBytes < 0) {
+            throw new IOException("Cache size of " + sizeInBytes
+                + " bytes is not within of valid range");
+        }
+        if (sharedTileCache != null) {
+            throw new IOException(
+                "Compressed tile cache is not supported for shared access");
+        }
+        tileCache.setCompressedCacheSizeInBytes(sizeInBytes);
+    }
+
+    /**
+     * Sets a tile cache that is shared with other files. When a shared
+     * cache is set, the tiles for this file are held in the shared cache
+     * rather than in the file's own cache, and the settings for the
+     * file's own cache do not apply. This option is supported only for files
+     * opened for read-only access, including those opened using openShared().
+     * In the case of openShared(), this method should be called before
+     * the instance is accessed by multiple threads.
+     * <p>
+     * When the file is closed, or a different cache is set, the tiles
+     * for the file are removed from the shared cache.
+     *
+     * @param cache a valid instance, or a null to use the file's own cache.
+     * @throws IOException if the file is closed or opened for writing,
+     * if tile prefetching is enabled, or in the event of an I/O error.
+     */
+    public void setSharedTileCache(G93SharedTileCache cache) throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (cache != null && (openedForWriting || tilePrefetchEnabled)) {
+            throw new IOException(
+                "A shared tile cache is supported only for read-only files"
+                + " without tile prefetching");
+        }
+        if (sharedTileCacheClient != null) {
+            sharedTileCacheClient.release();
+            sharedTileCacheClient = null;
+        }
+        if (cache != null) {
+            tileStore.openConcurrentReadChannel(file);
+            sharedTileCacheClient = cache.register(spec, tileStore, rasterCodec);
+        }
+    }
+
+    /**
+     * Sets the policy used to select tiles for removal when the tile cache
+     * is full. The default policy is least-recently-used (LRU).
+     * Applications that combine frequent access to a small set of tiles
+     * with occasional scans of large portions of the file may benefit from
+     * the scan-resistant TwoQueue policy. The tiles currently held
+     * in the cache are retained when the policy is changed.
+     * <p>
+     * This setting is not supported for files opened for shared access,
+     * which always use the CLOCK policy.
+     *
+     * @param cachePolicy a valid instance
+     * @throws IOException if the file is opened for shared access.
+     */
+    public void setTileCachePolicy(G93CachePolicy cachePolicy) throws IOException {
+        if (cachePolicy == null) {
+            throw new IOException("Null cache policy specification");
+        }
+        if (sharedTileCache != null) {
+            throw new IOException(
+                "Cache policy cannot be changed for files opened for shared access");
+        }
+        tileCache.setCachePolicy(cachePolicy);
+    }
+
+    /**
+     * Sets the tile cache size to one of the standard sizes defined by the
+     * specified enumeration. In general, the Large size should be used when
+     * creating data products. Size should be based on the anticipated pattern
+     * of
+     * access for the file.
+     *
+     * @param cacheSize a valid instance
+     * @throws IOException in the event of a non-recoverable I/P exception.
+     */
+    public void setTileCacheSize(G93CacheSize cacheSize) throws IOException {
+        switch (cacheSize) {
+            case Small:
+                setTileCacheSize(4);
+                break;
+            case Medium:
+                setTileCacheSize(16);
+                break;
+            case Large:
+                int nC = spec.nColsOfTiles;
+                int nR = spec.nRowsOfTiles;
+                int nT = nC > nR ? nC : nR;
+                setTileCacheSize(nT + 4);
+        }
+    }
+
+    /**
+     * Enables or disables the use of memory-mapped I/O for reading tiles.
+     * This option is supported only for files opened for read-only access.
+     * <p>
+     * When enabled, the file is mapped into memory in a series of windowed
+     * segments, so files larger than 2 gigabytes are supported.
+     * Non-compressed tiles are populated directly from the mapped pages
+     * and the system-call overhead of file read operations is avoided.
+     * For files opened using openShared(), this method should be called
+     * before the instance is accessed by multiple threads.
+     *
+     * @param enabled true if memory-mapped reads are to be used; otherwise,
+     * false.
+     * @throws IOException if the file is closed or opened for writing,
+     * or in the event of an I/O error while mapping the file.
+     */
+    public void setMemoryMappedReadEnabled(boolean enabled) throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (openedForWriting) {
+            throw new IOException(
+                "Memory-mapped reads are supported only for read-only files");
+        }
+        tileStore.setMemoryMappedReadEnabled(file, enabled);
+    }
+
+    /**
+     * Enables or disables the prefetching of tiles. When enabled, the
+     * pattern of tile access is monitored for sequential or strided access.
+     * When a pattern is detected, the tiles that are expected to be
+     * requested next are read and decompressed by background threads.
+     * This option is supported only for files opened for read-only access.
+     * <p>
+     * Prefetched tiles are added to the tile cache when they are requested,
+     * so the tile cache should be large enough to hold the tiles
+     * currently being accessed plus the lookahead.
+     *
+     * @param enabled true if prefetching is to be enabled; otherwise, false.
+     * @throws IOException if the file is closed or opened for writing
+     * or shared access, or in the event of an I/O error.
+     */
+    public void setTilePrefetchEnabled(boolean enabled) throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (enabled && (openedForWriting
+            || sharedTileCache != null
+            || sharedTileCacheClient != null)) {
+            throw new IOException(
+                "Tile prefetching is supported only for read-only files"
+                + " not opened for shared access or using a shared cache");
+        }
+        tilePrefetchEnabled = enabled;
+        if (enabled) {
+            tileStore.openConcurrentReadChannel(file);
+            tileCache.setPrefetcher(new TilePrefetcher(
+                spec, tileStore, rasterCodec, tilePrefetchLookahead));
+        } else {
+            tileCache.setPrefetcher(null);
+        }
+    }
+
+    /**
+     * Sets the maximum number of tiles that will be loaded in advance of
+     * the current access position when tile prefetching is enabled.
+     * The default value is 4.
+     *
+     * @param lookahead a value of 1 or greater.
+     * @throws IOException if the value is out of range or in the event
+     * of an I/O error.
+     */
+    public void setTilePrefetchLookahead(int lookahead) throws IOException {
+        if (lookahead < 1) {
+            throw new IOException("Lookahead of " + lookahead
+                + " is not within valid range");
+        }
+        tilePrefetchLookahead = lookahead;
+        if (tilePrefetchEnabled) {
+            setTilePrefetchEnabled(true);
+        }
+    }
+
+    /**
+     * Enables or disables bulk loading. Bulk loading is intended for
+     * applications that populate a new file, writing each tile once.
+     * When enabled, tiles are appended to the end of the file in the order
+     * that they are written using a large output buffer, bypassing the
+     * management of free space. If a tile is written more than once,
+     * the space used by its prior copy is not re-used. Instead, the file
+     * is compacted when it is closed.
+     * <p>
+     * Bulk loading is most effective when the application writes data
+     * in an order that completes one tile before starting the next and the
+     * tile cache is large enough that tiles are not removed before they are
+     * complete.
+     *
+     * @param enabled true if bulk loading is to be enabled; otherwise, false.
+     * @throws IOException if the file is closed or opened for read-only
+     * access, or in the event of an I/O error.
+     */
+    public void setBulkLoadEnabled(boolean enabled) throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (enabled && !openedForWriting) {
+            throw new IOException(
+                "Bulk loading is supported only for files opened for writing");
+        }
+        if (openedForWriting) {
+            tileStore.setBulkLoadEnabled(enabled);
+        }
+    }
+
+    /**
+     * Enables or disables the write-behind processing of tiles. When
+     * enabled, tiles that are removed from the tile cache are compressed
+     * and stored by background threads rather than by the thread that
+     * is writing data to the file. This option is supported only for files
+     * opened for writing and is intended for applications that store
+     * large amounts of data, particularly when data compression is enabled.
+     * <p>
+     * The number of tiles that may be waiting to be written at any one
+     * time is limited by the write-behind queue capacity. If the application
+     * produces data faster than it can be written, it will be blocked until
+     * space is available in the queue. The flush() and close() methods
+     * wait until all queued tiles are written.
+     *
+     * @param enabled true if write-behind processing is to be enabled;
+     * otherwise, false.
+     * @throws IOException if the file is closed or opened for read-only
+     * access, or in the event of an I/O error writing queued tiles.
+     */
+    public void setWriteBehindEnabled(boolean enabled) throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (enabled && !openedForWriting) {
+            throw new IOException(
+                "Write-behind is supported only for files opened for writing");
+        }
+        writeBehindEnabled = enabled;
+        if (enabled) {
+            tileCache.setWriteBehind(new TileWriteBehind(
+                tileStore, rasterCodec, writeBehindQueueCapacity));
+        } else {
+            tileCache.setWriteBehind(null);
+        }
+    }
+
+    /**
+     * Sets the maximum number of tiles that may be waiting to be written
+     * when write-behind processing is enabled. Because queued tiles are
+     * held in memory, larger values increase the memory use of the
+     * application. The default value is 16.
+     *
+     * @param queueCapacity a value of 1 or greater.
+     * @throws IOException if the value is out of range or in the event
+     * of an I/O error.
+     */
+    public void setWriteBehindQueueCapacity(int queueCapacity) throws IOException {
+        if (queueCapacity < 1) {
+            throw new IOException("Queue capacity of " + queueCapacity
+                + " is not within valid range");
+        }
+        writeBehindQueueCapacity = queueCapacity;
+        if (writeBehindEnabled) {
+            setWriteBehindEnabled(true);
+        }
+    }
+
+    /**
+     * Sets the executor used to compress modified tiles when the file
+     * is flushed or closed. By default, the common ForkJoinPool is used
+     * so that the compression of the tiles in a large cache is distributed
+     * across the available processors. Regardless of the executor,
+     * the tiles are written to the file by the calling thread in order
+     * of tile index, so the content of the file is the same as it would
+     * be if the compression were performed serially.
+     * <p>
+     * The executor is also used to decode tiles when readBlock() loads
+     * a batch of tiles that are not already in the cache.
+     *
+     * @param executor a valid executor, or a null if the tiles are to be
+     * processed by the calling thread.
+     */
+    public void setFlushExecutor(Executor executor) {
+        tileCache.setFlushExecutor(executor);
+    }
+
+    /**
+     * Gets a safe copy of the g93 raster specification associated with this
+     * file.
+     *
+     * @return a valid instance.
+     */
+    public G93FileSpecification getSpecification() {
+        return new G93FileSpecification(spec);
+    }
+
+    /**
+     * Sets or clears a flag indicating that the instance should generate an
+     * index
+     * file when a writable file is closed.
+     *
+     * @param indexCreationEnabled true if an index is to be created; otherwise
+     * false.
+     */
+    public void setIndexCreationEnabled(boolean indexCreationEnabled) {
+        this.indexCreationEnabled = indexCreationEnabled;
+    }
+
+    /**
+     * Sets or clears a flag indicating that a directory of tile positions
+     * should be stored at the end of the file when a writable file is closed.
+     * The directory allows the file to be opened without reading an index
+     * file or scanning the content of the file, which may be time consuming
+     * for large files. The directory includes a stamp that is used to verify
+     * that it is consistent with the content of the file.
+     * <p>
+     * Once a file contains a tile directory, the directory will be
+     * maintained each time the file is modified unless this method is
+     * called to disable it.
+     *
+     * @param tileDirectoryEnabled true if a directory is to be stored;
+     * otherwise, false.
+     * @throws IOException if the file is closed or opened for read-only
+     * access.
+     */
+    public void setTileDirectoryEnabled(boolean tileDirectoryEnabled)
+        throws IOException {
+        if (isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (!openedForWriting) {
+            throw new IOException("Raster file not opened for writing");
+        }
+        this.tileDirectoryEnabled = tileDirectoryEnabled;
+    }
+
+    /**
+     * Indicates whether the file contains, or will be closed with,
+     * a directory of tile positions.
+     *
+     * @return true if a tile directory is enabled; otherwise, false.
+     */
+    public boolean isTileDirectoryEnabled() {
+        return tileDirectoryEnabled;
+    }
+
+    private File getIndexFile() {
+        String name = file.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        if (extensionIndex <= 0 || extensionIndex == name.length() - 1) {
+            return null;
+        }
+
+        String extension;
+        char c = name.charAt(extensionIndex + 1);
+        if (Character.isLowerCase(c)) {
+            extension = RasterFileType.G93index.getExtension().toLowerCase();
+        } else if (Character.isUpperCase(c)) {
+            extension = RasterFileType.G93index.getExtension().toUpperCase();
+        } else {
+            return null;
+        }
+
+        String indexName = name.substring(0, extensionIndex + 1) + extension;
+        File parent = file.getParentFile();
+        if (parent == null) {
+            return new File(indexName);
+        } else {
+            return new File(parent, indexName);
+        }
+    }
+
+    private void writeIndexFile(long closingTime) throws IOException {
+        File indexFile = getIndexFile();
+        if (indexFile == null) {
+            throw new IOException(
+                "Unable to resolve index name for " + file.getPath());
+        }
+
+        if (indexFile.exists() && !indexFile.delete()) {
+            throw new IOException(
+                "Unable to delete old index file " + file.getPath());
+        }
+
+        BufferedRandomAccessFile idxraf
+            = new BufferedRandomAccessFile(indexFile, "rw");
+        idxraf.writeASCII(RasterFileType.G93index.getIdentifier(), 12);
+        idxraf.writeByte(G93FileSpecification.VERSION);
+        idxraf.writeByte(G93FileSpecification.SUB_VERSION);
+        idxraf.writeByte(0); // reserved
+        idxraf.writeByte(0); // reserved
+
+        idxraf.leWriteLong(closingTime);  // time modified
+        idxraf.leWriteLong(spec.uuid.getLeastSignificantBits());
+        idxraf.leWriteLong(spec.uuid.getMostSignificantBits());
+        tileStore.writeTilePositionsToIndexFile(idxraf);
         idxraf.flush();
         idxraf.close();
     }
@@ -945,17 +2635,21 @@ public class G93File implements Closeable, AutoCloseable {
             }
         }
         int nBytesRequired = VariableLengthRecord.VLR_HEADER_SIZE + payloadSize;
-        long filePos = tileStore.allocateNonTileRecord(1, nBytesRequired);
-        braf.seek(filePos);
-        braf.writeASCII(userID, VariableLengthRecord.USER_ID_SIZE);
-        braf.leWriteInt(recordID);
-        braf.leWriteInt(payloadSize);
-        braf.writeASCII(description, VariableLengthRecord.DESCRIPTION_SIZE);
-        braf.writeBoolean(isPayloadText);
-        byte[] spare = new byte[7];
-        braf.writeFully(spare);
-        if (payloadSize > 0) {
-            braf.writeFully(payload, offset, payloadSize);
+        long filePos;
+        // synchronized because tiles may be written by a background thread
+        synchronized (braf) {
+            filePos = tileStore.allocateNonTileRecord(1, nBytesRequired);
+            braf.seek(filePos);
+            braf.writeASCII(userID, VariableLengthRecord.USER_ID_SIZE);
+            braf.leWriteInt(recordID);
+            braf.leWriteInt(payloadSize);
+            braf.writeASCII(description, VariableLengthRecord.DESCRIPTION_SIZE);
+            braf.writeBoolean(isPayloadText);
+            byte[] spare = new byte[7];
+            braf.writeFully(spare);
+            if (payloadSize > 0) {
+                braf.writeFully(payload, offset, payloadSize);
+            }
         }
 
         VariableLengthRecord vlr = new VariableLengthRecord(
@@ -1040,6 +2734,134 @@ public class G93File implements Closeable, AutoCloseable {
      * @throws IOException in the event of an I/O error.
      */
     public float[] readBlock(int row, int column, int nRows, int nColumns)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        float[] block = new float[nRows * nColumns * spec.dimension];
+        readBlock(row, column, nRows, nColumns, block, null, 0, nColumns);
+        return block;
+    }
+
+    /**
+     * Reads a block (sub-grid) of values from the G93 file into an array
+     * supplied by the calling application. This method allows an application
+     * that reads many blocks to re-use a single array rather than
+     * allocating a new one for each call. The index into the array for
+     * a particular row, column, and layer within the sub-grid would be
+     * <p>
+     * index = offset + row*stride + column + layer*nRows*stride
+     * <p>
+     * Elements of the array that fall outside the sub-grid are not modified.
+     * Null data values are given as Float.NaN.
+     *
+     * @param row the grid row index for the starting row of the block
+     * @param column the grid column index for the starting column of the block
+     * @param nRows the number of rows in the block to be retrieved
+     * @param nColumns the number of columns in the block to be retrieved
+     * @param block an array large enough to store the block
+     * @param offset the position in the array for the first value
+     * @param stride the distance in the array from the start of one row
+     * of the block to the next, must be at least nColumns.
+     * @throws IOException in the event of an I/O error or if the array
+     * is not large enough to store the block.
+     */
+    public void readBlock(
+        int row, int column, int nRows, int nColumns,
+        float[] block, int offset, int stride)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        checkBlockArray(block == null ? -1 : block.length,
+            nRows, nColumns, offset, stride);
+        readBlock(row, column, nRows, nColumns, block, null, offset, stride);
+    }
+
+    /**
+     * Reads a block (sub-grid) of integer values from the G93 file.
+     * The organization of the result is the same as for readBlock().
+     * For files using the integer data type, the values are given as
+     * stored in the file without conversion to floating point.
+     * For files using the float data type, the values are converted
+     * using the scale and offset from the file specification, as in
+     * readIntValue(). Null data values are given as INT4_NULL_CODE.
+     *
+     * @param row the grid row index for the starting row of the block
+     * @param column the grid column index for the starting column of the block
+     * @param nRows the number of rows in the block to be retrieved
+     * @param nColumns the number of columns in the block to be retrieved
+     * @return if successful, a valid array of size nRow*nColumns*dimension.
+     * @throws IOException in the event of an I/O error.
+     */
+    public int[] readBlockInt(int row, int column, int nRows, int nColumns)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        int[] block = new int[nRows * nColumns * spec.dimension];
+        readBlock(row, column, nRows, nColumns, null, block, 0, nColumns);
+        return block;
+    }
+
+    /**
+     * Reads a block (sub-grid) of integer values from the G93 file into
+     * an array supplied by the calling application. The values are given
+     * as described for readBlockInt() and are organized as described
+     * for the floating-point variation of this method.
+     *
+     * @param row the grid row index for the starting row of the block
+     * @param column the grid column index for the starting column of the block
+     * @param nRows the number of rows in the block to be retrieved
+     * @param nColumns the number of columns in the block to be retrieved
+     * @param block an array large enough to store the block
+     * @param offset the position in the array for the first value
+     * @param stride the distance in the array from the start of one row
+     * of the block to the next, must be at least nColumns.
+     * @throws IOException in the event of an I/O error or if the array
+     * is not large enough to store the block.
+     */
+    public void readBlockInt(
+        int row, int column, int nRows, int nColumns,
+        int[] block, int offset, int stride)
+        throws IOException {
+        checkBlockDimensions(nRows, nColumns);
+        checkBlockArray(block == null ? -1 : block.length,
+            nRows, nColumns, offset, stride);
+        readBlock(row, column, nRows, nColumns, null, block, offset, stride);
+    }
+
+    private void checkBlockDimensions(int nRows, int nColumns) throws IOException {
+        if (this.isClosed) {
+            throw new IOException("Raster file is closed");
+        }
+        if (nRows < 1 || nColumns < 1) {
+            throw new IOException(
+                "Invalid dimensions: nRows=" + nRows + ", nColumns=" + nColumns);
+        }
+    }
+
+    private void checkBlockArray(
+        int length, int nRows, int nColumns, int offset, int stride)
+        throws IOException {
+        if (length < 0) {
+            throw new IOException("Null array for block");
+        }
+        if (offset < 0 || stride < nColumns) {
+            throw new IOException(
+                "Invalid array layout: offset=" + offset + ", stride=" + stride);
+        }
+        long nRequired = offset
+            + ((long) nRows * spec.dimension - 1) * stride + nColumns;
+        if (nRequired > length) {
+            throw new IOException("Array of length " + length
+                + " is too small for block, " + nRequired + " required");
+        }
+    }
+
+    /**
+     * Reads a block of values into either a floating-point or an integer
+     * array.  Exactly one of the arrays is expected to be non-null.
+     * The dimensions and array layout are assumed to have been checked
+     * by the calling method.
+     */
+    private void readBlock(
+        int row, int column, int nRows, int nColumns,
+        float[] fBlock, int[] iBlock, int offset, int stride)
         throws IOException {
         // The indexing used here is a little complicated. To keep it managable,
         // this code adheres to a variable naming convention defined as follows:
@@ -1066,28 +2888,41 @@ public class G93File implements Closeable, AutoCloseable {
         //   For example to find the row of tiles associated with
         //   a particular grid coordinate:  tileRow0 = gr0/spec.nRowsInTile, etc.
 
-        if (this.isClosed) {
-            throw new IOException("Raster file is closed");
-        }
-        if (nRows < 1 || nColumns < 1) {
-            throw new IOException(
-                "Invalid dimensions: nRows=" + nRows + ", nColumns=" + nColumns);
-        }
         // bounds checking for resulting grid row and column computations
-        // are performed in the accessElements.computeElements() method
+        // are performed in the checkRowAndColumn() method
         // which will throw an exception if bounds are violated.
-        int nValuesInSubBlock = nRows * nColumns;
-        float[] block = new float[nValuesInSubBlock * spec.dimension];
+        int layerStride = nRows * stride;
         int gr0 = row;
         int gc0 = column;
         int gr1 = row + nRows - 1;
         int gc1 = column + nColumns - 1;
-        accessElements.computeElements(gr0, gc0);
-        int tileRow0 = accessElements.tileRow;
-        int tileCol0 = accessElements.tileCol;
-        accessElements.computeElements(gr1, gc1);
-        int tileRow1 = accessElements.tileRow;
-        int tileCol1 = accessElements.tileCol;
+        checkRowAndColumn(gr0, gc0);
+        checkRowAndColumn(gr1, gc1);
+        int tileRow0 = gr0 / spec.nRowsInTile;
+        int tileCol0 = gc0 / spec.nColsInTile;
+        int tileRow1 = gr1 / spec.nRowsInTile;
+        int tileCol1 = gc1 / spec.nColsInTile;
+
+        // When the block spans multiple tiles and the file uses its own
+        // cache, the tiles are loaded in batches sorted by file position
+        // rather than one at a time in grid order.  The batches are
+        // limited in size so that loading a batch does not displace
+        // tiles that have not yet been used.
+        int[] tileIndices = null;
+        int batchSize = 0;
+        int nTilesInBlock = (tileRow1 - tileRow0 + 1) * (tileCol1 - tileCol0 + 1);
+        if (nTilesInBlock > 1
+            && sharedTileCacheClient == null && sharedTileCache == null) {
+            tileIndices = new int[nTilesInBlock];
+            int k = 0;
+            for (int tileRow = tileRow0; tileRow <= tileRow1; tileRow++) {
+                for (int tileCol = tileCol0; tileCol <= tileCol1; tileCol++) {
+                    tileIndices[k++] = tileRow * spec.nColsOfTiles + tileCol;
+                }
+            }
+            batchSize = tileCache.getBatchSizeInTiles();
+        }
+        int iTile = 0;
 
         for (int tileRow = tileRow0; tileRow <= tileRow1; tileRow++) {
             // find the tile row limits tr0 and tr1 for this row of tiles.
@@ -1120,57 +2955,82 @@ public class G93File implements Closeable, AutoCloseable {
                 int tc0 = gtc0 - gtColOffset;
                 int tc1 = gtc1 - gtColOffset;
 
+                if (tileIndices != null && iTile % batchSize == 0) {
+                    tileCache.loadTiles(tileIndices, iTile,
+                        Math.min(batchSize, nTilesInBlock - iTile));
+                }
+                iTile++;
+
                 int tileIndex = tileRow * spec.nColsOfTiles + tileCol;
-                RasterTile tile = tileCache.getTile(tileIndex);
-                if (tile instanceof RasterTileFloat) {
-                    for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
-                        float[] v = ((RasterTileFloat) tile).valuesArray[iDimension];
-                        for (int tr = tr0; tr <= tr1; tr++) {
-                            int br = tr + gtRowOffset - gr0;
-                            int bc = tc0 + gtColOffset - gc0;
-                            int bIndex = br * nColumns + bc + iDimension * nValuesInSubBlock;
-                            int tIndex = tr * spec.nColsInTile;
-                            for (int tc = tc0; tc <= tc1; tc++) {
-                                block[bIndex] = v[tIndex + tc];
-                                bIndex++;
-                            }
-                        }
-                    }
-                } else if (tile instanceof RasterTileInt) {
-                    for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
-                        int[] v = ((RasterTileInt) tile).valuesArray[iDimension];
-                        for (int tr = tr0; tr <= tr1; tr++) {
-                            int br = tr + gtRowOffset - gr0;
-                            int bc = tc0 + gtColOffset - gc0;
-                            int bIndex = br * nColumns + bc + iDimension * nValuesInSubBlock;
-                            int tIndex = tr * spec.nColsInTile;
-                            for (int tc = tc0; tc <= tc1; tc++) {
-                                int s = v[tIndex + tc];
-                                if (s == INT4_NULL_CODE) {
-                                    block[bIndex] = Float.NaN;
-                                } else {
-                                    block[bIndex] = s / tile.valueScale + tile.valueOffset;
-                                }
-                                bIndex++;
-                            }
+                RasterTile tile = getTileForReading(tileIndex);
+                for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
+                    for (int tr = tr0; tr <= tr1; tr++) {
+                        int br = tr + gtRowOffset - gr0;
+                        int bc = tc0 + gtColOffset - gc0;
+                        int bIndex = offset + br * stride + bc + iDimension * layerStride;
+                        int tIndex = tr * spec.nColsInTile;
+                        if (fBlock != null) {
+                            copyRow(tile, iDimension, tIndex + tc0, tIndex + tc1,
+                                fBlock, bIndex);
+                        } else {
+                            copyRow(tile, iDimension, tIndex + tc0, tIndex + tc1,
+                                iBlock, bIndex);
                         }
                     }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a range of values from one row of a tile to a floating-point
+     * block, converting integer values if necessary.
+     */
+    static void copyRow(
+        RasterTile tile, int iDimension, int t0, int t1, float[] block, int bIndex) {
+        if (tile instanceof RasterTileFloat) {
+            float[] v = ((RasterTileFloat) tile).valuesArray[iDimension];
+            System.arraycopy(v, t0, block, bIndex, t1 - t0 + 1);
+        } else if (tile instanceof RasterTileInt) {
+            int[] v = ((RasterTileInt) tile).valuesArray[iDimension];
+            for (int t = t0; t <= t1; t++) {
+                int s = v[t];
+                if (s == INT4_NULL_CODE) {
+                    block[bIndex] = Float.NaN;
                 } else {
-                    for (int iDimension = 0; iDimension < spec.dimension; iDimension++) {
-                        for (int tr = tr0; tr <= tr1; tr++) {
-                            int br = tr + gtRowOffset - gr0;
-                            int bc = tc0 + gtColOffset - gc0;
-                            int bIndex = br * nColumns + bc + iDimension * nValuesInSubBlock;
-                            for (int tc = tc0; tc <= tc1; tc++) {
-                                block[bIndex] = Float.NaN;
-                                bIndex++;
-                            }
-                        }
-                    }
+                    block[bIndex] = s / tile.valueScale + tile.valueOffset;
                 }
+                bIndex++;
             }
+        } else {
+            Arrays.fill(block, bIndex, bIndex + t1 - t0 + 1, Float.NaN);
+        }
+    }
+
+    /**
+     * Copies a range of values from one row of a tile to an integer
+     * block, converting floating-point values if necessary.
+     */
+    static void copyRow(
+        RasterTile tile, int iDimension, int t0, int t1, int[] block, int bIndex) {
+        if (tile instanceof RasterTileInt) {
+            int[] v = ((RasterTileInt) tile).valuesArray[iDimension];
+            System.arraycopy(v, t0, block, bIndex, t1 - t0 + 1);
+        } else if (tile instanceof RasterTileFloat) {
+            float[] v = ((RasterTileFloat) tile).valuesArray[iDimension];
+            for (int t = t0; t <= t1; t++) {
+                float f = v[t];
+                if (Float.isNaN(f)) {
+                    block[bIndex] = INT4_NULL_CODE;
+                } else {
+                    block[bIndex]
+                        = (int) Math.floor((f - tile.valueOffset) * tile.valueScale + 0.5);
+                }
+                bIndex++;
+            }
+        } else {
+            Arrays.fill(block, bIndex, bIndex + t1 - t0 + 1, INT4_NULL_CODE);
         }
-        return block;
     }
 
 }
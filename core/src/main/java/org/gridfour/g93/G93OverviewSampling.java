@@ -0,0 +1,70 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Specifies the method used to compute the values for the overview levels
+ * of a G93File. Each cell in an overview level covers a 2-by-2 block of
+ * cells in the level below it.
+ */
+public enum G93OverviewSampling {
+    /**
+     * The value of a cell is the average of the non-null values in the
+     * block of cells that it covers, or a null if all of them are null.
+     * Suitable for continuous data such as elevation.
+     */
+    AVERAGE(0),
+    /**
+     * The value of a cell is taken from the first cell of the block
+     * that it covers, so an overview level is a decimated copy of the
+     * full-resolution grid. Suitable for data such as classification
+     * codes for which an average is not meaningful.
+     */
+    NEAREST(1);
+
+    final int codeValue;
+
+    G93OverviewSampling(int codeValue) {
+        this.codeValue = codeValue;
+    }
+
+    static G93OverviewSampling valueOf(int codeValue) {
+        return codeValue == 1 ? NEAREST : AVERAGE;
+    }
+}
@@ -0,0 +1,328 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides a tile cache that may be shared by many G93File instances.
+ * When an application accesses a large number of files, assigning each
+ * file its own cache divides the available memory statically regardless
+ * of which files are in active use. A shared cache manages the tiles from
+ * all participating files using a single memory budget, so the files that
+ * are accessed most frequently naturally receive the largest share
+ * of the memory.
+ * <p>
+ * Tiles are identified by the G93File instance that registered them and
+ * their tile index. Tiles are not shared between instances, even those
+ * opened on the same file, because copies of a file retain its UUID
+ * and may have diverged. Only files opened for read-only access may
+ * participate in a shared cache. When a participating file is closed,
+ * its tiles are removed from the cache.
+ * <p>
+ * This class is thread safe. Look-ups are performed against a concurrent
+ * hash map and tile replacement follows the CLOCK algorithm, as described
+ * for files opened for shared access.
+ */
+public class G93SharedTileCache {
+
+    private final ConcurrentHashMap<TileKey, RasterTile> tileMap
+        = new ConcurrentHashMap<>();
+
+    // The CLOCK policy selects tiles for removal from the cache.
+    // Except for tile accesses, the policy, the keys of the tiles it
+    // holds, and the byte count are guarded by the policy's monitor.
+    private final TileReplacementPolicyClock clock
+        = new TileReplacementPolicyClock();
+    private final IdentityHashMap<RasterTile, TileKey> tileKeys
+        = new IdentityHashMap<>();
+    private long nBytesInCache;
+    private volatile long sizeInBytes;
+
+    // Counters for gathering access statistics
+    private final LongAdder nTileGets = new LongAdder();
+    private final LongAdder nTileRead = new LongAdder();
+    private final LongAdder nTilesDiscarded = new LongAdder();
+
+    /**
+     * Identifies a tile by the client that registered its file
+     * and its index.
+     */
+    private static final class TileKey {
+
+        final Client client;
+        final int tileIndex;
+
+        TileKey(Client client, int tileIndex) {
+            this.client = client;
+            this.tileIndex = tileIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(client) * 31 + tileIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof TileKey) {
+                TileKey k = (TileKey) obj;
+                return tileIndex == k.tileIndex && client == k.client;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Provides the resources needed to load tiles from a participating file.
+     */
+    static class Client {
+
+        private final G93SharedTileCache cache;
+        private final G93FileSpecification spec;
+        private final G93TileStore tileStore;
+        private final ThreadLocal<TileReadContext> readContext;
+
+        private Client(
+            G93SharedTileCache cache,
+            G93FileSpecification spec,
+            G93TileStore tileStore,
+            final CodecMaster codecMaster) {
+            this.cache = cache;
+            this.spec = spec;
+            this.tileStore = tileStore;
+            readContext = new ThreadLocal<TileReadContext>() {
+                @Override
+                protected TileReadContext initialValue() {
+                    return new TileReadContext(codecMaster.copy());
+                }
+            };
+        }
+
+        RasterTile getTile(int tileIndex) throws IOException {
+            return cache.getTile(this, tileIndex);
+        }
+
+        void release() {
+            cache.removeTiles(this);
+        }
+
+        G93SharedTileCache getCache() {
+            return cache;
+        }
+    }
+
+    /**
+     * Constructs a cache with the specified memory budget.
+     *
+     * @param sizeInBytes the maximum number of bytes of memory to be used
+     * by tiles held in the cache.
+     * @throws IllegalArgumentException if the size is less than one.
+     */
+    public G93SharedTileCache(long sizeInBytes) {
+        if (sizeInBytes <= 0) {
+            throw new IllegalArgumentException(
+                "Cache size less than one byte is not supported");
+        }
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Sets the maximum number of bytes of memory to be used by tiles
+     * held in the cache.
+     *
+     * @param sizeInBytes a positive value
+     * @throws IllegalArgumentException if the size is less than one.
+     */
+    public void setSizeInBytes(long sizeInBytes) {
+        if (sizeInBytes <= 0) {
+            throw new IllegalArgumentException(
+                "Cache size less than one byte is not supported");
+        }
+        this.sizeInBytes = sizeInBytes;
+        synchronized (clock) {
+            trimToSize();
+        }
+    }
+
+    /**
+     * Gets the maximum number of bytes of memory to be used by tiles
+     * held in the cache.
+     *
+     * @return a positive value
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Gets an estimate of the number of bytes of memory currently used
+     * by the tiles held in the cache.
+     *
+     * @return a positive value, or zero if the cache is empty.
+     */
+    public long getBytesInUse() {
+        synchronized (clock) {
+            return nBytesInCache;
+        }
+    }
+
+    /**
+     * Registers a file with the cache.
+     *
+     * @param spec the specification for the file
+     * @param tileStore the tile store for the file; it must have its
+     * concurrent read channel opened.
+     * @param codecMaster the codec for the file, used as a model for
+     * the codec instances used by the accessing threads.
+     * @return a valid instance.
+     */
+    Client register(
+        G93FileSpecification spec,
+        G93TileStore tileStore,
+        CodecMaster codecMaster) {
+        return new Client(this, spec, tileStore, codecMaster);
+    }
+
+    private RasterTile getTile(Client client, int tileIndex) throws IOException {
+        nTileGets.increment();
+        TileKey key = new TileKey(client, tileIndex);
+        RasterTile tile = tileMap.get(key);
+        if (tile != null) {
+            clock.tileAccessed(tile);
+            return tile;
+        }
+
+        if (!client.tileStore.doesTileExist(tileIndex)) {
+            return null;
+        }
+
+        // the tile is read outside of any locks.  if two threads read
+        // the same tile at the same time, the first one to be added
+        // to the map is retained and the other is discarded.
+        tile = RasterTile.allocate(client.spec, tileIndex, false);
+        client.tileStore.readTile(tile, client.readContext.get());
+        nTileRead.increment();
+        synchronized (clock) {
+            RasterTile prior = tileMap.putIfAbsent(key, tile);
+            if (prior != null) {
+                return prior;
+            }
+            clock.tileAdded(tile);
+            tileKeys.put(tile, key);
+            nBytesInCache += tile.getMemoryFootprint();
+            trimToSize();
+        }
+        return tile;
+    }
+
+    /**
+     * Removes tiles until the cache conforms to its memory budget.
+     * Must be called while holding the clock monitor.
+     */
+    private void trimToSize() {
+        while (clock.size() > 1 && nBytesInCache > sizeInBytes) {
+            discard(clock.selectTileForRemoval());
+            nTilesDiscarded.increment();
+        }
+    }
+
+    /**
+     * Removes a tile that is no longer held by the policy from the map
+     * and releases its memory. Must be called while holding the
+     * clock monitor.
+     */
+    private void discard(RasterTile tile) {
+        tileMap.remove(tileKeys.remove(tile));
+        nBytesInCache -= tile.getMemoryFootprint();
+    }
+
+    /**
+     * Removes all tiles loaded by the specified client.
+     *
+     * @param client a valid instance
+     */
+    private void removeTiles(Client client) {
+        synchronized (clock) {
+            Iterator<RasterTile> iterator = clock.iterator();
+            while (iterator.hasNext()) {
+                RasterTile tile = iterator.next();
+                if (tileKeys.get(tile).client == client) {
+                    iterator.remove();
+                    discard(tile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints a summary of the state of the cache and access statistics.
+     *
+     * @param ps a valid print stream
+     */
+    public void summarize(PrintStream ps) {
+        long nGets = nTileGets.sum();
+        long nRead = nTileRead.sum();
+        long nFoundInCache = nGets - nRead;
+        if (nFoundInCache < 0) {
+            nFoundInCache = 0;
+        }
+        double percentInCache = 0;
+        if (nGets > 0) {
+            percentInCache = 100.0 * ((double) nFoundInCache / (double) nGets);
+            // make sure it never says 100 percent.
+            if (percentInCache > 99.91) {
+                percentInCache = 99.91;
+            }
+        }
+        ps.format("Tile Cache (shared by files)%n");
+        ps.format("   Tiles In Map:              %12d%n", tileMap.size());
+        ps.format("   Bytes In Cache:            %12d%n", getBytesInUse());
+        ps.format("   Byte Limit:                %12d%n", sizeInBytes);
+        ps.format("   Tiles Fetched:             %12d%n", nGets);
+        ps.format("   Tiles Fetched from Cache:  %12d (%4.1f%%)%n", nFoundInCache, percentInCache);
+        ps.format("   Tiles Read:                %12d%n", nRead);
+        ps.format("   Tiles Dropped From Cache:  %12d%n", nTilesDiscarded.sum());
+    }
+}
@@ -0,0 +1,364 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.util.Arrays;
+import org.gridfour.util.KahanSummation;
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+
+/**
+ * Provides summary statistics and an optional histogram for the values
+ * in a G93 file or a rectangular region within it. Instances are
+ * produced by G93File.computeStatistics().
+ * <p>
+ * The mean and standard deviation are accumulated using Welford's method,
+ * which tracks deviations from a running mean rather than a sum of squares,
+ * so the results remain accurate for grids containing billions of cells
+ * even when the spread of the values is small relative to their magnitude.
+ * Partial results computed by separate threads are combined using the
+ * pairwise update of Chan, Golub, and LeVeque. The sum is accumulated
+ * using Kahan's algorithm.
+ */
+public class G93Statistics {
+
+    private long nCells;
+    private long nValues;
+    private double minValue = Double.POSITIVE_INFINITY;
+    private double maxValue = Double.NEGATIVE_INFINITY;
+    private final KahanSummation sum = new KahanSummation();
+    // running mean and sum of squared deviations from the mean (Welford)
+    private double mean;
+    private double m2;
+
+    private final double histogramMin;
+    private final double histogramMax;
+    private final double binScale;
+    private final long[] histogram;
+    private long nBelowHistogram;
+    private long nAboveHistogram;
+
+    /**
+     * Constructs an instance with an optional histogram.
+     *
+     * @param histogramMin the minimum value for the histogram
+     * @param histogramMax the maximum value for the histogram
+     * @param nBins the number of bins in the histogram, or zero if no
+     * histogram is to be computed.
+     */
+    G93Statistics(double histogramMin, double histogramMax, int nBins) {
+        this.histogramMin = histogramMin;
+        this.histogramMax = histogramMax;
+        histogram = new long[nBins];
+        if (nBins > 0) {
+            binScale = nBins / (histogramMax - histogramMin);
+        } else {
+            binScale = 0;
+        }
+    }
+
+    /**
+     * Adds the values from the portion of a tile that lies within
+     * a rectangular region of the grid.
+     *
+     * @param tile a valid tile
+     * @param layer the layer (dimension) of the tile to be used
+     * @param gr0 the first grid row of the region
+     * @param gr1 the last grid row of the region
+     * @param gc0 the first grid column of the region
+     * @param gc1 the last grid column of the region
+     */
+    void addTile(RasterTile tile, int layer, int gr0, int gr1, int gc0, int gc1) {
+        int gtRowOffset = tile.tileRow * tile.nRows;
+        int gtColOffset = tile.tileCol * tile.nCols;
+        int tr0 = Math.max(gr0, gtRowOffset) - gtRowOffset;
+        int tr1 = Math.min(gr1, gtRowOffset + tile.nRows - 1) - gtRowOffset;
+        int tc0 = Math.max(gc0, gtColOffset) - gtColOffset;
+        int tc1 = Math.min(gc1, gtColOffset + tile.nCols - 1) - gtColOffset;
+        int nColsInTile = tile.nCols;
+        if (tile instanceof RasterTileInt) {
+            int[] v = ((RasterTileInt) tile).valuesArray[layer];
+            float valueScale = tile.valueScale;
+            float valueOffset = tile.valueOffset;
+            for (int tr = tr0; tr <= tr1; tr++) {
+                int index = tr * nColsInTile;
+                for (int tc = tc0; tc <= tc1; tc++) {
+                    int s = v[index + tc];
+                    if (s != INT4_NULL_CODE) {
+                        addValue(s / valueScale + valueOffset);
+                    }
+                }
+            }
+        } else {
+            float[] v = ((RasterTileFloat) tile).valuesArray[layer];
+            for (int tr = tr0; tr <= tr1; tr++) {
+                int index = tr * nColsInTile;
+                for (int tc = tc0; tc <= tc1; tc++) {
+                    float f = v[index + tc];
+                    if (!Float.isNaN(f)) {
+                        addValue(f);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a single valid value to the statistics.
+     *
+     * @param value a valid, non-null value
+     */
+    void addValue(double value) {
+        nValues++;
+        if (value < minValue) {
+            minValue = value;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+        }
+        sum.add(value);
+        double delta = value - mean;
+        mean += delta / nValues;
+        m2 += delta * (value - mean);
+        if (histogram.length > 0) {
+            if (value < histogramMin) {
+                nBelowHistogram++;
+            } else if (value > histogramMax) {
+                nAboveHistogram++;
+            } else {
+                int index = (int) ((value - histogramMin) * binScale);
+                if (index >= histogram.length) {
+                    // the value is equal to the histogram maximum
+                    index = histogram.length - 1;
+                }
+                histogram[index]++;
+            }
+        }
+    }
+
+    /**
+     * Combines the results from another instance with this instance.
+     * The other instance is expected to have been constructed using the
+     * same histogram specifications.
+     *
+     * @param other a valid instance
+     */
+    void merge(G93Statistics other) {
+        if (other.nValues > 0) {
+            if (nValues == 0) {
+                mean = other.mean;
+                m2 = other.m2;
+            } else {
+                double nA = nValues;
+                double nB = other.nValues;
+                double n = nA + nB;
+                double delta = other.mean - mean;
+                mean += delta * nB / n;
+                m2 += other.m2 + delta * delta * nA * nB / n;
+            }
+        }
+        nValues += other.nValues;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+        sum.add(other.sum);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        nBelowHistogram += other.nBelowHistogram;
+        nAboveHistogram += other.nAboveHistogram;
+    }
+
+    /**
+     * Sets the number of cells in the region for which the statistics
+     * were computed.
+     *
+     * @param nCells a positive value
+     */
+    void setCellCount(long nCells) {
+        this.nCells = nCells;
+    }
+
+    /**
+     * Gets the number of cells in the region for which the statistics
+     * were computed, including those containing null values.
+     *
+     * @return a positive value
+     */
+    public long getCellCount() {
+        return nCells;
+    }
+
+    /**
+     * Gets the number of cells containing valid (non-null) values.
+     *
+     * @return a value of zero or greater
+     */
+    public long getCount() {
+        return nValues;
+    }
+
+    /**
+     * Gets the number of cells containing null values, including those
+     * in tiles that are not populated.
+     *
+     * @return a value of zero or greater
+     */
+    public long getNullCount() {
+        return nCells - nValues;
+    }
+
+    /**
+     * Gets the minimum value.
+     *
+     * @return a valid value, or NaN if there were no valid values.
+     */
+    public double getMinimum() {
+        return nValues == 0 ? Double.NaN : minValue;
+    }
+
+    /**
+     * Gets the maximum value.
+     *
+     * @return a valid value, or NaN if there were no valid values.
+     */
+    public double getMaximum() {
+        return nValues == 0 ? Double.NaN : maxValue;
+    }
+
+    /**
+     * Gets the sum of the valid values.
+     *
+     * @return a valid value, or zero if there were no valid values.
+     */
+    public double getSum() {
+        return sum.getSum();
+    }
+
+    /**
+     * Gets the mean of the valid values.
+     *
+     * @return a valid value, or NaN if there were no valid values.
+     */
+    public double getMean() {
+        return nValues == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Gets the population standard deviation of the valid values.
+     *
+     * @return a valid value, or NaN if there were no valid values.
+     */
+    public double getStandardDeviation() {
+        if (nValues == 0) {
+            return Double.NaN;
+        }
+        double variance = m2 / nValues;
+        return variance > 0 ? Math.sqrt(variance) : 0;
+    }
+
+    /**
+     * Indicates whether a histogram was computed.
+     *
+     * @return true if a histogram is available; otherwise, false.
+     */
+    public boolean isHistogramAvailable() {
+        return histogram.length > 0;
+    }
+
+    /**
+     * Gets the counts for the bins of the histogram. Bin i covers the
+     * values from histogramMin + i*binWidth up to, but not including,
+     * the start of the next bin. The last bin also includes values
+     * equal to the histogram maximum.
+     *
+     * @return a valid, potentially zero-length, array
+     */
+    public long[] getHistogram() {
+        return Arrays.copyOf(histogram, histogram.length);
+    }
+
+    /**
+     * Gets the minimum value covered by the histogram.
+     *
+     * @return a valid value
+     */
+    public double getHistogramMinimum() {
+        return histogramMin;
+    }
+
+    /**
+     * Gets the maximum value covered by the histogram.
+     *
+     * @return a valid value
+     */
+    public double getHistogramMaximum() {
+        return histogramMax;
+    }
+
+    /**
+     * Gets the width of the histogram bins.
+     *
+     * @return a positive value, or zero if no histogram was computed.
+     */
+    public double getHistogramBinWidth() {
+        if (histogram.length == 0) {
+            return 0;
+        }
+        return (histogramMax - histogramMin) / histogram.length;
+    }
+
+    /**
+     * Gets the number of valid values that were less than the
+     * histogram minimum.
+     *
+     * @return a value of zero or greater
+     */
+    public long getCountBelowHistogram() {
+        return nBelowHistogram;
+    }
+
+    /**
+     * Gets the number of valid values that were greater than the
+     * histogram maximum.
+     *
+     * @return a value of zero or greater
+     */
+    public long getCountAboveHistogram() {
+        return nAboveHistogram;
+    }
+}
@@ -0,0 +1,112 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Identifies a tile within the grid of a G93 file, giving both its
+ * position in the grid of tiles and the grid row and column of its
+ * first cell.
+ */
+public class G93TileCoordinates {
+
+    private final int tileIndex;
+    private final int tileRow;
+    private final int tileColumn;
+    private final int gridRow;
+    private final int gridColumn;
+
+    G93TileCoordinates(G93FileSpecification spec, int tileIndex) {
+        this.tileIndex = tileIndex;
+        this.tileRow = tileIndex / spec.nColsOfTiles;
+        this.tileColumn = tileIndex - tileRow * spec.nColsOfTiles;
+        this.gridRow = tileRow * spec.nRowsInTile;
+        this.gridColumn = tileColumn * spec.nColsInTile;
+    }
+
+    /**
+     * Gets the index of the tile, computed as
+     * tileRow*nColumnsOfTiles + tileColumn.
+     *
+     * @return a positive integer
+     */
+    public int getTileIndex() {
+        return tileIndex;
+    }
+
+    /**
+     * Gets the row of the tile within the grid of tiles.
+     *
+     * @return a positive integer
+     */
+    public int getTileRow() {
+        return tileRow;
+    }
+
+    /**
+     * Gets the column of the tile within the grid of tiles.
+     *
+     * @return a positive integer
+     */
+    public int getTileColumn() {
+        return tileColumn;
+    }
+
+    /**
+     * Gets the grid row of the first cell in the tile.
+     *
+     * @return a positive integer
+     */
+    public int getGridRow() {
+        return gridRow;
+    }
+
+    /**
+     * Gets the grid column of the first cell in the tile.
+     *
+     * @return a positive integer
+     */
+    public int getGridColumn() {
+        return gridColumn;
+    }
+
+    @Override
+    public String toString() {
+        return "tile " + tileIndex + " (" + tileRow + ", " + tileColumn + ")";
+    }
+}
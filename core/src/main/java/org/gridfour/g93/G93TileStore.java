@@ -33,26 +33,36 @@
  * 10/2019  G. Lucas     Created
  *
  * Notes:
- *   At this time, the file space alloc and dealloc has serious shortcomings
- * in handling the case of variable size blocks of file space. Typically,
- * this happens when handling compressed data.  When the file-space
- * management is unable to fullfil an allocation using free-nodes,
- * it leaves behind a small block of unused space. Over time, these
- * can accumulate until the file is mostly unused space.
- *  It appears that some mechanism is needed for consolating sections
- * of free space to create blocks large enough to store data.
+ *   Variable size blocks of file space are produced when handling
+ * compressed data.  Free blocks are managed by the FileSpaceManager class
+ * which selects the best-fitting block for each allocation and merges
+ * adjacent blocks when space is released.  When a released block falls
+ * at the end of the file, the file is truncated.
  * -----------------------------------------------------------------------
  */
 package org.gridfour.g93;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 import org.gridfour.io.BufferedRandomAccessFile;
 
 /**
@@ -61,20 +71,33 @@ import org.gridfour.io.BufferedRandomAccessFile;
  */
 class G93TileStore {
 
-    private static class FreeNode {
-
-        FreeNode next;
-        int blockSize;
-        long filePos;
-
-        FreeNode(long filePos, int blockSize) {
-            this.filePos = filePos;
-            this.blockSize = blockSize;
-        }
-    }
-
     private static final int RECORD_HEADER_SIZE = 12;  // 3 4-byte integers
     private static final int MIN_FREE_BLOCK_SIZE = 1024;
+    // the header for a non-tile record includes 4 spare bytes so that
+    // its content starts on a multiple of 8.
+    private static final int NON_TILE_RECORD_HEADER_SIZE = RECORD_HEADER_SIZE + 4;
+    private static final int COMPACTION_BUFFER_SIZE = 64 * 1024;
+    private static final int BULK_LOAD_BUFFER_SIZE = 1024 * 1024;
+    // Limits for combining tile records into a single read operation.
+    // Records are combined if the gap between them is no larger than
+    // MAX_BATCH_GAP and the total size of the read does not exceed
+    // MAX_BATCH_READ_SIZE.
+    private static final int MAX_BATCH_GAP = 64 * 1024;
+    private static final int MAX_BATCH_READ_SIZE = 8 * 1024 * 1024;
+
+    // The tile directory is a non-tile record stored at the end of the
+    // file.  It ends with a trailer giving its own file position, the
+    // modification time of the file when it was written, and a stamp
+    // identifying it as a directory.
+    private static final int TILE_DIRECTORY_RECORD_CODE = 2;
+    private static final int TILE_DIRECTORY_TRAILER_SIZE = 24;
+    private static final String TILE_DIRECTORY_STAMP = "G93TLDIR";
+
+    // The tiles for the overview levels are stored as non-tile records.
+    // The content starts with the level, the tile index within the level,
+    // a compression flag, and 4 spare bytes.
+    static final int OVERVIEW_TILE_RECORD_CODE = 3;
+    private static final int OVERVIEW_TILE_HEADER_SIZE = 16;
 
     private final G93FileSpecification spec;
     private final CodecMaster codecMaster;
@@ -83,14 +106,49 @@ class G93TileStore {
     private final int[] tilePositions;
     private final int standardTileSizeInBytes;
 
-    private FreeNode freeList;
+    private final FileSpaceManager freeSpace = new FileSpaceManager();
+
+    // Elements for bulk loading.  When bulk loading is enabled, tiles
+    // are always appended to the end of the file.  Prior copies of tiles
+    // that are written more than once are abandoned and are removed
+    // by compaction.
+    private boolean bulkLoadEnabled;
+    private int nAbandonedRecords;
+
+    // the file position of the tile directory record, or zero if none
+    private long tileDirectoryPos;
+    private String tilePositionSource = "new file";
+
+    // Elements for concurrent read access.  The channel supports
+    // position-based reads which do not depend on a shared file pointer
+    private FileChannel readChannel;
+    private long readChannelSize;
+
+    // Elements for memory-mapped read access.  When the mapped segments
+    // are established, they supersede the read channel and the
+    // BufferedRandomAccessFile for reading tiles.
+    private volatile MappedFileSegments mappedSegments;
+    private TileReadContext mappedReadContext;
 
     int nTileReads;
     int nTileWrites;
+    long nAllocationsFromFreeSpace;
+    long nAllocationsAtEndOfFile;
+    long nTruncations;
+    long nBytesTruncated;
 
     LinkedHashMap<VariableLengthRecord, VariableLengthRecord> vlrRecordMap
         = new LinkedHashMap<>();
 
+    // summary statistics for each tile, updated as tiles are stored
+    final TileSummaryTable tileSummaries;
+
+    // the overview levels, or a null if the file has none.  Overview
+    // records found by a file scan are retained until it is known
+    // whether they are referenced by the overview tables.
+    OverviewPyramid overviews;
+    final List<Long> scannedOverviewRecords = new ArrayList<>();
+
     G93TileStore(
         G93FileSpecification spec,
         CodecMaster rasterCodec,
@@ -102,6 +160,7 @@ class G93TileStore {
         this.basePosition = filePosTileStore;
         int nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
         tilePositions = new int[nTiles];
+        tileSummaries = new TileSummaryTable(nTiles);
         standardTileSizeInBytes = spec.getStandardTileSizeInBytes();
     }
 
@@ -139,76 +198,36 @@ class G93TileStore {
 
     long fileSpaceAlloc(int sizeToStore) throws IOException {
         assert multipleOf8(sizeToStore) == sizeToStore : "allocate invalid size " + sizeToStore;
-        int minSizeForSplit = sizeToStore + MIN_FREE_BLOCK_SIZE;
-        //   We look for a free node that is either the perfect size to store
+        //   We look for a free block that is either the perfect size to store
         // this data or sufficiently large to split.  We do not want too many
         // tiny-sized free blocks to accumulate.  So a block that is only
-        // a little bigger than our target will not work.
-        //   We search the list for a first found strategy.  We don't look for
-        // the best fit, just the first feasible fit.
-        FreeNode prior = null;
-        FreeNode node = freeList;
-        while (node != null) {
-            if (node.blockSize == sizeToStore || node.blockSize >= minSizeForSplit) {
-                break;
-            }
-            prior = node;
-            node = node.next;
-        }
-
-        if (node == null) {
-//      long fileSize = braf.getFileSize();
-//      braf.seek(fileSize);
-//      byte []zeroes = new byte[sizeToStore];
-//      braf.writeFully(zeroes, 0, sizeToStore);
-//      braf.seek(fileSize);
-//      return fileSize;
+        // a little bigger than our target will not work.  Of the blocks
+        // that are feasible, the free-space manager selects the smallest.
+        FileSpaceManager.FreeBlock block
+            = freeSpace.allocate(sizeToStore, MIN_FREE_BLOCK_SIZE);
+        if (block == null) {
             assert (braf.getFileSize() & 0x07L) == 0 : "File size not multiple of 8";
+            nAllocationsAtEndOfFile++;
             return braf.getFileSize();
         }
-
-        // Remove the node from the free list
-        if (prior == null) {
-            freeList = node.next;
-        } else {
-            prior.next = node.next;
-        }
-
-        node.next = null; // pro forma
-        long posToStore = node.filePos;
+        nAllocationsFromFreeSpace++;
+        long posToStore = block.filePos;
 
         // check the existing file block and make sure that
         // the data is correct (it should be correct).  If the packing
-        // is sufficiently smaller than the available space, we should be
-        // able to split it.  If we don't have sufficient surplus, we
-        // will record the block on disk to be the size of the original
-        // storage, not the size of the packing.
-        braf.seek(node.filePos);
+        // is sufficiently smaller than the available space, we
+        // split it and return the surplus to the free space.
+        braf.seek(posToStore);
         int foundSize = braf.leReadInt();
         assert foundSize < 0 : "alloc found positive block size in file";
         foundSize = -foundSize;
-        assert foundSize >= sizeToStore : "alloc found insufficient block size";
+        assert foundSize == block.blockSize : "alloc found incorrect block size";
         int surplus = foundSize - sizeToStore;
         if (surplus > 0) {
-            long surplusPos = node.filePos + sizeToStore;
-            FreeNode surplusNode = new FreeNode(surplusPos, surplus);
+            long surplusPos = posToStore + sizeToStore;
             braf.seek(surplusPos);
             braf.leWriteInt(-surplus);
-            prior = null;
-            FreeNode next = freeList;
-            while (next != null) {
-                if (next.filePos > surplusPos) {
-                    break;
-                }
-                prior = next;
-                next = next.next;
-            }
-            if (prior == null) {
-                freeList = surplusNode;
-            } else {
-                prior.next = surplusNode;
-            }
-            surplusNode.next = next;
+            freeSpace.add(surplusPos, surplus);
         }
         braf.seek(posToStore);
         assert (posToStore & 0x07L) == 0 : "Post to store  size not multiple of 8";
@@ -221,71 +240,262 @@ class G93TileStore {
         braf.seek(releasePos);
         int releaseSize = braf.leReadInt();
         assert releaseSize > 0 : "read negative or zero number at tile position";
-        braf.seek(releasePos);
-        braf.leWriteInt(-releaseSize);
-
-        // we will insert the file-space management information for the
-        // existing record located at position filePos into the free list.
-        // the free list is organized in order of file position.  so we must
-        // traverse the list to find the appropriate place for this free node.
-        // when we do, it may turn out that the file-space we are freeing is
-        // adjacent to a previously freed block.  If so, we can merge the two
-        // into a single free node.
-        FreeNode prior = null;
-        FreeNode next = freeList;
-        while (next != null) {
-            if (next.filePos > releasePos) {
-                break;
-            }
-            prior = next;
-            next = next.next;
-        }
-
-        if (prior != null) {
-            // see if we can merge the prior block with the released block.
-            if (prior.filePos + prior.blockSize == releasePos) {
-                prior.blockSize += releaseSize;
-                // extending the prior block may have led to an opportunity to merge
-                // the prior block with the next block
-                if (next != null && prior.filePos + prior.blockSize == next.filePos) {
-                    // merge prior with next, remove next from the free list.
-                    prior.blockSize += next.blockSize;
-                    prior.next = next.next;
-                    next.next = null;
+
+        // when the file space we are freeing is adjacent to previously
+        // freed blocks, the free-space manager merges them into a single block.
+        FileSpaceManager.FreeBlock block
+            = freeSpace.release(releasePos, releaseSize);
+
+        // if the resulting block is at the end of the file, there is
+        // no need to retain it.  The file is truncated instead.
+        if (block.getEndPosition() == braf.getFileSize()) {
+            freeSpace.remove(block);
+            braf.setLength(block.filePos);
+            nTruncations++;
+            nBytesTruncated += block.blockSize;
+            return;
+        }
+
+        braf.seek(block.filePos);
+        braf.leWriteInt(-block.blockSize);
+    }
+
+    /**
+     * A live record in the file, used for tracking the positions of records
+     * during compaction.
+     */
+    private static class CompactionRecord {
+
+        long filePos;
+        final int recordSize;
+        final int tileIndex;
+        final VariableLengthRecord vlr;
+        final OverviewPyramid.Level level;
+
+        CompactionRecord(long filePos, int recordSize, int tileIndex,
+            VariableLengthRecord vlr, OverviewPyramid.Level level) {
+            this.filePos = filePos;
+            this.recordSize = recordSize;
+            this.tileIndex = tileIndex;
+            this.vlr = vlr;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Rewrites the live records in the file so that they are stored
+     * contiguously, variable-length records first, followed by the tiles
+     * in order of tile index and then the tiles for the overview levels.
+     * Records are moved as raw bytes, so compressed tiles are not
+     * re-encoded. When the records are in place, the file is truncated
+     * and the free space is discarded.
+     * <p>
+     * The records are moved in place. When the space at the current write
+     * position is occupied by a record that has not yet been placed, that
+     * record is first moved to the end of the file. Memory use is limited
+     * to a copy buffer and a small descriptor for each record, so the
+     * operation is practical for files much larger than the available memory.
+     * Because records are overwritten during the process, the file will
+     * not be in a valid state if the operation is interrupted.
+     *
+     * @return the number of bytes by which the file size was reduced.
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    long compact() throws IOException {
+        synchronized (braf) {
+            long initialFileSize = braf.getFileSize();
+            TreeMap<Long, CompactionRecord> recordsByPosition = new TreeMap<>();
+            List<CompactionRecord> placementOrder = new ArrayList<>();
+            List<VariableLengthRecord> vlrList = new ArrayList<>(vlrRecordMap.values());
+            Collections.sort(vlrList, new Comparator<VariableLengthRecord>() {
+                @Override
+                public int compare(VariableLengthRecord o1, VariableLengthRecord o2) {
+                    return Long.compare(o1.offset, o2.offset);
+                }
+            });
+            for (VariableLengthRecord vlr : vlrList) {
+                long filePos = vlr.offset - NON_TILE_RECORD_HEADER_SIZE;
+                braf.seek(filePos);
+                int recordSize = braf.leReadInt();
+                CompactionRecord record
+                    = new CompactionRecord(filePos, recordSize, -1, vlr, null);
+                recordsByPosition.put(filePos, record);
+                placementOrder.add(record);
+            }
+            for (int tileIndex = 0; tileIndex < tilePositions.length; tileIndex++) {
+                long filePos = getTilePosition(tileIndex);
+                if (filePos == 0) {
+                    continue;
+                }
+                braf.seek(filePos);
+                int recordSize = braf.leReadInt();
+                assert recordSize > 0 : "invalid record size for tile " + tileIndex;
+                CompactionRecord record
+                    = new CompactionRecord(filePos, recordSize, tileIndex, null, null);
+                recordsByPosition.put(filePos, record);
+                placementOrder.add(record);
+            }
+            if (overviews != null) {
+                for (OverviewPyramid.Level level : overviews.levels) {
+                    for (int tileIndex = 0; tileIndex < level.getTileCount(); tileIndex++) {
+                        long filePos = level.getTilePosition(tileIndex);
+                        if (filePos == 0) {
+                            continue;
+                        }
+                        braf.seek(filePos);
+                        int recordSize = braf.leReadInt();
+                        CompactionRecord record = new CompactionRecord(
+                            filePos, recordSize, tileIndex, null, level);
+                        recordsByPosition.put(filePos, record);
+                        placementOrder.add(record);
+                    }
                 }
-                braf.seek(prior.filePos);
-                braf.leWriteInt(-prior.blockSize);
-                return;
             }
-        }
 
-        // the released block was not merged with the prior, see if it should
-        // be merged with the next
-        if (next != null) {
-            if (releasePos + releaseSize == next.filePos) {
-                // for the merger, we don't create a new node or modify the
-                // links in the list...  we just adjust the file posiiton
-                // of the next node back to the released position
-                next.filePos = releasePos;
-                next.blockSize += releaseSize;
-                braf.seek(next.filePos);
-                braf.leWriteInt(-next.blockSize);
-                return;
+            byte[] buffer = new byte[COMPACTION_BUFFER_SIZE];
+            long writePos = basePosition;
+            for (CompactionRecord record : placementOrder) {
+                if (record.filePos != writePos) {
+                    // any records other than this one that start within the
+                    // target range are moved to the end of the file.
+                    long limit = writePos + record.recordSize;
+                    Map.Entry<Long, CompactionRecord> entry
+                        = recordsByPosition.ceilingEntry(writePos);
+                    while (entry != null && entry.getKey() < limit) {
+                        CompactionRecord occupant = entry.getValue();
+                        if (occupant != record) {
+                            moveRecord(recordsByPosition, occupant, braf.getFileSize(), buffer);
+                        }
+                        entry = recordsByPosition.higherEntry(entry.getKey());
+                    }
+                    moveRecord(recordsByPosition, record, writePos, buffer);
+                }
+                recordsByPosition.remove(writePos);
+                writePos += record.recordSize;
             }
+
+            freeSpace.clear();
+            nAbandonedRecords = 0;
+            braf.setLength(writePos);
+            braf.flush();
+            return initialFileSize - writePos;
         }
+    }
 
-        // if we got here, no mergers were accomplished.  insert a new
-        // node into the list
-        FreeNode node = new FreeNode(releasePos, releaseSize);
-        if (prior == null) {
-            freeList = node;
+    /**
+     * Copies a record to a new position and updates the references to it.
+     * The copy proceeds from the start of the record to its end, so the
+     * new position may overlap the old one provided that it is at a lower
+     * file position.
+     */
+    private void moveRecord(
+        TreeMap<Long, CompactionRecord> recordsByPosition,
+        CompactionRecord record,
+        long targetPos,
+        byte[] buffer) throws IOException {
+        for (int offset = 0; offset < record.recordSize; offset += buffer.length) {
+            int n = Math.min(buffer.length, record.recordSize - offset);
+            braf.seek(record.filePos + offset);
+            braf.readFully(buffer, 0, n);
+            braf.seek(targetPos + offset);
+            braf.writeFully(buffer, 0, n);
+        }
+        recordsByPosition.remove(record.filePos);
+        record.filePos = targetPos;
+        recordsByPosition.put(targetPos, record);
+        if (record.level != null) {
+            record.level.setTilePosition(record.tileIndex, targetPos);
+        } else if (record.vlr == null) {
+            setTilePosition(record.tileIndex, targetPos);
         } else {
-            prior.next = node;
+            record.vlr.offset = targetPos + NON_TILE_RECORD_HEADER_SIZE;
         }
-        node.next = next;
     }
 
+    /**
+     * Gets the codec used by the tile store. Because codecs are not
+     * thread safe, the instance should be copied for use by other threads.
+     *
+     * @return a valid instance
+     */
+    CodecMaster getCodecMaster() {
+        return codecMaster;
+    }
+
+    /**
+     * Stores the tile to the file, performing data compression if it
+     * is enabled.
+     *
+     * @param tile a valid tile
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
     void storeTile(RasterTile tile) throws IOException {
+        storeTile(tile, getCompressedPacking(tile, codecMaster));
+    }
+
+    /**
+     * Gets the compressed packing that will be used to store the tile.
+     * If compression is not enabled, the tile contains no valid data,
+     * or the compressed form would not be smaller than the standard form,
+     * a null is returned. This method does not access the file and may be
+     * called from a thread other than the one that writes the data as long
+     * as each thread supplies its own codec instance.
+     *
+     * @param tile a valid tile
+     * @param codec the codec to be used for compression
+     * @return if successful, a valid array; otherwise, a null.
+     * @throws IOException in the event of an unrecoverable error
+     */
+    byte[] getCompressedPacking(RasterTile tile, CodecMaster codec)
+        throws IOException {
+        if (!spec.isDataCompressionEnabled() || !tile.hasValidData()) {
+            return null;
+        }
+        byte[] packing = tile.getCompressedPacking(codec);
+        if (packing == null) {
+            return null;
+        }
+        // Usually, the compressed form will be much smaller
+        // than the native form of the data. But, if the data is noisy,
+        // it is possible that the post-compression form might even be larger
+        // than the source.  we will store the data in compression
+        // form only if it is smaller than the uncompressed version.
+        // FUTURE STUDY:
+        //        since decompressing data adds overhead on the read side,
+        //        performance might be better served by not saving the
+        //        compressed format unless it saves some substantial
+        //        portion of the storage space.  25 percent? 10 percent? 5?
+        //        should this decision be a file-creation specification or set
+        //        at run-time in a manner similar to the cache size setting
+        int sizeToStore = multipleOf8(RECORD_HEADER_SIZE + standardTileSizeInBytes);
+        int compressedSize = multipleOf8(RECORD_HEADER_SIZE + packing.length);
+        if (compressedSize < sizeToStore) {
+            return packing;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the tile to the file using a packing that was obtained
+     * from a previous call to getCompressedPacking.
+     *
+     * @param tile a valid tile
+     * @param packing the compressed packing for the tile, or a null if
+     * the tile is to be stored in the standard (non-compressed) format.
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    void storeTile(RasterTile tile, byte[] packing) throws IOException {
+        tileSummaries.update(tile);
+        synchronized (braf) {
+            storeTileContent(tile, packing);
+        }
+    }
+
+    private void storeTileContent(RasterTile tile, byte[] packing) throws IOException {
+        if (bulkLoadEnabled) {
+            appendTileContent(tile, packing);
+            return;
+        }
         // the payload includes  nValues integers giving the content.
         // the size-to-store value is the record header size, plus the
         // payload size.  because all records must start on file position
@@ -320,39 +530,25 @@ class G93TileStore {
             if (initialFilePos > 0) {
                 fileSpaceDealloc(initialFilePos);
                 setTilePosition(tileIndex, 0);
+                initialFilePos = 0;
             }
-            byte[] packing = tile.getCompressedPacking(codecMaster);
 
             if (packing != null) {
-                // The compression was successful.  Usually, it will be much smaller
-                // than the native form of the data. But, if the data is noisy,
-                // it is possible that the post-compression form might even be larger
-                // than the source.  we will store the data in compression
-                // form only if it is smaller than the uncompressed version.
-                // FUTURE STUDY:
-                //        since decompressing data adds overhead on the read side,
-                //        performance might be better served by not saving the
-                //        compressed format unless it saves some substantial
-                //        portion of the storage space.  25 percent? 10 percent? 5?
-                //        should this decision be a file-creation specification or set
-                //        at run-time in a manner similar to the cache size setting
                 int compressedSize = multipleOf8(RECORD_HEADER_SIZE + packing.length);
-                if (compressedSize < sizeToStore) {
-                    posToStore = fileSpaceAlloc(compressedSize);
-                    setTilePosition(tileIndex, posToStore);
-                    braf.seek(posToStore);
-                    // store header
-                    braf.leWriteInt(compressedSize);
-                    braf.leWriteInt(tileIndex);
-                    braf.leWriteInt(1); // low-byte and 3 spares
-                    braf.writeFully(packing, 0, packing.length);
-                    int sizeStoredSoFar = RECORD_HEADER_SIZE + packing.length;
-                    for (int i = sizeStoredSoFar; i < compressedSize; i++) {
-                        braf.writeByte(0);
-                    }
-                    braf.flush();
-                    return;
+                posToStore = fileSpaceAlloc(compressedSize);
+                setTilePosition(tileIndex, posToStore);
+                braf.seek(posToStore);
+                // store header
+                braf.leWriteInt(compressedSize);
+                braf.leWriteInt(tileIndex);
+                braf.leWriteInt(1); // low-byte and 3 spares
+                braf.writeFully(packing, 0, packing.length);
+                int sizeStoredSoFar = RECORD_HEADER_SIZE + packing.length;
+                for (int i = sizeStoredSoFar; i < compressedSize; i++) {
+                    braf.writeByte(0);
                 }
+                braf.flush();
+                return;
             }
         }
 
@@ -383,77 +579,466 @@ class G93TileStore {
         braf.flush();
     }
 
+    /**
+     * Stores a tile at the end of the file without accessing the free
+     * space or re-using the file space from a prior copy of the tile.
+     * The file is not flushed, so that a sequence of tiles is written
+     * using the large buffer established for bulk loading.
+     */
+    private void appendTileContent(RasterTile tile, byte[] packing) throws IOException {
+        int tileIndex = tile.tileIndex;
+        nTileWrites++;
+        if (getTilePosition(tileIndex) != 0) {
+            nAbandonedRecords++;
+            setTilePosition(tileIndex, 0);
+        }
+        if (!tile.hasValidData()) {
+            return;
+        }
+
+        int recordSize;
+        int compressionFlag;
+        if (packing == null) {
+            recordSize = multipleOf8(RECORD_HEADER_SIZE + standardTileSizeInBytes);
+            compressionFlag = 0;
+        } else {
+            recordSize = multipleOf8(RECORD_HEADER_SIZE + packing.length);
+            compressionFlag = 1;
+        }
+
+        // seeking flushes the buffer, so it is avoided when the
+        // file is already positioned at its end (the usual case).
+        long posToStore = braf.getFileSize();
+        assert (posToStore & 0x07L) == 0 : "File size not multiple of 8";
+        if (braf.getFilePosition() != posToStore) {
+            braf.seek(posToStore);
+        }
+        nAllocationsAtEndOfFile++;
+        setTilePosition(tileIndex, posToStore);
+        braf.leWriteInt(recordSize);
+        braf.leWriteInt(tileIndex);
+        braf.leWriteInt(compressionFlag); // low-byte and 3 spares
+        int sizeStoredSoFar;
+        if (packing == null) {
+            tile.writeStandardFormat(braf);
+            sizeStoredSoFar = RECORD_HEADER_SIZE + standardTileSizeInBytes;
+        } else {
+            braf.writeFully(packing, 0, packing.length);
+            sizeStoredSoFar = RECORD_HEADER_SIZE + packing.length;
+        }
+        for (int i = sizeStoredSoFar; i < recordSize; i++) {
+            braf.writeByte(0);
+        }
+    }
+
+    /**
+     * Enables or disables bulk loading. When bulk loading is enabled,
+     * tiles are appended to the end of the file using a large output buffer.
+     *
+     * @param enabled true if bulk loading is to be enabled; otherwise, false.
+     * @throws IOException in the event of an I/O error flushing
+     * buffered output.
+     */
+    void setBulkLoadEnabled(boolean enabled) throws IOException {
+        synchronized (braf) {
+            bulkLoadEnabled = enabled;
+            braf.setBufferSize(enabled ? BULK_LOAD_BUFFER_SIZE : 0);
+        }
+    }
+
+    /**
+     * Indicates whether the file contains records that were abandoned
+     * during bulk loading and should be removed by compaction.
+     *
+     * @return true if compaction is required; otherwise, false.
+     */
+    boolean isCompactionRequired() {
+        return nAbandonedRecords > 0;
+    }
+
     void readTile(RasterTile tile) throws IOException {
+        readTile(tile, false);
+    }
+
+    /**
+     * Reads a tile from the file, optionally retaining the compressed
+     * packing for the tile so that it may be decoded again without
+     * further file access.
+     *
+     * @param tile a valid tile
+     * @param retainPacking true if the compressed packing is to be returned
+     * @return if the packing is retained and the tile is stored in
+     * compressed form, a valid array; otherwise, a null.
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    byte[] readTile(RasterTile tile, boolean retainPacking) throws IOException {
         int tileIndex = tile.tileIndex;
 
         long filePos = getTilePosition(tileIndex);
         if (filePos == 0) {
             tile.setToNullState();
-            return;
+            return null;
         }
 
         nTileReads++;
-        braf.seek(filePos);
-        int recordSize = braf.leReadInt();
-        assert recordSize >= 0 :
-            "negative packing size for tile on file, tile.index=" + tileIndex;
-        int tileIndexFromFile = braf.leReadInt();
-        int compressionFlag = braf.leReadInt() & 0xff; // low-byte, 3 spares
-        assert tileIndexFromFile == tileIndex : "incorrect tile index on file";
-        int paddedPayloadSize = recordSize - RECORD_HEADER_SIZE;
+        if (mappedSegments != null) {
+            return readTile(tile, mappedReadContext, retainPacking);
+        }
+        // the file may be accessed by a background writer when write-behind
+        // is enabled, so access to it is synchronized.
+        synchronized (braf) {
+            braf.seek(filePos);
+            int recordSize = braf.leReadInt();
+            assert recordSize >= 0 :
+                "negative packing size for tile on file, tile.index=" + tileIndex;
+            int tileIndexFromFile = braf.leReadInt();
+            int compressionFlag = braf.leReadInt() & 0xff; // low-byte, 3 spares
+            assert tileIndexFromFile == tileIndex : "incorrect tile index on file";
+            int paddedPayloadSize = recordSize - RECORD_HEADER_SIZE;
+            if (compressionFlag == 0) {
+                // it's not compressed
+                tile.readStandardFormat(braf);
+            } else if (retainPacking) {
+                byte[] packing = new byte[paddedPayloadSize];
+                braf.readFully(packing, 0, paddedPayloadSize);
+                tile.readCompressedFormat(codecMaster, wrapPacking(packing));
+                return packing;
+            } else {
+                // it's compressed
+                tile.readCompressedFormat(codecMaster, braf, paddedPayloadSize);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wraps a compressed packing in a buffer suitable for use
+     * by a tile's readCompressedFormat method.
+     *
+     * @param packing a valid array
+     * @return a valid instance
+     */
+    static ByteBuffer wrapPacking(byte[] packing) {
+        return ByteBuffer.wrap(packing).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Opens a channel for concurrent, position-based read operations.
+     * Once the channel is opened, the tile positions must not be modified.
+     *
+     * @param file the file associated with the tile store
+     * @throws IOException in the event of an I/O error
+     */
+    void openConcurrentReadChannel(File file) throws IOException {
+        if (readChannel == null) {
+            readChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            readChannelSize = readChannel.size();
+        }
+    }
+
+    /**
+     * Closes the channel used for concurrent read operations (if any)
+     * and releases any memory-mapped segments.
+     *
+     * @throws IOException in the event of an I/O error
+     */
+    void closeConcurrentReadChannel() throws IOException {
+        mappedSegments = null;
+        mappedReadContext = null;
+        if (readChannel != null) {
+            readChannel.close();
+            readChannel = null;
+        }
+    }
+
+    /**
+     * Enables or disables the use of memory-mapped I/O for reading tiles.
+     * Once the file is mapped, the tile positions must not be modified.
+     *
+     * @param file the file associated with the tile store
+     * @param enabled true if memory-mapped reads are to be enabled;
+     * otherwise, false.
+     * @throws IOException in the event of an I/O error
+     */
+    void setMemoryMappedReadEnabled(File file, boolean enabled) throws IOException {
+        if (!enabled) {
+            mappedSegments = null;
+            return;
+        }
+        if (mappedSegments == null) {
+            openConcurrentReadChannel(file);
+            int maxRecordSize = multipleOf8(RECORD_HEADER_SIZE + standardTileSizeInBytes);
+            mappedReadContext = new TileReadContext(codecMaster);
+            mappedSegments = new MappedFileSegments(readChannel, maxRecordSize);
+        }
+    }
+
+    /**
+     * Indicates whether memory-mapped reads are enabled.
+     *
+     * @return true if memory-mapped reads are enabled; otherwise false.
+     */
+    boolean isMemoryMappedReadEnabled() {
+        return mappedSegments != null;
+    }
+
+    /**
+     * Reads a tile using a position-based read from the concurrent-access
+     * channel. This method may be called by multiple threads at once provided
+     * that each thread supplies its own read context.
+     *
+     * @param tile a valid tile
+     * @param context a read context that is not shared with other threads
+     * @throws IOException in the event of an I/O error.
+     */
+    void readTile(RasterTile tile, TileReadContext context) throws IOException {
+        readTile(tile, context, false);
+    }
+
+    private byte[] readTile(
+        RasterTile tile,
+        TileReadContext context,
+        boolean retainPacking) throws IOException {
+        int tileIndex = tile.tileIndex;
+        long filePos = getTilePosition(tileIndex);
+        if (filePos == 0) {
+            tile.setToNullState();
+            return null;
+        }
+
+        // Because compressed records are smaller than non-compressed records,
+        // the maximum record size is always sufficient to read the
+        // entire record.  Reading it in a single operation saves
+        // the cost of a separate read for the record header.
+        int maxRecordSize = multipleOf8(RECORD_HEADER_SIZE + standardTileSizeInBytes);
+        MappedFileSegments segments = mappedSegments;
+        if (segments != null) {
+            // the record is read directly from the mapped pages
+            // without an intermediate copy.
+            long n = segments.getFileSize() - filePos;
+            if (n > maxRecordSize) {
+                n = maxRecordSize;
+            }
+            return readRecordContent(tile, context.codec,
+                segments.getBuffer(filePos, (int) n), retainPacking);
+        }
+
+        if (readChannel == null) {
+            throw new IOException("Concurrent read access is not enabled");
+        }
+        long n = readChannelSize - filePos;
+        if (n > maxRecordSize) {
+            n = maxRecordSize;
+        }
+        ByteBuffer buffer = context.getBuffer((int) n);
+        long pos = filePos;
+        while (buffer.hasRemaining()) {
+            int nBytesRead = readChannel.read(buffer, pos);
+            if (nBytesRead < 0) {
+                throw new EOFException();
+            }
+            pos += nBytesRead;
+        }
+        buffer.flip();
+        return readRecordContent(tile, context.codec, buffer, retainPacking);
+    }
+
+    /**
+     * Reads a set of tiles from the file. The tiles are sorted by file
+     * position and records that are near each other are combined into
+     * a single read operation, reducing the number of seeks required
+     * when tiles are scattered across the file. Tiles that do not exist
+     * in the file are set to the null state.
+     * <p>
+     * If an executor is supplied, the tiles are decoded in parallel.
+     * Otherwise, they are decoded by the calling thread.
+     *
+     * @param tiles a list of tiles to be populated
+     * @param executor an executor for decoding tiles, or a null if
+     * tiles are to be decoded by the calling thread.
+     * @param codecs a source of codecs for use by the decoding threads;
+     * must be valid if an executor is supplied.
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    void readTiles(
+        List<RasterTile> tiles,
+        Executor executor,
+        ThreadLocal<CodecMaster> codecs) throws IOException {
+        List<RasterTile> sortedTiles = new ArrayList<>(tiles.size());
+        for (RasterTile tile : tiles) {
+            if (doesTileExist(tile.tileIndex)) {
+                sortedTiles.add(tile);
+            } else {
+                tile.setToNullState();
+            }
+        }
+        Collections.sort(sortedTiles, new Comparator<RasterTile>() {
+            @Override
+            public int compare(RasterTile t1, RasterTile t2) {
+                return Long.compare(
+                    getTilePosition(t1.tileIndex), getTilePosition(t2.tileIndex));
+            }
+        });
+
+        // Because compressed records are smaller than non-compressed records,
+        // the maximum record size is always sufficient to read the
+        // entire record.
+        int maxRecordSize = multipleOf8(RECORD_HEADER_SIZE + standardTileSizeInBytes);
+        List<FutureTask<Void>> tasks = new ArrayList<>();
+        int iGroupStart = 0;
+        while (iGroupStart < sortedTiles.size()) {
+            // find the set of tiles that can be read in a single operation
+            long groupPos = getTilePosition(sortedTiles.get(iGroupStart).tileIndex);
+            long lastPos = groupPos;
+            int iGroupEnd = iGroupStart + 1;
+            while (iGroupEnd < sortedTiles.size()) {
+                long filePos = getTilePosition(sortedTiles.get(iGroupEnd).tileIndex);
+                if (filePos - lastPos > maxRecordSize + MAX_BATCH_GAP
+                    || filePos + maxRecordSize - groupPos > MAX_BATCH_READ_SIZE) {
+                    break;
+                }
+                lastPos = filePos;
+                iGroupEnd++;
+            }
+
+            byte[] content;
+            synchronized (braf) {
+                long n = Math.min(braf.getFileSize(), lastPos + maxRecordSize) - groupPos;
+                content = new byte[(int) n];
+                braf.seek(groupPos);
+                braf.readFully(content, 0, content.length);
+            }
+            nTileReads += iGroupEnd - iGroupStart;
+
+            for (int i = iGroupStart; i < iGroupEnd; i++) {
+                final RasterTile tile = sortedTiles.get(i);
+                int offset = (int) (getTilePosition(tile.tileIndex) - groupPos);
+                int length = Math.min(maxRecordSize, content.length - offset);
+                final ByteBuffer buffer = ByteBuffer.wrap(content, offset, length)
+                    .slice().order(ByteOrder.LITTLE_ENDIAN);
+                if (executor == null) {
+                    readRecordContent(tile, codecMaster, buffer, false);
+                } else {
+                    FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            readRecordContent(tile, codecs.get(), buffer, false);
+                            return null;
+                        }
+                    });
+                    tasks.add(task);
+                    executor.execute(task);
+                }
+            }
+            iGroupStart = iGroupEnd;
+        }
+
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading tiles", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to decode tile", cause);
+            }
+        }
+    }
+
+    /**
+     * Populates a tile from a record held in a buffer. The buffer
+     * is positioned at the start of the record header.
+     *
+     * @param tile a valid tile
+     * @param codec a codec instance that is not shared with other threads
+     * @param buffer a buffer containing the record content
+     * @param retainPacking true if the compressed packing is to be returned
+     * @return if the packing is retained and the tile is stored in
+     * compressed form, a valid array; otherwise, a null.
+     * @throws IOException in the event of an incompatible record.
+     */
+    private byte[] readRecordContent(
+        RasterTile tile,
+        CodecMaster codec,
+        ByteBuffer buffer,
+        boolean retainPacking) throws IOException {
+        int recordSize = buffer.getInt();
+        int tileIndexFromFile = buffer.getInt();
+        int compressionFlag = buffer.getInt() & 0xff; // low-byte, 3 spares
+        if (recordSize <= 0 || tileIndexFromFile != tile.tileIndex) {
+            throw new IOException(
+                "Invalid record found for tile " + tile.tileIndex);
+        }
         if (compressionFlag == 0) {
-            // it's not compressed
-            tile.readStandardFormat(braf);
+            tile.readStandardFormat(buffer);
+        } else if (retainPacking) {
+            int n = recordSize - RECORD_HEADER_SIZE;
+            if (n > buffer.remaining()) {
+                n = buffer.remaining();
+            }
+            byte[] packing = new byte[n];
+            buffer.get(packing, 0, n);
+            tile.readCompressedFormat(codec, wrapPacking(packing));
+            return packing;
         } else {
-            // it's compressed
-            tile.readCompressedFormat(codecMaster, braf, paddedPayloadSize);
+            tile.readCompressedFormat(codec, buffer);
         }
+        return null;
     }
 
     void scanFileForTiles() throws IOException {
-        freeList = null;  // for diagnostic use
-        FreeNode freeListEnd = null;
-        int maxTileIndex = spec.nRowsOfTiles * spec.nColsOfTiles;
-        long fileSize = braf.getFileSize();
-        long filePos = basePosition;
-        while (filePos < fileSize - RECORD_HEADER_SIZE) {
-            braf.seek(filePos);
-            int recordSize = braf.leReadInt();
-            if (recordSize == 0) {
-                break;
-            }
+        TileStoreScanner scanner = new TileStoreScanner(
+            braf.getFile(),
+            basePosition,
+            braf.getFileSize(),
+            spec.nRowsOfTiles * spec.nColsOfTiles);
+        scanFileForTiles(scanner, scanner.getDefaultRangeCount());
+    }
+
+    /**
+     * Scans the file to establish the positions of tiles, free space,
+     * and variable-length records. When the number of ranges is
+     * greater than one, the file is divided into ranges which are scanned
+     * in parallel.
+     *
+     * @param scanner a valid scanner for the file
+     * @param nRanges the number of ranges into which the file is divided.
+     * @throws IOException in the event of an I/O error or if the
+     * file contains invalid records
+     */
+    void scanFileForTiles(TileStoreScanner scanner, int nRanges) throws IOException {
+        freeSpace.clear();
+        scannedOverviewRecords.clear();
+        tilePositionSource = nRanges > 1 ? "parallel file scan" : "file scan";
+        braf.flush();
+        TileStoreScanner.RecordList records
+            = scanner.scan(nRanges, ForkJoinPool.commonPool());
+        for (int i = 0; i < records.nRecords; i++) {
+            long filePos = records.positions[i];
+            int recordSize = records.sizes[i];
+            int recordCode = records.codes[i];
             if (recordSize < 0) {
-                // add the block of file space to the free list.
-                // the free list is ordered by file position, so the new node
-                // goes on the end of the list.
-                recordSize = -recordSize;
-                FreeNode node = new FreeNode(filePos, recordSize);
-                if (freeListEnd == null) {
-                    freeList = node;
-                    freeListEnd = node;
-                } else {
-                    freeListEnd.next = node;
-                    freeListEnd = node;
-                }
+                // add the block of file space to the free space.
+                freeSpace.add(filePos, -recordSize);
+            } else if (recordCode == -TILE_DIRECTORY_RECORD_CODE) {
+                // a tile directory that could not be used.
+                tileDirectoryPos = filePos;
+            } else if (recordCode == -OVERVIEW_TILE_RECORD_CODE) {
+                scannedOverviewRecords.add(filePos);
+            } else if (recordCode < 0) {
+                // negative tile indexes are used to introduce non-tile
+                // records.
+                int contentSize = recordSize - RECORD_HEADER_SIZE;
+                braf.seek(filePos + NON_TILE_RECORD_HEADER_SIZE);
+                VariableLengthRecord vlr = new VariableLengthRecord(braf, contentSize);
+                vlrRecordMap.put(vlr, vlr);
             } else {
-                int tileIndex = braf.leReadInt();
-                if (tileIndex < 0) {
-                    // negative tile indexes are used to introduce non-tile
-                    // records.
-                    if (tileIndex != -1) {
-                        throw new IOException("Undefined record code " + (-tileIndex));
-                    }
-                    int contentSize = recordSize - RECORD_HEADER_SIZE;
-                    braf.skipBytes(8);
-                    VariableLengthRecord vlr = new VariableLengthRecord(braf, contentSize);
-                    vlrRecordMap.put(vlr, vlr);
-                } else if (tileIndex >= maxTileIndex) {
-                    throw new IOException("Incorrect tile index read from file " + tileIndex);
-                } else {
-                    setTilePosition(tileIndex, filePos);
-                }
+                setTilePosition(recordCode, filePos);
             }
-            filePos += recordSize;
         }
     }
 
@@ -479,21 +1064,12 @@ class G93TileStore {
         }
 
         indexRaf.flush();
-        int nFreeNodes = 0;
-        FreeNode node = freeList;
-        while (node != null) {
-            nFreeNodes++;
-            node = node.next;
-        }
-        indexRaf.leWriteInt(nFreeNodes);
-        if (nFreeNodes > 0) {
-            node = freeList;
-            while (node != null) {
-                int filePos = (int) (node.filePos / 8L);
-                indexRaf.leWriteInt(filePos);
-                indexRaf.leWriteInt(node.blockSize);
-                node = node.next;
-            }
+        List<FileSpaceManager.FreeBlock> freeBlocks = freeSpace.getFreeBlocks();
+        indexRaf.leWriteInt(freeBlocks.size());
+        for (FileSpaceManager.FreeBlock block : freeBlocks) {
+            int filePos = (int) (block.filePos / 8L);
+            indexRaf.leWriteInt(filePos);
+            indexRaf.leWriteInt(block.blockSize);
         }
 
         // Note that the offsets for the data are reduced in size in a manner
@@ -507,7 +1083,7 @@ class G93TileStore {
         for (VariableLengthRecord vlr : vlrList) {
             // the offset in a VLR is the file address of it's content.
             // by we need to store the file position of the entire record.
-            long filePos = vlr.offset - RECORD_HEADER_SIZE;
+            long filePos = vlr.offset - NON_TILE_RECORD_HEADER_SIZE;
             indexRaf.leWriteInt((int) (filePos / 8));
         }
 
@@ -525,6 +1101,7 @@ class G93TileStore {
         if (nTilesInTable != tilePositions.length) {
             throw new IOException("G93 file and index file do not match");
         }
+        tilePositionSource = "index file";
         for (int i = 0; i < nTilesInTable; i++) {
             tilePositions[i] = idxraf.leReadInt();
         }
@@ -537,14 +1114,18 @@ class G93TileStore {
         for (int iFree = 0; iFree < nFreeNodes; iFree++) {
             long freePos = (((long) idxraf.leReadInt()) & 0xffffffffL) * 8L;
             int freeSize = idxraf.leReadInt();
-            FreeNode node = new FreeNode(freePos, freeSize);
-            node.next = freeList;
-            freeList = node;
+            freeSpace.add(freePos, freeSize);
         }
 
+        // the index may be stored in the same file as the records,
+        // so all positions are read before accessing the records.
         int nVariableLengthRecords = idxraf.leReadInt();
+        long[] recordPositions = new long[nVariableLengthRecords];
+        for (int i = 0; i < nVariableLengthRecords; i++) {
+            recordPositions[i] = (((long) idxraf.leReadInt()) & 0xffffffffL) * 8L;
+        }
         for (int i = 0; i < nVariableLengthRecords; i++) {
-            long recordPos = (((long) idxraf.leReadInt()) & 0xffffffffL) * 8L;
+            long recordPos = recordPositions[i];
             braf.seek(recordPos);
             int rSize = braf.leReadInt();
             int rType = -braf.leReadInt();
@@ -557,25 +1138,145 @@ class G93TileStore {
                 = new VariableLengthRecord(braf, rSize - RECORD_HEADER_SIZE);
             vlrRecordMap.put(vlr, vlr);
         }
+    }
 
+    /**
+     * Writes a directory of the tile positions, free space, and variable
+     * length records to the end of the file. The directory is written
+     * using the same format as the index file. It allows the file to be
+     * opened without scanning its content.
+     *
+     * @param modificationTime the modification time that will be recorded
+     * in the file header; used to verify that the directory is current.
+     * @throws IOException in the event of an I/O error
+     */
+    void writeTileDirectory(long modificationTime) throws IOException {
+        synchronized (braf) {
+            long filePos = braf.getFileSize();
+            assert (filePos & 0x07L) == 0 : "File size not multiple of 8";
+            braf.seek(filePos);
+            braf.leWriteInt(0); // record size, populated below
+            braf.leWriteInt(-TILE_DIRECTORY_RECORD_CODE);
+            braf.leWriteInt(0); // 4 spare bytes for header
+            braf.leWriteInt(0); // 4 spare bytes to put it on a multiple-of-8
+            braf.leWriteLong(spec.uuid.getLeastSignificantBits());
+            braf.leWriteLong(spec.uuid.getMostSignificantBits());
+            writeTilePositionsToIndexFile(braf);
+            while ((braf.getFilePosition() & 0x07L) != 0) {
+                braf.writeByte(0);
+            }
+            braf.leWriteLong(filePos);
+            braf.leWriteLong(modificationTime);
+            braf.writeASCII(TILE_DIRECTORY_STAMP, 8);
+            long recordSize = braf.getFilePosition() - filePos;
+            braf.seek(filePos);
+            braf.leWriteInt((int) recordSize);
+            braf.flush();
+            tileDirectoryPos = filePos;
+        }
+    }
+
+    /**
+     * Reads the tile directory from the end of the file, if it is present
+     * and was written at the specified modification time.
+     *
+     * @param modificationTime the modification time recorded in the
+     * file header.
+     * @return true if a valid directory was read; otherwise, false.
+     * @throws IOException in the event of an I/O error
+     */
+    boolean readTileDirectory(long modificationTime) throws IOException {
+        long fileSize = braf.getFileSize();
+        if (fileSize < basePosition + NON_TILE_RECORD_HEADER_SIZE + TILE_DIRECTORY_TRAILER_SIZE) {
+            return false;
+        }
+        braf.seek(fileSize - TILE_DIRECTORY_TRAILER_SIZE);
+        long filePos = braf.leReadLong();
+        long directoryTime = braf.leReadLong();
+        String stamp = braf.readASCII(8);
+        if (!TILE_DIRECTORY_STAMP.equals(stamp)
+            || directoryTime != modificationTime
+            || filePos < basePosition
+            || filePos >= fileSize) {
+            return false;
+        }
+        braf.seek(filePos);
+        int recordSize = braf.leReadInt();
+        int recordCode = braf.leReadInt();
+        braf.skipBytes(8);
+        long leastSigBits = braf.leReadLong();
+        long mostSigBits = braf.leReadLong();
+        if (recordSize != fileSize - filePos
+            || recordCode != -TILE_DIRECTORY_RECORD_CODE
+            || leastSigBits != spec.uuid.getLeastSignificantBits()
+            || mostSigBits != spec.uuid.getMostSignificantBits()) {
+            return false;
+        }
+        readTilePositionsFromIndexFile(braf);
+        tileDirectoryPos = filePos;
+        tilePositionSource = "tile directory";
+        return true;
+    }
+
+    /**
+     * Indicates whether the file contains a tile directory.
+     *
+     * @return true if a directory is present; otherwise, false.
+     */
+    boolean hasTileDirectory() {
+        return tileDirectoryPos != 0;
+    }
+
+    /**
+     * Releases the file space used by the tile directory. Because the
+     * directory does not reflect changes made to the file, it is released
+     * when the file is opened for writing.
+     *
+     * @throws IOException in the event of an I/O error
+     */
+    void releaseTileDirectory() throws IOException {
+        if (tileDirectoryPos != 0) {
+            synchronized (braf) {
+                fileSpaceDealloc(tileDirectoryPos);
+                braf.flush();
+            }
+            tileDirectoryPos = 0;
+        }
     }
 
     void summarize(PrintStream ps) {
         ps.println("Tile IO");
+        ps.format("   Tile positions from: %s%n", tilePositionSource);
         ps.format("   Tile Reads:   %8d%n", nTileReads);
         ps.format("   Tile Writes:  %8d%n", nTileWrites);
 
-        int nFreeNodes = 0;
-        long freeSpace = 0;
-        FreeNode node = freeList;
-        while (node != null) {
-            nFreeNodes++;
-            freeSpace += node.blockSize;
-            node = node.next;
+        long nFreeBytes = freeSpace.getFreeSpace();
+        int largestBlock = freeSpace.getLargestFreeBlockSize();
+        long fileSize = braf.getFileSize();
+        // fragmentation is the portion of the free space that is not
+        // in the largest free block, and so cannot serve a single allocation.
+        double fragmentation = 0;
+        if (nFreeBytes > 0) {
+            fragmentation = 100.0 * (1.0 - (double) largestBlock / (double) nFreeBytes);
+        }
+        double percentFree = 0;
+        if (fileSize > 0) {
+            percentFree = 100.0 * (double) nFreeBytes / (double) fileSize;
         }
         ps.println("File Space Allocation");
-        ps.format("   Free Nodes:   %8d%n", nFreeNodes);
-        ps.format("   Free Space:   %8d bytes%n", freeSpace);
+        ps.format("   Free Nodes:   %8d%n", freeSpace.getFreeBlockCount());
+        ps.format("   Small Nodes:  %8d (less than %d bytes)%n",
+            freeSpace.getFreeBlockCountBelow(MIN_FREE_BLOCK_SIZE), MIN_FREE_BLOCK_SIZE);
+        ps.format("   Free Space:   %8d bytes (%4.1f%% of file)%n", nFreeBytes, percentFree);
+        ps.format("   Largest Node: %8d bytes%n", largestBlock);
+        ps.format("   Fragmentation:    %4.1f%%%n", fragmentation);
+        ps.format("   Allocations from free space: %8d%n", nAllocationsFromFreeSpace);
+        ps.format("   Allocations at end of file:  %8d%n", nAllocationsAtEndOfFile);
+        ps.format("   File truncations:            %8d (%d bytes)%n",
+            nTruncations, nBytesTruncated);
+        if (bulkLoadEnabled || nAbandonedRecords > 0) {
+            ps.format("   Bulk load abandoned records: %8d%n", nAbandonedRecords);
+        }
 
         ps.format("Variable Length Records:  %d%n", vlrRecordMap.size());
 
@@ -642,6 +1343,139 @@ class G93TileStore {
         return filePos + RECORD_HEADER_SIZE + 4;
     }
 
+    /**
+     * Removes a variable-length record from the file, releasing its
+     * file space.
+     *
+     * @param vlr a valid record
+     * @throws IOException in the event of an I/O error
+     */
+    void removeVariableLengthRecord(VariableLengthRecord vlr) throws IOException {
+        synchronized (braf) {
+            fileSpaceDealloc(vlr.offset - NON_TILE_RECORD_HEADER_SIZE);
+            vlrRecordMap.remove(vlr);
+        }
+    }
+
+    /**
+     * Stores a tile for an overview level, replacing any prior copy.
+     * Tiles that contain no valid data are not stored.
+     *
+     * @param level the overview level
+     * @param tile a valid tile, indexed within the overview level
+     * @param packing the compressed packing for the tile, or a null if the
+     * tile is to be stored in the standard (non-compressed) format.
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    void storeOverviewTile(OverviewPyramid.Level level, RasterTile tile, byte[] packing)
+        throws IOException {
+        synchronized (braf) {
+            long priorPos = level.getTilePosition(tile.tileIndex);
+            if (priorPos != 0) {
+                fileSpaceDealloc(priorPos);
+                level.setTilePosition(tile.tileIndex, 0);
+            }
+            if (!tile.hasValidData()) {
+                return;
+            }
+            int payloadSize = packing == null ? standardTileSizeInBytes : packing.length;
+            long contentPos = allocateNonTileRecord(OVERVIEW_TILE_RECORD_CODE,
+                OVERVIEW_TILE_HEADER_SIZE + payloadSize);
+            level.setTilePosition(tile.tileIndex, contentPos - NON_TILE_RECORD_HEADER_SIZE);
+            braf.leWriteInt(level.level);
+            braf.leWriteInt(tile.tileIndex);
+            braf.leWriteInt(packing == null ? 0 : 1);
+            braf.leWriteInt(0); // spare
+            if (packing == null) {
+                tile.writeStandardFormat(braf);
+            } else {
+                braf.writeFully(packing, 0, packing.length);
+            }
+        }
+    }
+
+    /**
+     * Reads a tile for an overview level.
+     *
+     * @param level the overview level
+     * @param tile a valid tile, indexed within the overview level
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    void readOverviewTile(OverviewPyramid.Level level, RasterTile tile)
+        throws IOException {
+        long filePos = level.getTilePosition(tile.tileIndex);
+        if (filePos == 0) {
+            tile.setToNullState();
+            return;
+        }
+        synchronized (braf) {
+            braf.seek(filePos);
+            int recordSize = braf.leReadInt();
+            braf.skipBytes(NON_TILE_RECORD_HEADER_SIZE - 4);
+            int levelFromFile = braf.leReadInt();
+            int tileIndexFromFile = braf.leReadInt();
+            int compressionFlag = braf.leReadInt();
+            braf.skipBytes(4);
+            if (levelFromFile != level.level || tileIndexFromFile != tile.tileIndex) {
+                throw new IOException("Incorrect overview tile read from file, level "
+                    + levelFromFile + ", tile index " + tileIndexFromFile);
+            }
+            if (compressionFlag == 0) {
+                tile.readStandardFormat(braf);
+            } else {
+                tile.readCompressedFormat(codecMaster, braf,
+                    recordSize - NON_TILE_RECORD_HEADER_SIZE - OVERVIEW_TILE_HEADER_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Removes the overview levels from the file, releasing the file space
+     * for their tiles and for any overview records found by a file scan.
+     *
+     * @throws IOException in the event of an I/O error
+     */
+    void removeOverviews() throws IOException {
+        synchronized (braf) {
+            if (overviews != null) {
+                for (OverviewPyramid.Level level : overviews.levels) {
+                    for (int tileIndex = 0; tileIndex < level.getTileCount(); tileIndex++) {
+                        long filePos = level.getTilePosition(tileIndex);
+                        if (filePos != 0) {
+                            fileSpaceDealloc(filePos);
+                            level.setTilePosition(tileIndex, 0);
+                        }
+                    }
+                }
+                overviews = null;
+            } else {
+                for (long filePos : scannedOverviewRecords) {
+                    fileSpaceDealloc(filePos);
+                }
+            }
+            scannedOverviewRecords.clear();
+            braf.flush();
+        }
+    }
+
+    /**
+     * Establishes the tile summaries when a file is opened. Tiles that
+     * do not exist contain no data. The summaries for the remaining tiles
+     * are loaded from the tile-summary record if the file contains one
+     * that was written when the file was last modified.
+     *
+     * @param timeModified the modification time from the file header
+     * @throws IOException in the event of an I/O error
+     */
+    void loadTileSummaries(long timeModified) throws IOException {
+        tileSummaries.markEmptyTiles(this);
+        for (VariableLengthRecord vlr : getVariableLengthRecords()) {
+            if (TileSummaryTable.USER_ID.equals(vlr.getUserId())) {
+                tileSummaries.load(vlr.readPayload(), timeModified, this);
+            }
+        }
+    }
+
     List<VariableLengthRecord> getVariableLengthRecords() {
         Collection<VariableLengthRecord> values = vlrRecordMap.values();
         List<VariableLengthRecord> list = new ArrayList<>();
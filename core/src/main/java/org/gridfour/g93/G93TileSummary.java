@@ -0,0 +1,131 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Provides summary statistics for the values in a tile or in a set
+ * of tiles. Tile summaries are maintained by the G93File as tiles are
+ * written and are stored in the file, so they can be obtained without
+ * reading the content of the tiles. Summaries are given for the first
+ * element of the tile values.
+ */
+public class G93TileSummary {
+
+    private final long count;
+    private final float minValue;
+    private final float maxValue;
+    private final double sum;
+
+    G93TileSummary(long count, float minValue, float maxValue, double sum) {
+        this.count = count;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.sum = sum;
+    }
+
+    /**
+     * Combines this summary with another summary.
+     *
+     * @param other a valid instance
+     * @return a new instance
+     */
+    G93TileSummary combine(G93TileSummary other) {
+        if (other.count == 0) {
+            return this;
+        } else if (count == 0) {
+            return other;
+        }
+        return new G93TileSummary(
+            count + other.count,
+            Math.min(minValue, other.minValue),
+            Math.max(maxValue, other.maxValue),
+            sum + other.sum);
+    }
+
+    /**
+     * Gets the number of valid (non-null) values.
+     *
+     * @return a value of zero or greater
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the minimum value.
+     *
+     * @return a valid value, or Float.NaN if there are no valid values.
+     */
+    public float getMinimum() {
+        return count == 0 ? Float.NaN : minValue;
+    }
+
+    /**
+     * Gets the maximum value.
+     *
+     * @return a valid value, or Float.NaN if there are no valid values.
+     */
+    public float getMaximum() {
+        return count == 0 ? Float.NaN : maxValue;
+    }
+
+    /**
+     * Gets the sum of the valid values.
+     *
+     * @return a valid value, or zero if there are no valid values.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets the mean of the valid values.
+     *
+     * @return a valid value, or NaN if there are no valid values.
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d, min %f, max %f, mean %f",
+            count, getMinimum(), getMaximum(), getMean());
+    }
+}
@@ -0,0 +1,182 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Provides read-only access to the content of a single tile. Instances
+ * are produced by the tile stream of a G93File and hold their own copy
+ * of the tile data, so they may be used by any thread and remain valid
+ * after the file is closed.
+ * <p>
+ * Rows and columns are given relative to the first cell in the tile.
+ * Tiles on the last row or column of tiles may extend beyond the
+ * bounds of the grid; cells outside the grid contain null values.
+ * The getRowsInGrid() and getColumnsInGrid() methods give the extent
+ * of the tile that lies within the grid.
+ */
+public class G93TileView extends G93TileCoordinates {
+
+    private final RasterTile tile;
+    private final int nRowsInTile;
+    private final int nColsInTile;
+    private final int nRowsInGrid;
+    private final int nColsInGrid;
+    private final int dimension;
+
+    G93TileView(G93FileSpecification spec, RasterTile tile) {
+        super(spec, tile.tileIndex);
+        this.tile = tile;
+        nRowsInTile = spec.nRowsInTile;
+        nColsInTile = spec.nColsInTile;
+        nRowsInGrid = Math.min(nRowsInTile, spec.nRowsInRaster - getGridRow());
+        nColsInGrid = Math.min(nColsInTile, spec.nColsInRaster - getGridColumn());
+        dimension = spec.dimension;
+    }
+
+    /**
+     * Gets the number of rows in the tile.
+     *
+     * @return a positive integer
+     */
+    public int getRowsInTile() {
+        return nRowsInTile;
+    }
+
+    /**
+     * Gets the number of columns in the tile.
+     *
+     * @return a positive integer
+     */
+    public int getColumnsInTile() {
+        return nColsInTile;
+    }
+
+    /**
+     * Gets the number of rows of the tile that lie within the grid.
+     *
+     * @return a positive integer no larger than the rows in the tile
+     */
+    public int getRowsInGrid() {
+        return nRowsInGrid;
+    }
+
+    /**
+     * Gets the number of columns of the tile that lie within the grid.
+     *
+     * @return a positive integer no larger than the columns in the tile
+     */
+    public int getColumnsInGrid() {
+        return nColsInGrid;
+    }
+
+    /**
+     * Gets the floating-point value for the specified cell.
+     *
+     * @param row the row within the tile
+     * @param column the column within the tile
+     * @return a valid floating-point value or Float.NaN if the cell
+     * contains a null value.
+     */
+    public float getValue(int row, int column) {
+        return tile.getValue(row, column);
+    }
+
+    /**
+     * Gets the integer value for the specified cell.
+     *
+     * @param row the row within the tile
+     * @param column the column within the tile
+     * @return an integer value or INT4_NULL_CODE if the cell contains
+     * a null value.
+     */
+    public int getIntValue(int row, int column) {
+        return tile.getIntValue(row, column);
+    }
+
+    /**
+     * Gets the values for the specified cell when the file has
+     * a dimension greater than one.
+     *
+     * @param row the row within the tile
+     * @param column the column within the tile
+     * @param values an array of at least the dimension of the file
+     */
+    public void getValues(int row, int column, float[] values) {
+        tile.getValues(row, column, values);
+    }
+
+    /**
+     * Copies the floating-point values for the tile into an array.
+     * The organization of the array is the same as for G93File.readTile().
+     *
+     * @param values an array of size at least nCellsInTile*dimension
+     */
+    public void getValues(float[] values) {
+        int nValues = nRowsInTile * nColsInTile;
+        for (int iDimension = 0; iDimension < dimension; iDimension++) {
+            G93File.copyRow(tile, iDimension, 0, nValues - 1, values, iDimension * nValues);
+        }
+    }
+
+    /**
+     * Copies the integer values for the tile into an array.
+     * The organization of the array is the same as for G93File.readTile().
+     *
+     * @param values an array of size at least nCellsInTile*dimension
+     */
+    public void getValues(int[] values) {
+        int nValues = nRowsInTile * nColsInTile;
+        for (int iDimension = 0; iDimension < dimension; iDimension++) {
+            G93File.copyRow(tile, iDimension, 0, nValues - 1, values, iDimension * nValues);
+        }
+    }
+
+    RasterTile getTile() {
+        return tile;
+    }
+
+    /**
+     * Indicates whether the tile contains at least one non-null value.
+     *
+     * @return true if the tile contains data; otherwise, false.
+     */
+    public boolean hasValidData() {
+        return tile.hasValidData();
+    }
+}
@@ -0,0 +1,226 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Provides a map of tiles keyed by tile index that does not require
+ * the boxing of integer keys or the allocation of entry objects.
+ * When the number of tiles in the raster is small enough, the tiles are
+ * stored in a dense array indexed directly by tile index. Otherwise,
+ * an open-addressing hash table with linear probing is used.
+ * <p>
+ * This class is not thread safe.
+ */
+class IntTileMap {
+
+    // the maximum number of tiles for which a dense array is used.
+    // at this size, the array requires at most 512 kilobytes.
+    private static final int MAX_DENSE_SIZE = 65536;
+    private static final int EMPTY = -1;
+
+    private final RasterTile[] dense;
+    private int[] keys;
+    private RasterTile[] tiles;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs a map for a raster with the specified number of tiles.
+     *
+     * @param nTilesInRaster the number of tiles in the raster
+     */
+    IntTileMap(int nTilesInRaster) {
+        if (nTilesInRaster <= MAX_DENSE_SIZE) {
+            dense = new RasterTile[nTilesInRaster];
+        } else {
+            dense = null;
+            allocateTable(32);
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        tiles = new RasterTile[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        // a multiplicative hash spreads the sequential tile indices
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the tile with the specified index.
+     *
+     * @param tileIndex a valid tile index
+     * @return if found, a valid instance; otherwise, a null.
+     */
+    RasterTile get(int tileIndex) {
+        if (dense != null) {
+            return dense[tileIndex];
+        }
+        int i = hash(tileIndex) & mask;
+        while (true) {
+            int k = keys[i];
+            if (k == tileIndex) {
+                return tiles[i];
+            } else if (k == EMPTY) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    boolean containsKey(int tileIndex) {
+        return get(tileIndex) != null;
+    }
+
+    /**
+     * Adds a tile to the map, replacing any tile with the same index.
+     *
+     * @param tile a valid tile
+     */
+    void put(RasterTile tile) {
+        int tileIndex = tile.tileIndex;
+        if (dense != null) {
+            if (dense[tileIndex] == null) {
+                size++;
+            }
+            dense[tileIndex] = tile;
+            return;
+        }
+        // keep the load factor at or below one half
+        if ((size + 1) * 2 > keys.length) {
+            int[] oldKeys = keys;
+            RasterTile[] oldTiles = tiles;
+            allocateTable(keys.length * 2);
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    insert(oldKeys[j], oldTiles[j]);
+                }
+            }
+        }
+        if (insert(tileIndex, tile)) {
+            size++;
+        }
+    }
+
+    private boolean insert(int tileIndex, RasterTile tile) {
+        int i = hash(tileIndex) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == tileIndex) {
+                tiles[i] = tile;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = tileIndex;
+        tiles[i] = tile;
+        return true;
+    }
+
+    /**
+     * Removes the tile with the specified index.
+     *
+     * @param tileIndex a valid tile index
+     */
+    void remove(int tileIndex) {
+        if (dense != null) {
+            if (dense[tileIndex] != null) {
+                dense[tileIndex] = null;
+                size--;
+            }
+            return;
+        }
+        int i = hash(tileIndex) & mask;
+        while (keys[i] != tileIndex) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        size--;
+        // shift subsequent entries in the probe sequence back into the
+        // vacated slot so that no tombstone markers are required.
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int k = keys[j];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = hash(k) & mask;
+            // the entry at j may be moved to i only if its home slot
+            // does not lie cyclically within the range (i, j]
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                keys[i] = k;
+                tiles[i] = tiles[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        tiles[i] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets a list of the tiles in the map.
+     *
+     * @return a valid, potentially empty, list.
+     */
+    List<RasterTile> values() {
+        List<RasterTile> list = new ArrayList<>(size);
+        RasterTile[] array = dense == null ? tiles : dense;
+        for (RasterTile tile : array) {
+            if (tile != null) {
+                list.add(tile);
+            }
+        }
+        return list;
+    }
+}
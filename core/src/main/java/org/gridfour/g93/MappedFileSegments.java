@@ -0,0 +1,148 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Provides read-only access to a file through a set of memory-mapped
+ * segments. Because a single Java byte buffer is limited to 2 gigabytes,
+ * larger files are mapped in a series of windows.
+ * <p>
+ * Each segment overlaps its successor by an amount at least as large as
+ * the largest record that will be read from the file. So a record that
+ * starts within a segment is always entirely contained by that segment
+ * and can be accessed without copying.
+ * <p>
+ * All segments are mapped when the instance is constructed. Because
+ * mapping only reserves address space, this is an inexpensive operation
+ * and the resulting instance may be accessed by multiple threads without
+ * synchronization.
+ */
+class MappedFileSegments {
+
+    /**
+     * The default size for the non-overlapping portion of each segment.
+     */
+    static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+    private final long segmentSize;
+    private final long fileSize;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps the content of the file associated with the channel.
+     *
+     * @param channel a valid channel open for reading
+     * @param maxRecordSize the maximum size of a record that will be read
+     * from the file
+     * @throws IOException in the event of an I/O error
+     */
+    MappedFileSegments(FileChannel channel, int maxRecordSize) throws IOException {
+        this(channel, maxRecordSize, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Maps the content of the file associated with the channel using
+     * the specified segment size.
+     *
+     * @param channel a valid channel open for reading
+     * @param maxRecordSize the maximum size of a record that will be read
+     * from the file
+     * @param segmentSize the size of the non-overlapping portion of each
+     * segment
+     * @throws IOException in the event of an I/O error
+     */
+    MappedFileSegments(FileChannel channel, int maxRecordSize, long segmentSize)
+        throws IOException {
+        if (segmentSize <= 0 || segmentSize + maxRecordSize > Integer.MAX_VALUE) {
+            throw new IOException("Invalid segment size " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        fileSize = channel.size();
+        int nSegments = (int) ((fileSize + segmentSize - 1) / segmentSize);
+        segments = new MappedByteBuffer[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            long pos = i * segmentSize;
+            long size = segmentSize + maxRecordSize;
+            if (pos + size > fileSize) {
+                size = fileSize - pos;
+            }
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+        }
+    }
+
+    /**
+     * Gets the size of the file at the time it was mapped.
+     *
+     * @return a positive value
+     */
+    long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Gets a buffer giving a view of the specified range of bytes from the
+     * file. The buffer is set for little-endian byte order and its content
+     * is backed directly by the mapped file.
+     *
+     * @param filePos the file position for the start of the range
+     * @param length the number of bytes in the range; must not exceed the
+     * maximum record size specified when the instance was constructed.
+     * @return a valid buffer positioned at the start of the range.
+     * @throws IOException if the range is not within the file
+     */
+    ByteBuffer getBuffer(long filePos, int length) throws IOException {
+        if (filePos < 0 || filePos + length > fileSize) {
+            throw new IOException("Attempt to access range outside of mapped file");
+        }
+        int iSegment = (int) (filePos / segmentSize);
+        int offset = (int) (filePos - iSegment * segmentSize);
+        // the duplicate allows the position and limit to be set
+        // without interfering with other threads
+        ByteBuffer b = segments[iSegment].duplicate();
+        b.position(offset);
+        b.limit(offset + length);
+        return b.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,283 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+
+/**
+ * Computes the tiles for the overview levels of a file in a single pass
+ * over the tiles of the full-resolution grid.
+ * <p>
+ * Each tile of an overview level covers a 2-by-2 block of tiles in the
+ * level below it. The tiles are computed recursively, so that a tile
+ * for the top level is derived from the four tiles below it, which
+ * are in turn derived from the tiles below them. Each tile of the full grid
+ * is read once and each overview tile is stored as soon as it is computed,
+ * so only a few tiles per thread are held in memory at any time.
+ * The recursion is performed using the common fork-join pool, with
+ * each thread reading and encoding tiles using its own codec.
+ */
+class OverviewBuilder {
+
+    private final G93FileSpecification spec;
+    private final G93TileStore tileStore;
+    private final ThreadLocal<TileReadContext> readContext;
+    private final OverviewPyramid pyramid;
+    private final int nSamples;
+
+    /**
+     * Constructs a builder for the specified overview levels. The tile store
+     * must have an open channel for concurrent read operations.
+     *
+     * @param spec the specification for the file
+     * @param tileStore the tile store for the file
+     * @param readContext the resources for reading tiles, one per thread
+     * @param pyramid the overview levels to be computed
+     */
+    OverviewBuilder(
+        G93FileSpecification spec,
+        G93TileStore tileStore,
+        ThreadLocal<TileReadContext> readContext,
+        OverviewPyramid pyramid) {
+        this.spec = spec;
+        this.tileStore = tileStore;
+        this.readContext = readContext;
+        this.pyramid = pyramid;
+        nSamples = pyramid.sampling == G93OverviewSampling.AVERAGE ? 2 : 1;
+    }
+
+    /**
+     * Computes and stores the tiles for all overview levels.
+     *
+     * @throws IOException in the event of an I/O error
+     */
+    void build() throws IOException {
+        OverviewPyramid.Level top = pyramid.levels[pyramid.levels.length - 1];
+        final List<LevelTask> tasks = new ArrayList<>();
+        for (int tileRow = 0; tileRow < top.nRowsOfTiles; tileRow++) {
+            for (int tileCol = 0; tileCol < top.nColsOfTiles; tileCol++) {
+                tasks.add(new LevelTask(top, tileRow, tileCol, false));
+            }
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Computes and stores a single overview tile, first computing the
+     * tiles below it.
+     */
+    private class LevelTask extends RecursiveTask<RasterTile> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final OverviewPyramid.Level level;
+        private final int tileRow;
+        private final int tileCol;
+        private final boolean retainResult;
+
+        LevelTask(OverviewPyramid.Level level, int tileRow, int tileCol, boolean retainResult) {
+            this.level = level;
+            this.tileRow = tileRow;
+            this.tileCol = tileCol;
+            this.retainResult = retainResult;
+        }
+
+        @Override
+        protected RasterTile compute() {
+            try {
+                RasterTile[] children = new RasterTile[4];
+                if (level.level == 1) {
+                    readSourceTiles(children);
+                } else {
+                    computeSourceTiles(children);
+                }
+                RasterTile tile = RasterTile.allocate(spec,
+                    tileRow * level.nColsOfTiles + tileCol,
+                    tileRow, tileCol, true, null);
+                if (tile instanceof RasterTileInt) {
+                    combineInt(children, (RasterTileInt) tile);
+                } else {
+                    combineFloat(children, (RasterTileFloat) tile);
+                }
+                if (!tile.hasValidData()) {
+                    return null;
+                }
+                byte[] packing = tileStore.getCompressedPacking(
+                    tile, readContext.get().codec);
+                tileStore.storeOverviewTile(level, tile, packing);
+                return retainResult ? tile : null;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void readSourceTiles(RasterTile[] children) throws IOException {
+            for (int i = 0; i < 2; i++) {
+                int row = tileRow * 2 + i;
+                for (int j = 0; j < 2; j++) {
+                    int col = tileCol * 2 + j;
+                    if (row < spec.nRowsOfTiles && col < spec.nColsOfTiles) {
+                        int tileIndex = row * spec.nColsOfTiles + col;
+                        if (tileStore.doesTileExist(tileIndex)) {
+                            RasterTile tile = RasterTile.allocate(spec, tileIndex, false);
+                            tileStore.readTile(tile, readContext.get());
+                            children[i * 2 + j] = tile;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void computeSourceTiles(RasterTile[] children) {
+            OverviewPyramid.Level below = pyramid.getLevel(level.level - 1);
+            LevelTask[] tasks = new LevelTask[4];
+            List<LevelTask> taskList = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                int row = tileRow * 2 + i;
+                for (int j = 0; j < 2; j++) {
+                    int col = tileCol * 2 + j;
+                    if (row < below.nRowsOfTiles && col < below.nColsOfTiles) {
+                        tasks[i * 2 + j] = new LevelTask(below, row, col, true);
+                        taskList.add(tasks[i * 2 + j]);
+                    }
+                }
+            }
+            invokeAll(taskList);
+            for (int i = 0; i < 4; i++) {
+                if (tasks[i] != null) {
+                    children[i] = tasks[i].join();
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the values for an integer tile from the 2-by-2 block of
+     * tiles that it covers. Null values are excluded from the averages.
+     */
+    private void combineInt(RasterTile[] children, RasterTileInt tile) {
+        int nRows = tile.nRows;
+        int nCols = tile.nCols;
+        for (int iVariable = 0; iVariable < spec.dimension; iVariable++) {
+            int[] values = tile.valuesArray[iVariable];
+            for (int row = 0; row < nRows; row++) {
+                for (int col = 0; col < nCols; col++) {
+                    long sum = 0;
+                    int n = 0;
+                    for (int dr = 0; dr < nSamples; dr++) {
+                        int mRow = row * 2 + dr;
+                        int ci = mRow / nRows;
+                        int cRow = mRow - ci * nRows;
+                        for (int dc = 0; dc < nSamples; dc++) {
+                            int mCol = col * 2 + dc;
+                            int cj = mCol / nCols;
+                            RasterTileInt child = (RasterTileInt) children[ci * 2 + cj];
+                            if (child != null) {
+                                int v = child.valuesArray[iVariable][cRow * nCols + mCol - cj * nCols];
+                                if (v != INT4_NULL_CODE) {
+                                    sum += v;
+                                    n++;
+                                }
+                            }
+                        }
+                    }
+                    if (n > 0) {
+                        values[row * nCols + col] = (int) Math.round((double) sum / n);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the values for a floating-point tile from the 2-by-2 block
+     * of tiles that it covers. Null values are excluded from the averages.
+     */
+    private void combineFloat(RasterTile[] children, RasterTileFloat tile) {
+        int nRows = tile.nRows;
+        int nCols = tile.nCols;
+        for (int iVariable = 0; iVariable < spec.dimension; iVariable++) {
+            float[] values = tile.valuesArray[iVariable];
+            for (int row = 0; row < nRows; row++) {
+                for (int col = 0; col < nCols; col++) {
+                    double sum = 0;
+                    int n = 0;
+                    for (int dr = 0; dr < nSamples; dr++) {
+                        int mRow = row * 2 + dr;
+                        int ci = mRow / nRows;
+                        int cRow = mRow - ci * nRows;
+                        for (int dc = 0; dc < nSamples; dc++) {
+                            int mCol = col * 2 + dc;
+                            int cj = mCol / nCols;
+                            RasterTileFloat child = (RasterTileFloat) children[ci * 2 + cj];
+                            if (child != null) {
+                                float v = child.valuesArray[iVariable][cRow * nCols + mCol - cj * nCols];
+                                if (!Float.isNaN(v)) {
+                                    sum += v;
+                                    n++;
+                                }
+                            }
+                        }
+                    }
+                    if (n > 0) {
+                        values[row * nCols + col] = (float) (sum / n);
+                    }
+                }
+            }
+        }
+    }
+}
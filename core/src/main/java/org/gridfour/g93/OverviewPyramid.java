@@ -0,0 +1,208 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Describes the overview levels for a file and maintains a table of the
+ * file positions of the tiles for each level. Level 1 has half the
+ * resolution of the full grid, level 2 a quarter, and so forth.
+ * The tiles for the overview levels have the same dimensions as those
+ * of the full grid and are stored as non-tile records in the same file.
+ * <p>
+ * The tables are saved in the file as a variable-length record so that the
+ * overviews are available when the file is re-opened. Like the tile
+ * summaries, the record is stamped with the modification time of the file.
+ */
+class OverviewPyramid {
+
+    static final String USER_ID = "G93_Overviews";
+    static final String DESCRIPTION = "Overview tile positions";
+    static final int RECORD_ID = 0;
+
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * The geometry and tile positions for a single overview level.
+     */
+    static class Level {
+
+        final int level;
+        final int nRowsInGrid;
+        final int nColsInGrid;
+        final int nRowsOfTiles;
+        final int nColsOfTiles;
+        private final int[] tilePositions;
+
+        Level(G93FileSpecification spec, int level) {
+            this.level = level;
+            int scale = 1 << level;
+            nRowsInGrid = (spec.nRowsInRaster + scale - 1) / scale;
+            nColsInGrid = (spec.nColsInRaster + scale - 1) / scale;
+            nRowsOfTiles = (nRowsInGrid + spec.nRowsInTile - 1) / spec.nRowsInTile;
+            nColsOfTiles = (nColsInGrid + spec.nColsInTile - 1) / spec.nColsInTile;
+            tilePositions = new int[nRowsOfTiles * nColsOfTiles];
+        }
+
+        int getTileCount() {
+            return tilePositions.length;
+        }
+
+        void setTilePosition(int tileIndex, long filePos) {
+            tilePositions[tileIndex] = (int) (filePos / 8L);
+        }
+
+        long getTilePosition(int tileIndex) {
+            return ((long) tilePositions[tileIndex] & 0xffffffffL) * 8L;
+        }
+    }
+
+    final G93OverviewSampling sampling;
+    final Level[] levels;
+
+    /**
+     * Constructs an empty set of overview levels.
+     *
+     * @param spec a valid specification
+     * @param nLevels the number of levels
+     * @param sampling the method used to compute the values for the levels
+     */
+    OverviewPyramid(G93FileSpecification spec, int nLevels, G93OverviewSampling sampling) {
+        this.sampling = sampling;
+        levels = new Level[nLevels];
+        for (int i = 0; i < nLevels; i++) {
+            levels[i] = new Level(spec, i + 1);
+        }
+    }
+
+    /**
+     * Gets the maximum number of overview levels for a file. Levels are
+     * added until the grid for the last level fits within a single tile.
+     *
+     * @param spec a valid specification
+     * @return a positive integer, or zero if the grid fits in a single tile.
+     */
+    static int getMaximumLevelCount(G93FileSpecification spec) {
+        int nLevels = 0;
+        int nRows = spec.nRowsInRaster;
+        int nCols = spec.nColsInRaster;
+        while (nRows > spec.nRowsInTile || nCols > spec.nColsInTile) {
+            nRows = (nRows + 1) / 2;
+            nCols = (nCols + 1) / 2;
+            nLevels++;
+        }
+        return nLevels;
+    }
+
+    /**
+     * Gets the overview level, numbered from 1, for the specified level.
+     *
+     * @param level an integer in the range 1 to the number of levels
+     * @return a valid instance
+     */
+    Level getLevel(int level) {
+        return levels[level - 1];
+    }
+
+    /**
+     * Gets the content of the tables in the form used for storage.
+     *
+     * @param timeModified the modification time for the file, used to
+     * detect whether the tables are consistent with the file when read.
+     * @return a valid array
+     */
+    byte[] getPayload(long timeModified) {
+        int nTiles = 0;
+        for (Level level : levels) {
+            nTiles += level.getTileCount();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + nTiles * 4)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(timeModified);
+        buffer.putInt(sampling.codeValue);
+        buffer.putInt(levels.length);
+        for (Level level : levels) {
+            for (int i = 0; i < level.tilePositions.length; i++) {
+                buffer.putInt(level.tilePositions[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Constructs an instance from a payload obtained from getPayload().
+     *
+     * @param spec the specification for the file
+     * @param payload a valid array
+     * @param timeModified the modification time for the file
+     * @return if the payload is consistent with the file, a valid instance;
+     * otherwise, a null.
+     */
+    static OverviewPyramid load(
+        G93FileSpecification spec, byte[] payload, long timeModified) {
+        if (payload.length < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        long payloadTime = buffer.getLong();
+        int samplingCode = buffer.getInt();
+        int nLevels = buffer.getInt();
+        if (payloadTime != timeModified
+            || nLevels < 1 || nLevels > getMaximumLevelCount(spec)) {
+            return null;
+        }
+        OverviewPyramid pyramid = new OverviewPyramid(
+            spec, nLevels, G93OverviewSampling.valueOf(samplingCode));
+        long nTiles = 0;
+        for (Level level : pyramid.levels) {
+            nTiles += level.getTileCount();
+        }
+        if (payload.length < HEADER_SIZE + nTiles * 4) {
+            return null;
+        }
+        for (Level level : pyramid.levels) {
+            for (int i = 0; i < level.tilePositions.length; i++) {
+                level.tilePositions[i] = buffer.getInt();
+            }
+        }
+        return pyramid;
+    }
+}
@@ -39,6 +39,7 @@
 package org.gridfour.g93;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import org.gridfour.io.BufferedRandomAccessFile;
 
 /**
@@ -46,6 +47,11 @@ import org.gridfour.io.BufferedRandomAccessFile;
  */
 abstract class RasterTile {
 
+    // An estimate of the memory used by a tile in addition to its data,
+    // including the object headers for the tile and its arrays.
+    private static final int MEMORY_OVERHEAD = 96;
+    private static final int MEMORY_OVERHEAD_PER_ARRAY = 24;
+
     final int nRows;
     final int nCols;
     final int tileRow;
@@ -63,6 +69,14 @@ abstract class RasterTile {
     RasterTile prior;
     boolean writingRequired;
 
+    // used by the concurrent-access cache to indicate that the tile
+    // was accessed since the last time it was examined for replacement.
+    volatile boolean referenced;
+
+    // used by the 2Q replacement policy to indicate that the tile is
+    // held in its main queue rather than its admission queue.
+    boolean inMainQueue;
+
     /**
      * Constructs a tile and allocates memory for storage.
      *
@@ -96,6 +110,139 @@ abstract class RasterTile {
 
     }
 
+    /**
+     * Estimates the number of bytes of memory required for a tile.
+     *
+     * @param nValues the number of values in each variable of the tile
+     * @param dimension the number of variables in the tile
+     * @return a positive value
+     */
+    static long computeMemoryFootprint(int nValues, int dimension) {
+        return (long) nValues * dimension * 4
+            + MEMORY_OVERHEAD
+            + (dimension + 1) * MEMORY_OVERHEAD_PER_ARRAY;
+    }
+
+    /**
+     * Estimates the number of bytes of memory required for tiles
+     * conforming to the specified file.
+     *
+     * @param spec a valid specification
+     * @return a positive value
+     */
+    static long computeMemoryFootprint(G93FileSpecification spec) {
+        return computeMemoryFootprint(spec.nCellsInTile, spec.dimension);
+    }
+
+    /**
+     * Gets an estimate of the number of bytes of memory used by the tile.
+     *
+     * @return a positive value
+     */
+    long getMemoryFootprint() {
+        return computeMemoryFootprint(nValues, dimension);
+    }
+
+    /**
+     * Constructs a tile of the type appropriate for the data type given
+     * in the specification.
+     *
+     * @param spec a valid specification
+     * @param tileIndex the index of the tile within the raster grid.
+     * @param initializeValues true if the tile values are to be initialized
+     * to the null state; false if they will be populated by a read operation.
+     * @return a valid instance.
+     * @throws IOException in the event of an incorrectly specified data type.
+     */
+    static RasterTile allocate(
+        G93FileSpecification spec,
+        int tileIndex,
+        boolean initializeValues) throws IOException {
+        return allocate(spec, tileIndex, initializeValues, null);
+    }
+
+    /**
+     * Constructs a tile of the type appropriate for the data type given
+     * in the specification, re-using the memory from a tile that is
+     * no longer in use if one is supplied.
+     *
+     * @param spec a valid specification
+     * @param tileIndex the index of the tile within the raster grid.
+     * @param initializeValues true if the tile values are to be initialized
+     * to the null state; false if they will be populated by a read operation.
+     * @param recycledTile a tile conforming to the same specification that
+     * will not be accessed again, or a null if new memory is to be allocated.
+     * @return a valid instance.
+     * @throws IOException in the event of an incorrectly specified data type.
+     */
+    static RasterTile allocate(
+        G93FileSpecification spec,
+        int tileIndex,
+        boolean initializeValues,
+        RasterTile recycledTile) throws IOException {
+        int tileRow = tileIndex / spec.nColsOfTiles;
+        int tileCol = tileIndex - tileRow * spec.nColsOfTiles;
+        return allocate(spec, tileIndex, tileRow, tileCol, initializeValues, recycledTile);
+    }
+
+    /**
+     * Constructs a tile of the type appropriate for the data type given
+     * in the specification with the specified position. Intended for tiles,
+     * such as those of the overview levels, that are not indexed
+     * within the raster grid.
+     *
+     * @param spec a valid specification
+     * @param tileIndex the index of the tile
+     * @param tileRow the row of the tile within its grid of tiles
+     * @param tileCol the column of the tile within its grid of tiles
+     * @param initializeValues true if the tile values are to be initialized
+     * to the null state; false if they will be populated by a read operation.
+     * @param recycledTile a tile conforming to the same specification that
+     * will not be accessed again, or a null if new memory is to be allocated.
+     * @return a valid instance.
+     * @throws IOException in the event of an incorrectly specified data type.
+     */
+    static RasterTile allocate(
+        G93FileSpecification spec,
+        int tileIndex,
+        int tileRow,
+        int tileCol,
+        boolean initializeValues,
+        RasterTile recycledTile) throws IOException {
+        switch (spec.dataType) {
+            case INTEGER:
+            case INTEGER_CODED_FLOAT:
+                return new RasterTileInt(
+                    tileIndex,
+                    tileRow,
+                    tileCol,
+                    spec.nRowsInTile,
+                    spec.nColsInTile,
+                    spec.dimension,
+                    spec.valueScale,
+                    spec.valueOffset,
+                    initializeValues,
+                    recycledTile instanceof RasterTileInt
+                        ? ((RasterTileInt) recycledTile).valuesArray : null);
+            case FLOAT:
+                return new RasterTileFloat(
+                    tileIndex,
+                    tileRow,
+                    tileCol,
+                    spec.nRowsInTile,
+                    spec.nColsInTile,
+                    spec.dimension,
+                    spec.valueScale,
+                    spec.valueOffset,
+                    initializeValues,
+                    recycledTile instanceof RasterTileFloat
+                        ? ((RasterTileFloat) recycledTile).valuesArray : null);
+            default:
+                throw new IOException(
+                    "Incorrectly specified data format " + spec.dataType);
+        }
+    }
+
     byte[] getCompressedPacking(CodecMaster codec) throws IOException {
         // recall that compression is only defined for integers.
         // compress each element of the tile data and collect
@@ -143,6 +290,27 @@ abstract class RasterTile {
 
     abstract void readCompressedFormat(CodecMaster codec, BufferedRandomAccessFile braf, int payloadSize) throws IOException;
 
+    /**
+     * Populates the tile from a non-compressed record payload held in
+     * a byte buffer. The buffer must be set for little-endian byte order
+     * and positioned at the start of the payload.
+     *
+     * @param buffer a valid buffer.
+     * @throws IOException in the event of an insufficient payload
+     */
+    abstract void readStandardFormat(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Populates the tile from a compressed record payload held in
+     * a byte buffer. The buffer must be set for little-endian byte order
+     * and positioned at the start of the payload.
+     *
+     * @param codec the codec to be used for decompression
+     * @param buffer a valid buffer.
+     * @throws IOException in the event of an incompatible packing
+     */
+    abstract void readCompressedFormat(CodecMaster codec, ByteBuffer buffer) throws IOException;
+
     abstract void setIntValue(int tileRow, int tileColumn, int value);
 
     abstract int getIntValue(int tileRow, int tileColumn);
@@ -40,7 +40,15 @@ package org.gridfour.g93;
 
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 /**
  * Provides a cache for managing tiles
@@ -49,16 +57,47 @@ class RasterTileCache {
 
     private static final int DEFAULT_TILE_CACHE_SIZE = 16;
 
+    // the number of slots in the direct-mapped table of recently
+    // accessed tiles, must be a power of two.
+    private static final int RECENT_TILE_SLOTS = 8;
+    private static final int RECENT_TILE_MASK = RECENT_TILE_SLOTS - 1;
+
     int tileCacheSize;
     int nTilesInCache;
-    RasterTile firstTile;
-    RasterTile lastTile;
+    long tileCacheSizeInBytes = Long.MAX_VALUE;
+    long nBytesInCache;
+    final long tileFootprint;
+    // the tile that was most recently accessed
+    RasterTile recentTile;
+    private TileReplacementPolicy policy = new TileReplacementPolicyLru();
     final G93TileStore tileStore;
     final G93FileSpecification spec;
 
-    HashMap<Integer, RasterTile> tileMap = new HashMap<>();
+    final IntTileMap tileMap;
+
+    // a direct-mapped table of recently accessed tiles, indexed by the
+    // low-order bits of the tile index, checked before the tile map.
+    private final RasterTile[] recentTiles = new RasterTile[RECENT_TILE_SLOTS];
     int priorUnsatistiedRequest = -1;
 
+    // the prefetcher is non-null only when prefetching is enabled
+    private TilePrefetcher prefetcher;
+
+    // the write-behind processor is non-null only when write-behind is enabled
+    private TileWriteBehind writeBehind;
+
+    // the secondary cache of compressed packings is non-null only
+    // when it is enabled
+    private CompressedTileCache compressedCache;
+
+    // tiles removed from the cache whose memory may be re-used
+    private final RasterTilePool tilePool;
+
+    // the executor used for compressing tiles when the cache is flushed.
+    // a null indicates that the tiles are compressed by the calling thread.
+    private Executor flushExecutor = ForkJoinPool.commonPool();
+    private ThreadLocal<CodecMaster> flushCodec;
+
     // Counters for gathering access statistics
     private long nTileGets;
     private long nTileFoundInCache;
@@ -66,21 +105,119 @@ class RasterTileCache {
     private long nTilesWritten;
     private long nTilesDiscarded;
     private long nTileFirst;
+    private long nTileMisses;
 
     RasterTileCache(G93FileSpecification spec, G93TileStore tileStore) {
         tileCacheSize = DEFAULT_TILE_CACHE_SIZE;
         this.tileStore = tileStore;
         this.spec = spec;
+        this.tileFootprint = RasterTile.computeMemoryFootprint(spec);
+        this.tileMap = new IntTileMap(spec.nRowsOfTiles * spec.nColsOfTiles);
+        this.tilePool = new RasterTilePool(spec);
     }
 
+    /**
+     * Sets the maximum number of tiles to be held in the cache.
+     * Any limit on the number of bytes is removed.
+     *
+     * @param tileCacheSize a positive value
+     * @throws IOException in the event of an I/O error writing tiles
+     * that are removed from the cache.
+     */
     void setTileCacheSize(int tileCacheSize) throws IOException {
         if (tileCacheSize < 0) {
             throw new IOException(
                 "Cache size less than zero is not supported");
         }
         this.tileCacheSize = tileCacheSize;
-        while (nTilesInCache > tileCacheSize) {
-            discardLastTile();
+        this.tileCacheSizeInBytes = Long.MAX_VALUE;
+        policy.setCapacity(getCapacityInTiles());
+        trimToSize();
+    }
+
+    /**
+     * Sets the maximum number of bytes of memory to be used by tiles held
+     * in the cache. Any limit on the number of tiles is removed.
+     * Regardless of the setting, the cache always holds at least the
+     * most recently accessed tile.
+     *
+     * @param tileCacheSizeInBytes a positive value
+     * @throws IOException in the event of an I/O error writing tiles
+     * that are removed from the cache.
+     */
+    void setTileCacheSizeInBytes(long tileCacheSizeInBytes) throws IOException {
+        if (tileCacheSizeInBytes <= 0) {
+            throw new IOException(
+                "Cache size less than one byte is not supported");
+        }
+        this.tileCacheSize = Integer.MAX_VALUE;
+        this.tileCacheSizeInBytes = tileCacheSizeInBytes;
+        policy.setCapacity(getCapacityInTiles());
+        trimToSize();
+    }
+
+    private int getCapacityInTiles() {
+        long n = tileCacheSizeInBytes / tileFootprint;
+        if (n > tileCacheSize) {
+            n = tileCacheSize;
+        }
+        return n < 1 ? 1 : (int) n;
+    }
+
+    /**
+     * Sets the policy used to select tiles for removal when the cache
+     * is full. The tiles currently in the cache are retained.
+     *
+     * @param cachePolicy a valid specification
+     */
+    void setCachePolicy(G93CachePolicy cachePolicy) {
+        if (policy.getPolicy() == cachePolicy) {
+            return;
+        }
+        TileReplacementPolicy newPolicy = TileReplacementPolicy.create(cachePolicy);
+        newPolicy.setCapacity(getCapacityInTiles());
+        // transfer the tiles in the order in which the old policy
+        // would have removed them.
+        RasterTile tile;
+        while ((tile = policy.selectTileForRemoval()) != null) {
+            newPolicy.tileAdded(tile);
+        }
+        policy = newPolicy;
+    }
+
+    G93CachePolicy getCachePolicy() {
+        return policy.getPolicy();
+    }
+
+    /**
+     * Gets an estimate of the number of bytes of memory currently used
+     * by the tiles held in the cache.
+     *
+     * @return a positive value, or zero if the cache is empty.
+     */
+    long getBytesInCache() {
+        return nBytesInCache;
+    }
+
+    private void trimToSize() throws IOException {
+        while (nTilesInCache > tileCacheSize
+            || (nTilesInCache > 1 && nBytesInCache > tileCacheSizeInBytes)) {
+            discardTile();
+        }
+    }
+
+    /**
+     * Discards tiles until there is room in the cache for one
+     * additional tile.
+     *
+     * @throws IOException in the event of an I/O error writing tiles
+     * that are removed from the cache.
+     */
+    private void makeRoomForTile() throws IOException {
+        while (nTilesInCache > 0
+            && (nTilesInCache >= tileCacheSize
+            || nBytesInCache > tileCacheSizeInBytes - tileFootprint)) {
+            discardTile();
         }
     }
 
@@ -93,34 +230,46 @@ class RasterTileCache {
         }
 
         RasterTile tile;
-        if (firstTile != null) {
-            // first, check for what we hope will be he most common case: the request
-            // falling into the same tile that was most recently loaded.
-            if (firstTile.tileIndex == tileIndex) {
-                nTileFirst++;
-                nTileFoundInCache++;
-                return firstTile;
-            }
+        // first, check for what we hope will be he most common case: the request
+        // falling into the same tile that was most recently loaded.
+        if (recentTile != null && recentTile.tileIndex == tileIndex) {
+            nTileFirst++;
+            nTileFoundInCache++;
+            return recentTile;
+        }
+        int slot = tileIndex & RECENT_TILE_MASK;
+        tile = recentTiles[slot];
+        if (tile == null || tile.tileIndex != tileIndex) {
             tile = tileMap.get(tileIndex);
+        }
+        if (tile != null) {
+            policy.tileAccessed(tile);
+            recentTile = tile;
+            recentTiles[slot] = tile;
+            nTileFoundInCache++;
+            if (prefetcher != null) {
+                prefetcher.recordAccess(tileIndex, this);
+            }
+            return tile;
+        }
+
+        nTileMisses++;
+
+        // the tile was not found in the cache.  If it is queued
+        // for writing, it is not yet reflected in the file and must be
+        // reclaimed from the write-behind processor.
+        if (writeBehind != null) {
+            tile = writeBehind.reclaim(tileIndex);
             if (tile != null) {
-                // we've already established that the tile is not the first tile
-                tile.prior.next = tile.next;
-                if (tile.next == null) {
-                    lastTile = tile.prior;
-                } else {
-                    tile.next.prior = tile.prior;
-                }
-                tile.next = firstTile;
-                firstTile.prior = tile;
-                tile.prior = null;
-                firstTile = tile;
-                nTileFoundInCache++;
+                makeRoomForTile();
+                addTileToCache(tile);
                 return tile;
             }
+        }
 
-            // the tile was not found in the cache.  If the tile exists
-            // in the file, read it and add it to the cache.  Otherwise,
-            // return a null to indicate "not found"
+        if (nTilesInCache > 0) {
+            // If the tile exists in the file, read it and add it to the cache.
+            // Otherwise, return a null to indicate "not found"
             if (!tileStore.doesTileExist(tileIndex)) {
                 priorUnsatistiedRequest = tileIndex;
                 return null;
@@ -128,64 +277,189 @@ class RasterTileCache {
 
             // we're going to read in a new tile.  If the cache is full, we
             // need to discard the oldest tile.
-            if (nTilesInCache == tileCacheSize) {
-                // the cache is full, make room for the new tile
-                discardLastTile();
+            makeRoomForTile();
+        }
+
+        // tile is not in the cache.  If it was loaded by the prefetcher,
+        // use it.  Otherwise, allocate a new tile and read its content
+        // from the file.  In either case, add it to the cache.
+        tile = null;
+        if (prefetcher != null) {
+            prefetcher.recordAccess(tileIndex, this);
+            tile = prefetcher.claim(tileIndex);
+        }
+        if (tile == null) {
+            tile = tilePool.allocate(tileIndex, false);
+            if (compressedCache == null) {
+                nTileRead++;
+                tileStore.readTile(tile);
+            } else {
+                loadTileUsingCompressedCache(tile);
+            }
+        }
+
+        addTileToCache(tile);
+        return tile;
+    }
+
+    /**
+     * Gets the maximum number of tiles that should be loaded by a single
+     * call to loadTiles. The value is chosen so that a batch of tiles
+     * does not displace the whole content of the cache.
+     *
+     * @return a positive value
+     */
+    int getBatchSizeInTiles() {
+        int n = getCapacityInTiles() / 2;
+        return n < 1 ? 1 : n;
+    }
+
+    /**
+     * Loads a set of tiles into the cache in advance of their use.
+     * Tiles that are not in the cache are read from the file in
+     * order of file position, combining nearby records into a single
+     * read operation. If a flush executor is set, the tiles are decoded
+     * in parallel. Tiles that are already in the cache or that do
+     * not exist in the file are ignored.
+     * <p>
+     * Batch loading is not performed when prefetching, write-behind, or
+     * the compressed-tile cache is enabled because those features
+     * track individual tile accesses. In that case, tiles are loaded
+     * on demand by getTile.
+     *
+     * @param tileIndices an array of distinct tile indices
+     * @param offset the starting position within the array
+     * @param nTiles the number of tiles to be loaded, should not
+     * exceed the value given by getBatchSizeInTiles
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    void loadTiles(int[] tileIndices, int offset, int nTiles) throws IOException {
+        if (prefetcher != null || writeBehind != null || compressedCache != null) {
+            return;
+        }
+        List<RasterTile> tiles = new ArrayList<>(nTiles);
+        for (int i = offset; i < offset + nTiles; i++) {
+            int tileIndex = tileIndices[i];
+            if (tileMap.containsKey(tileIndex)) {
+                continue;
             }
+            if (tileStore.doesTileExist(tileIndex)) {
+                tiles.add(tilePool.allocate(tileIndex, false));
+            }
+        }
+        if (tiles.isEmpty()) {
+            return;
         }
 
-        // tile is not in the cache.  allocate a new tile, read its content from the
-        // file and add it to the cache.
-        int tileRow = tileIndex / spec.nColsOfTiles;
-        int tileCol = tileIndex - tileRow * spec.nColsOfTiles;
-        switch (spec.dataType) {
-            case INTEGER:
-            case INTEGER_CODED_FLOAT:
-                tile = new RasterTileInt(
-                    tileIndex,
-                    tileRow,
-                    tileCol,
-                    spec.nRowsInTile,
-                    spec.nColsInTile,
-                    spec.dimension,
-                    spec.valueScale,
-                    spec.valueOffset,
-                    false);
-                break;
-            case FLOAT:
-                tile = new RasterTileFloat(
-                    tileIndex,
-                    tileRow,
-                    tileCol,
-                    spec.nRowsInTile,
-                    spec.nColsInTile,
-                    spec.dimension,
-                    spec.valueScale,
-                    spec.valueOffset,
-                    false);
-                break;
-            default:
-                throw new IOException(
-                    "Incorrectly specified data format " + spec.dataType);
+        Executor executor = flushExecutor;
+        if (tiles.size() < 2) {
+            executor = null;
+        }
+        tileStore.readTiles(tiles, executor, executor == null ? null : getWorkerCodec());
+        for (RasterTile tile : tiles) {
+            nTileRead++;
+            makeRoomForTile();
+            addTileToCache(tile);
         }
+    }
 
+    private void loadTileUsingCompressedCache(RasterTile tile) throws IOException {
+        byte[] packing = compressedCache.get(tile.tileIndex);
+        if (packing != null) {
+            tile.readCompressedFormat(
+                tileStore.getCodecMaster(), G93TileStore.wrapPacking(packing));
+            return;
+        }
         nTileRead++;
-        tileStore.readTile(tile);
+        packing = tileStore.readTile(tile, true);
+        if (packing != null) {
+            compressedCache.put(tile.tileIndex, packing);
+        }
+    }
 
-        // add to head of linked list
-        tileMap.put(tile.tileIndex, tile);
+    private void addTileToCache(RasterTile tile) {
+        tileMap.put(tile);
         nTilesInCache++;
+        nBytesInCache += tile.getMemoryFootprint();
         assert nTilesInCache == tileMap.size() : "cache size mismatch";
-        if (firstTile == null) {
-            firstTile = tile;
-            lastTile = tile;
+        policy.tileAdded(tile);
+        recentTile = tile;
+        recentTiles[tile.tileIndex & RECENT_TILE_MASK] = tile;
+    }
+
+    /**
+     * Waits until any tiles queued for write-behind are written to
+     * the file. Tiles that are still in the cache are not written.
+     *
+     * @throws IOException in the event of a background I/O error
+     */
+    void drainWriteBehind() throws IOException {
+        if (writeBehind != null) {
+            writeBehind.drain();
+        }
+    }
+
+    /**
+     * Indicates whether the tile with the specified index is currently
+     * held in the cache.
+     *
+     * @param tileIndex a valid tile index
+     * @return true if the tile is in the cache; otherwise, false.
+     */
+    boolean isTileInCache(int tileIndex) {
+        return tileMap.containsKey(tileIndex);
+    }
+
+    /**
+     * Sets the prefetcher to be used by the cache. The cache takes
+     * ownership of the prefetcher and will shut down any prefetcher
+     * that it replaces.
+     *
+     * @param prefetcher a valid instance, or a null to disable prefetching.
+     */
+    void setPrefetcher(TilePrefetcher prefetcher) {
+        if (this.prefetcher != null) {
+            this.prefetcher.shutdown();
+        }
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Sets the size of the secondary cache of compressed packings.
+     * When the secondary cache is enabled, the compressed packings of
+     * tiles that are read from the file are retained so that the tiles
+     * may be decoded again without file access after they are removed
+     * from the primary cache.
+     *
+     * @param sizeInBytes a positive value, or zero to disable the
+     * secondary cache.
+     */
+    void setCompressedCacheSizeInBytes(long sizeInBytes) {
+        if (sizeInBytes == 0) {
+            compressedCache = null;
         } else {
-            tile.next = firstTile;
-            firstTile.prior = tile;
-            firstTile = tile;
+            compressedCache = new CompressedTileCache(sizeInBytes);
         }
+    }
 
-        return tile;
+    /**
+     * Sets the write-behind processor to be used by the cache. The cache
+     * takes ownership of the processor and will drain and shut down
+     * any processor that it replaces.
+     *
+     * @param writeBehind a valid instance, or a null to disable write-behind.
+     * @throws IOException in the event of an I/O error writing pending tiles
+     */
+    void setWriteBehind(TileWriteBehind writeBehind) throws IOException {
+        TileWriteBehind prior = this.writeBehind;
+        this.writeBehind = writeBehind;
+        if (prior != null) {
+            try {
+                prior.drain();
+            } finally {
+                prior.shutdown();
+            }
+        }
     }
 
     RasterTile allocateNewTile(int tileIndex) throws IOException {
@@ -196,97 +470,232 @@ class RasterTileCache {
         }
         this.priorUnsatistiedRequest = -1;
 
-        int tileRow = tileIndex / spec.nColsOfTiles;
-        int tileCol = tileIndex - tileRow * spec.nColsOfTiles;
-
-        switch (spec.dataType) {
-            case INTEGER:
-            case INTEGER_CODED_FLOAT:
-                tile = new RasterTileInt(
-                    tileIndex,
-                    tileRow,
-                    tileCol,
-                    spec.nRowsInTile,
-                    spec.nColsInTile,
-                    spec.dimension,
-                    spec.valueScale,
-                    spec.valueOffset,
-                    true);
-                break;
-            case FLOAT:
-                tile = new RasterTileFloat(
-                    tileIndex,
-                    tileRow,
-                    tileCol,
-                    spec.nRowsInTile,
-                    spec.nColsInTile,
-                    spec.dimension,
-                    spec.valueScale,
-                    spec.valueOffset,
-                    true);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid data format specification "
-                    + spec.dataType);
-        }
-
-        if (nTilesInCache == tileCacheSize) {
-            discardLastTile();
-        }
-        if (firstTile == null) {
-            firstTile = tile;
-            lastTile = tile;
-        } else {
-            tile.next = firstTile;
-            firstTile.prior = tile;
-            firstTile = tile;
-        }
-        nTilesInCache++;
-        tileMap.put(tileIndex, tile);
+        makeRoomForTile();
+        tile = tilePool.allocate(tileIndex, true);
+
+        addTileToCache(tile);
         return tile;
 
     }
 
-    private void discardLastTile() throws IOException {
-        if (lastTile == null) {
+    private void discardTile() throws IOException {
+        RasterTile temp = policy.selectTileForRemoval();
+        if (temp == null) {
             return;
         }
         nTilesDiscarded++;
-
-        RasterTile temp = lastTile;
-
-        if (nTilesInCache == 1) {
-            nTilesInCache = 0;
-            firstTile = null;
-            lastTile = null;
-            tileMap.clear();
-        } else {
-            nTilesInCache--;
-            lastTile = lastTile.prior;
-            lastTile.next = null;
-            tileMap.remove(temp.tileIndex);
+        nBytesInCache -= temp.getMemoryFootprint();
+        nTilesInCache--;
+        tileMap.remove(temp.tileIndex);
+        if (temp == recentTile) {
+            recentTile = null;
+        }
+        int slot = temp.tileIndex & RECENT_TILE_MASK;
+        if (recentTiles[slot] == temp) {
+            recentTiles[slot] = null;
         }
 
         if (temp.isWritingRequired()) {
-            storeTile(temp);
+            if (writeBehind == null) {
+                storeTile(temp);
+            } else {
+                nTilesWritten++;
+                if (compressedCache != null) {
+                    compressedCache.remove(temp.tileIndex);
+                }
+                // the write-behind processor retains the tile until
+                // it is written, so its memory cannot be re-used.
+                temp.clear();
+                writeBehind.submit(temp);
+                return;
+            }
         }
 
         temp.clear();
+        tilePool.release(temp);
     }
 
     void storeTile(RasterTile tile) throws IOException {
         nTilesWritten++;
-        tileStore.storeTile(tile);
+        if (compressedCache == null) {
+            tileStore.storeTile(tile);
+        } else {
+            byte[] packing = tileStore.getCompressedPacking(
+                tile, tileStore.getCodecMaster());
+            tileStore.storeTile(tile, packing);
+            updateCompressedCache(tile.tileIndex, packing);
+        }
         tile.clearWritingRequired();
     }
 
+    /**
+     * Indicates whether a tile may be written directly to the file
+     * without being added to the cache. This is possible only if the
+     * tile is not held in the cache and write-behind is not enabled,
+     * since either would hold content that could later replace
+     * the tile.
+     *
+     * @param tileIndex a valid tile index
+     * @return true if the tile may be written directly; otherwise, false.
+     */
+    boolean isBypassPossible(int tileIndex) {
+        return writeBehind == null && !tileMap.containsKey(tileIndex);
+    }
+
+    /**
+     * Writes a tile that is not held in the cache directly to the file.
+     * The caller is expected to have confirmed that this is possible
+     * using isBypassPossible().
+     *
+     * @param tile a valid tile
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
+    void storeTileBypassingCache(RasterTile tile) throws IOException {
+        assert isBypassPossible(tile.tileIndex) : "tile bypass not possible";
+        if (priorUnsatistiedRequest == tile.tileIndex) {
+            priorUnsatistiedRequest = -1;
+        }
+        storeTile(tile);
+    }
+
+    /**
+     * Replaces the packing in the secondary cache when a tile is stored.
+     *
+     * @param tileIndex the index of the tile
+     * @param packing the packing that was stored, or a null if the tile
+     * was stored in the standard format or contained no data.
+     */
+    private void updateCompressedCache(int tileIndex, byte[] packing) {
+        if (compressedCache != null) {
+            if (packing == null) {
+                compressedCache.remove(tileIndex);
+            } else {
+                compressedCache.put(tileIndex, packing);
+            }
+        }
+    }
+
+    /**
+     * Sets the executor that is used to compress tiles when the cache
+     * is flushed and to decode tiles that are loaded in batches.
+     * By default, the common fork-join pool is used.
+     *
+     * @param executor a valid executor, or a null if tiles are to be
+     * processed by the calling thread.
+     */
+    void setFlushExecutor(Executor executor) {
+        flushExecutor = executor;
+    }
+
+    /**
+     * Writes all tiles that have been modified to the file. Tiles are
+     * written in order of tile index so that the content of the file
+     * does not depend on the access history of the cache. When data
+     * compression is enabled and a flush executor is set, the tiles
+     * are compressed in parallel, but the file is always written by
+     * the calling thread. Thus the content of the file is the same
+     * regardless of whether the compression is performed in parallel.
+     *
+     * @throws IOException in the event of an unrecoverable I/O error
+     */
     void flush() throws IOException {
-        RasterTile tile = firstTile;
-        while (tile != null) {
+        drainWriteBehind();
+
+        List<RasterTile> dirtyTiles = new ArrayList<>();
+        for (RasterTile tile : tileMap.values()) {
             if (tile.isWritingRequired()) {
+                dirtyTiles.add(tile);
+            }
+        }
+        if (dirtyTiles.isEmpty()) {
+            return;
+        }
+        Collections.sort(dirtyTiles, new Comparator<RasterTile>() {
+            @Override
+            public int compare(RasterTile t1, RasterTile t2) {
+                return Integer.compare(t1.tileIndex, t2.tileIndex);
+            }
+        });
+
+        if (flushExecutor == null
+            || dirtyTiles.size() < 2
+            || !spec.isDataCompressionEnabled()) {
+            for (RasterTile tile : dirtyTiles) {
                 storeTile(tile);
             }
-            tile = tile.next;
+            return;
+        }
+
+        final ThreadLocal<CodecMaster> codecs = getWorkerCodec();
+
+        // submit all the tiles for compression, then write the results
+        // in tile-index order as they become available.
+        List<FutureTask<byte[]>> tasks = new ArrayList<>(dirtyTiles.size());
+        for (final RasterTile tile : dirtyTiles) {
+            FutureTask<byte[]> task = new FutureTask<>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return tileStore.getCompressedPacking(tile, codecs.get());
+                }
+            });
+            tasks.add(task);
+            flushExecutor.execute(task);
+        }
+
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                RasterTile tile = dirtyTiles.get(i);
+                byte[] packing = getPacking(tile, tasks.get(i));
+                tasks.set(i, null);
+                nTilesWritten++;
+                tileStore.storeTile(tile, packing);
+                updateCompressedCache(tile.tileIndex, packing);
+                tile.clearWritingRequired();
+            }
+        } finally {
+            // if a failure occurred, cancel any tasks that have not yet run
+            for (FutureTask<byte[]> task : tasks) {
+                if (task != null) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a source of codecs for use by the threads of the flush
+     * executor. Because codecs are not thread safe, each thread
+     * receives its own copy.
+     *
+     * @return a valid instance
+     */
+    private ThreadLocal<CodecMaster> getWorkerCodec() {
+        if (flushCodec == null) {
+            final CodecMaster codecMaster = tileStore.getCodecMaster();
+            flushCodec = new ThreadLocal<CodecMaster>() {
+                @Override
+                protected CodecMaster initialValue() {
+                    return codecMaster.copy();
+                }
+            };
+        }
+        return flushCodec;
+    }
+
+    private byte[] getPacking(RasterTile tile, FutureTask<byte[]> task)
+        throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing tile "
+                + tile.tileIndex, ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to compress tile " + tile.tileIndex, cause);
         }
     }
 
@@ -297,6 +706,8 @@ class RasterTileCache {
         nTilesWritten = 0;
         nTilesDiscarded = 0;
         nTileFirst = 0;
+        nTileMisses = 0;
+        tilePool.resetCounts();
     }
 
     void summarize(PrintStream ps) {
@@ -313,12 +724,28 @@ class RasterTileCache {
             }
         }
         ps.format("Tile Cache%n");
+        ps.format("   Replacement Policy:        %12s%n", policy.getPolicy());
         ps.format("   Tiles In Map:              %12d%n", tileMap.size());
+        ps.format("   Bytes In Cache:            %12d%n", nBytesInCache);
+        if (tileCacheSizeInBytes < Long.MAX_VALUE) {
+            ps.format("   Byte Limit:                %12d%n", tileCacheSizeInBytes);
+        }
         ps.format("   Tiles Fetched:             %12d%n", nTileGets);
         ps.format("   Tiles Fetched from Cache:  %12d (%4.1f%%)%n", nTileFoundInCache, percentInCache);
+        ps.format("   Cache Misses:              %12d%n", nTileMisses);
         ps.format("   Repeated Fetches:          %12d (%4.1f%%)%n", nTileFirst, percentFirst);
         ps.format("   Tiles Read:                %12d%n", nTileRead);
         ps.format("   Tiles Written:             %12d%n", nTilesWritten);
         ps.format("   Tiles Dropped From Cache:  %12d%n", nTilesDiscarded);
+        tilePool.summarize(ps);
+        if (prefetcher != null) {
+            prefetcher.summarize(ps);
+        }
+        if (writeBehind != null) {
+            writeBehind.summarize(ps);
+        }
+        if (compressedCache != null) {
+            compressedCache.summarize(ps);
+        }
     }
 }
@@ -43,6 +43,8 @@
 package org.gridfour.g93;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 import org.gridfour.io.BufferedRandomAccessFile;
 import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
@@ -66,6 +68,8 @@ class RasterTileFloat extends RasterTile {
      * (strictly for diagnostic purposes).
      * @param nRows the number of rows in the tile.
      * @param nColumns the number of columns in the tile.
+     * @param recycledArrays the value arrays from a tile that is
+     * no longer in use, or a null if new arrays are to be allocated.
      */
     RasterTileFloat(
         int tileIndex,
@@ -76,7 +80,8 @@ class RasterTileFloat extends RasterTile {
         int dimension,
         float valueScale,
         float valueOffset,
-        boolean initializeValues) {
+        boolean initializeValues,
+        float[][] recycledArrays) {
         super(tileIndex,
             tileRow,
             tileColumn,
@@ -86,11 +91,14 @@ class RasterTileFloat extends RasterTile {
             valueScale,
             valueOffset);
 
-        valuesArray = new float[dimension][nValues];
-        for (int i = 0; i < dimension; i++) {
-            valuesArray[i] = new float[nValues];
-            if (initializeValues) {
-                Arrays.fill(valuesArray[i], INT4_NULL_CODE);
+        if (recycledArrays == null) {
+            valuesArray = new float[dimension][nValues];
+        } else {
+            valuesArray = recycledArrays;
+        }
+        if (initializeValues) {
+            for (int i = 0; i < dimension; i++) {
+                Arrays.fill(valuesArray[i], Float.NaN);
             }
         }
         values = valuesArray[0];
@@ -130,29 +138,60 @@ class RasterTileFloat extends RasterTile {
     @Override
     void readCompressedFormat(CodecMaster codec, BufferedRandomAccessFile braf, int payloadSize) throws IOException {
 
-        byte[] packing = new byte[payloadSize];
+        byte[] header = new byte[4];
         for (int iVariable = 0; iVariable < dimension; iVariable++) {
-            braf.readFully(packing, 0, 4);
-            int a = packing[0] & 0xff;
-            int b = packing[1] & 0xff;
-            int c = packing[2] & 0xff;
-            int d = packing[3] & 0xff;
+            braf.readFully(header, 0, 4);
+            int a = header[0] & 0xff;
+            int b = header[1] & 0xff;
+            int c = header[2] & 0xff;
+            int d = header[3] & 0xff;
             int n = (((((d << 8) | c) << 8) | b) << 8) | a;
+            // the codecs expect the packing to be exactly the size
+            // of the encoded data.
+            byte[] packing = new byte[n];
             braf.readFully(packing, 0, n);
-            if (codec.implementsFloatEncoding()) {
-                float[] v = codec.decodeFloats(nRows, nCols, packing);
-                System.arraycopy(v, 0, valuesArray[iVariable], 0, values.length);
-            } else {
-                int[] v = codec.decode(nRows, nCols, packing);
-                float[] f = valuesArray[iVariable];
-                for (int i = 0; i < values.length; i++) {
-                    f[i] = v[i] / valueScale + valueOffset;
-                }
-            }
+            decodePacking(codec, packing, iVariable);
         }
 
     }
 
+    @Override
+    void readStandardFormat(ByteBuffer buffer) throws IOException {
+        FloatBuffer floatBuffer = buffer.asFloatBuffer();
+        for (int iVariable = 0; iVariable < dimension; iVariable++) {
+            floatBuffer.get(valuesArray[iVariable], 0, nValues);
+        }
+        buffer.position(buffer.position() + dimension * nValues * 4);
+    }
+
+    @Override
+    void readCompressedFormat(CodecMaster codec, ByteBuffer buffer) throws IOException {
+        for (int iVariable = 0; iVariable < dimension; iVariable++) {
+            int n = buffer.getInt();
+            byte[] packing = new byte[n];
+            buffer.get(packing, 0, n);
+            decodePacking(codec, packing, iVariable);
+        }
+    }
+
+    private void decodePacking(CodecMaster codec, byte[] packing, int iVariable)
+        throws IOException {
+        float[] f = valuesArray[iVariable];
+        if (codec.implementsFloatEncoding()) {
+            if (!codec.decodeFloats(nRows, nCols, packing, f)) {
+                throw new IOException("Unable to decode tile " + tileIndex);
+            }
+        } else {
+            int[] v = codec.getIntScratch(nValues);
+            if (!codec.decode(nRows, nCols, packing, v)) {
+                throw new IOException("Unable to decode tile " + tileIndex);
+            }
+            for (int i = 0; i < nValues; i++) {
+                f[i] = v[i] / valueScale + valueOffset;
+            }
+        }
+    }
+
     @Override
     void setIntValue(int tileRow, int tileColumn, int value) {
         int index = tileRow * nCols + tileColumn;
@@ -213,7 +252,9 @@ class RasterTileFloat extends RasterTile {
 
     @Override
     void setToNullState() {
-        Arrays.fill(values, Float.NaN);
+        for (int i = 0; i < dimension; i++) {
+            Arrays.fill(valuesArray[i], Float.NaN);
+        }
     }
 
     @Override
@@ -39,6 +39,8 @@
 package org.gridfour.g93;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 import org.gridfour.io.BufferedRandomAccessFile;
 import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
@@ -62,6 +64,8 @@ class RasterTileInt extends RasterTile {
      * (strictly for diagnostic purposes).
      * @param nRows the number of rows in the tile.
      * @param nColumns the number of columns in the tile.
+     * @param recycledArrays the value arrays from a tile that is
+     * no longer in use, or a null if new arrays are to be allocated.
      */
     RasterTileInt(
         int tileIndex,
@@ -72,7 +76,8 @@ class RasterTileInt extends RasterTile {
         int dimension,
         float valueScale,
         float valueOffset,
-        boolean initializeValues) {
+        boolean initializeValues,
+        int[][] recycledArrays) {
         super(tileIndex,
             tileRow,
             tileColumn,
@@ -82,10 +87,13 @@ class RasterTileInt extends RasterTile {
             valueScale,
             valueOffset);
 
-        valuesArray = new int[dimension][nValues];
-        for (int i = 0; i < dimension; i++) {
-            valuesArray[i] = new int[nValues];
-            if (initializeValues) {
+        if (recycledArrays == null) {
+            valuesArray = new int[dimension][nValues];
+        } else {
+            valuesArray = recycledArrays;
+        }
+        if (initializeValues) {
+            for (int i = 0; i < dimension; i++) {
                 Arrays.fill(valuesArray[i], INT4_NULL_CODE);
             }
         }
@@ -133,12 +141,30 @@ class RasterTileInt extends RasterTile {
             int d = packing[3] & 0xff;
             int n = (((((d << 8) | c) << 8) | b) << 8) | a;
             braf.readFully(packing, 0, n);
-            int[] v = codec.decode(nRows, nCols, packing);
-            if (v == null) {
-                // oh snap.
-                v = codec.decode(nRows, nCols, packing);
+            if (!codec.decode(nRows, nCols, packing, valuesArray[iVariable])) {
+                throw new IOException("Unable to decode tile " + tileIndex);
+            }
+        }
+    }
+
+    @Override
+    void readStandardFormat(ByteBuffer buffer) throws IOException {
+        IntBuffer intBuffer = buffer.asIntBuffer();
+        for (int iVariable = 0; iVariable < dimension; iVariable++) {
+            intBuffer.get(valuesArray[iVariable], 0, nValues);
+        }
+        buffer.position(buffer.position() + dimension * nValues * 4);
+    }
+
+    @Override
+    void readCompressedFormat(CodecMaster codec, ByteBuffer buffer) throws IOException {
+        for (int iVariable = 0; iVariable < dimension; iVariable++) {
+            int n = buffer.getInt();
+            byte[] packing = new byte[n];
+            buffer.get(packing, 0, n);
+            if (!codec.decode(nRows, nCols, packing, valuesArray[iVariable])) {
+                throw new IOException("Unable to decode tile " + tileIndex);
             }
-            System.arraycopy(v, 0, valuesArray[iVariable], 0, nValues);
         }
     }
 
@@ -203,7 +229,9 @@ class RasterTileInt extends RasterTile {
 
     @Override
     void setToNullState() {
-        Arrays.fill(values, INT4_NULL_CODE);
+        for (int i = 0; i < dimension; i++) {
+            Arrays.fill(valuesArray[i], INT4_NULL_CODE);
+        }
     }
 
     @Override
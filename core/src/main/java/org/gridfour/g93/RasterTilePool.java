@@ -0,0 +1,131 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+
+/**
+ * Provides a pool of tiles that have been removed from the tile cache so
+ * that the memory for their values may be re-used when new tiles
+ * are loaded. All tiles in a file share the same dimensions and data type,
+ * so any tile in the pool may supply the memory for any new tile.
+ * Re-using the value arrays avoids the allocation and garbage
+ * collection of large, short-lived objects when an application scans
+ * through a data set that is too large to be held in the cache.
+ * <p>
+ * A tile may be released to the pool only when no other object
+ * retains a reference to it. This class is not thread safe. It is
+ * intended to be accessed only by the thread that owns the tile cache.
+ */
+class RasterTilePool {
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+
+    private final G93FileSpecification spec;
+    private final int poolSize;
+    private final ArrayDeque<RasterTile> pool;
+
+    // Counters for gathering access statistics
+    private long nTilesAllocated;
+    private long nTilesRecycled;
+
+    /**
+     * Constructs a pool for tiles conforming to the specified file
+     * specification.
+     *
+     * @param spec a valid specification
+     */
+    RasterTilePool(G93FileSpecification spec) {
+        this.spec = spec;
+        this.poolSize = DEFAULT_POOL_SIZE;
+        this.pool = new ArrayDeque<>(poolSize);
+    }
+
+    /**
+     * Obtains a tile for the specified index, using the memory from a
+     * tile in the pool if one is available.
+     *
+     * @param tileIndex the index of the tile within the raster grid.
+     * @param initializeValues true if the tile values are to be initialized
+     * to the null state; false if they will be populated by a read operation.
+     * @return a valid instance.
+     * @throws IOException in the event of an incorrectly specified data type.
+     */
+    RasterTile allocate(int tileIndex, boolean initializeValues) throws IOException {
+        RasterTile recycledTile = pool.poll();
+        if (recycledTile == null) {
+            nTilesAllocated++;
+        } else {
+            nTilesRecycled++;
+        }
+        return RasterTile.allocate(spec, tileIndex, initializeValues, recycledTile);
+    }
+
+    /**
+     * Releases a tile to the pool. Once released, the tile
+     * must not be accessed by the calling application.
+     *
+     * @param tile a valid tile that is no longer in use
+     */
+    void release(RasterTile tile) {
+        if (pool.size() < poolSize) {
+            pool.add(tile);
+        }
+    }
+
+    /**
+     * Removes all tiles from the pool so that their memory may be
+     * reclaimed by the garbage collector.
+     */
+    void clear() {
+        pool.clear();
+    }
+
+    void resetCounts() {
+        nTilesAllocated = 0;
+        nTilesRecycled = 0;
+    }
+
+    void summarize(PrintStream ps) {
+        ps.format("   Tiles Allocated:           %12d%n", nTilesAllocated);
+        ps.format("   Tiles Recycled:            %12d%n", nTilesRecycled);
+    }
+}
@@ -0,0 +1,250 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Detects patterns in the sequence of tiles requested from a tile cache
+ * and loads the tiles that are expected to be requested next using
+ * background threads. Loading and decompressing tiles in the background
+ * allows applications that perform full-grid scans or extract long
+ * transects to overlap file I/O with their own computations.
+ * <p>
+ * The detection logic looks for a constant stride between successive
+ * tile requests. A stride of one indicates a scan across a row of tiles,
+ * a stride equal to the number of columns of tiles indicates a scan down
+ * a column of tiles, and other values indicate a diagonal or otherwise
+ * strided access. Once a stride is observed on two successive transitions,
+ * the prefetcher loads up to the specified lookahead count of tiles
+ * in the direction of the stride.
+ * <p>
+ * The background threads read tiles using position-based reads so that
+ * they do not interfere with the file position used by the main thread.
+ * Because the prefetched tiles would become stale if the file were
+ * modified, prefetching is supported only for read-only files.
+ * <p>
+ * With the exception of the task code, the methods of this class are
+ * intended to be called only by the thread that owns the tile cache.
+ */
+class TilePrefetcher {
+
+    private final G93FileSpecification spec;
+    private final G93TileStore tileStore;
+    private final int nTiles;
+    private final int lookahead;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final ThreadLocal<TileReadContext> readContext;
+
+    // prefetch requests in the order they were submitted.  Requests
+    // that are not claimed by the tile cache are eventually dropped.
+    private final LinkedHashMap<Integer, Future<RasterTile>> pending
+        = new LinkedHashMap<>();
+
+    private int priorTileIndex = -1;
+    private int stride;
+    private boolean strideConfirmed;
+
+    // Counters for gathering access statistics
+    private long nPrefetchRequests;
+    private long nPrefetchHits;
+    private long nPrefetchDropped;
+
+    /**
+     * Constructs an instance with the specified lookahead.
+     *
+     * @param spec the specification for the file
+     * @param tileStore the tile store for the file; it must have its
+     * concurrent read channel opened.
+     * @param codecMaster the codec for the file, used as a model for
+     * the codec instances used by the background threads.
+     * @param lookahead the maximum number of tiles to be loaded in advance
+     * of the most recent request.
+     */
+    TilePrefetcher(
+        G93FileSpecification spec,
+        G93TileStore tileStore,
+        final CodecMaster codecMaster,
+        int lookahead) {
+        this.spec = spec;
+        this.tileStore = tileStore;
+        this.nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
+        this.lookahead = lookahead;
+        this.maxPending = lookahead * 2;
+        int nThreads = Runtime.getRuntime().availableProcessors() - 1;
+        if (nThreads > lookahead) {
+            nThreads = lookahead;
+        }
+        if (nThreads < 1) {
+            nThreads = 1;
+        }
+        executor = Executors.newFixedThreadPool(nThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "G93 tile prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        readContext = new ThreadLocal<TileReadContext>() {
+            @Override
+            protected TileReadContext initialValue() {
+                return new TileReadContext(codecMaster.copy());
+            }
+        };
+    }
+
+    /**
+     * Records a request for a tile that differs from the most recently
+     * requested tile and, if a pattern is detected, initiates the loading
+     * of tiles expected to be requested in the future.
+     *
+     * @param tileIndex the index of the requested tile
+     * @param tileCache the cache requesting the tile, used to avoid
+     * prefetching tiles that are already loaded.
+     */
+    void recordAccess(int tileIndex, RasterTileCache tileCache) {
+        if (priorTileIndex >= 0) {
+            int delta = tileIndex - priorTileIndex;
+            strideConfirmed = delta == stride;
+            stride = delta;
+        }
+        priorTileIndex = tileIndex;
+        if (!strideConfirmed || stride == 0) {
+            return;
+        }
+
+        int index = tileIndex;
+        for (int i = 0; i < lookahead; i++) {
+            index += stride;
+            if (index < 0 || index >= nTiles) {
+                break;
+            }
+            if (pending.containsKey(index)
+                || tileCache.isTileInCache(index)
+                || !tileStore.doesTileExist(index)) {
+                continue;
+            }
+            submit(index);
+        }
+    }
+
+    private void submit(final int tileIndex) {
+        // If there are too many unclaimed requests, the oldest ones
+        // are no longer likely to be used.
+        while (pending.size() >= maxPending) {
+            Iterator<Map.Entry<Integer, Future<RasterTile>>> iterator
+                = pending.entrySet().iterator();
+            Future<RasterTile> future = iterator.next().getValue();
+            future.cancel(false);
+            iterator.remove();
+            nPrefetchDropped++;
+        }
+        nPrefetchRequests++;
+        pending.put(tileIndex, executor.submit(new Callable<RasterTile>() {
+            @Override
+            public RasterTile call() throws IOException {
+                RasterTile tile = RasterTile.allocate(spec, tileIndex, false);
+                tileStore.readTile(tile, readContext.get());
+                return tile;
+            }
+        }));
+    }
+
+    /**
+     * Gets a tile from the set of prefetched tiles, waiting for the
+     * load operation to complete if necessary.
+     *
+     * @param tileIndex the index of the tile
+     * @return if the tile was prefetched, a valid instance; otherwise, a null.
+     * @throws IOException in the event of an I/O error while loading the
+     * tile.
+     */
+    RasterTile claim(int tileIndex) throws IOException {
+        Future<RasterTile> future = pending.remove(tileIndex);
+        if (future == null || future.isCancelled()) {
+            return null;
+        }
+        try {
+            RasterTile tile = future.get();
+            nPrefetchHits++;
+            return tile;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for tile "
+                + tileIndex, ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to load tile " + tileIndex, cause);
+        }
+    }
+
+    /**
+     * Cancels all pending requests and shuts down the background threads.
+     */
+    void shutdown() {
+        for (Future<RasterTile> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        executor.shutdown();
+    }
+
+    void summarize(PrintStream ps) {
+        ps.format("Tile Prefetch%n");
+        ps.format("   Lookahead:                 %12d%n", lookahead);
+        ps.format("   Tiles Requested:           %12d%n", nPrefetchRequests);
+        ps.format("   Tiles Used:                %12d%n", nPrefetchHits);
+        ps.format("   Tiles Dropped:             %12d%n", nPrefetchDropped);
+    }
+}
@@ -0,0 +1,82 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Provides resources used by a single thread when reading and decoding
+ * tiles. The codec implementations may maintain state data and so cannot
+ * be shared across threads. Applications that read tiles concurrently
+ * should give each thread its own instance.
+ */
+class TileReadContext {
+
+    final CodecMaster codec;
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a context using the specified codec. The codec
+     * must not be shared with any other thread.
+     *
+     * @param codec a valid instance
+     */
+    TileReadContext(CodecMaster codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Gets a buffer of at least the specified capacity, cleared and
+     * set for little-endian byte order. The buffer is retained between
+     * calls so that steady-state read operations do not require additional
+     * memory allocation.
+     *
+     * @param size the minimum size for the buffer
+     * @return a valid buffer with its limit set to the specified size.
+     */
+    ByteBuffer getBuffer(int size) {
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+}
@@ -0,0 +1,109 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Defines the methods used by a tile cache to maintain the information
+ * needed to select tiles for removal when the cache is full.
+ * <p>
+ * Policy instances are not thread safe. Unless otherwise noted, they are
+ * intended to be accessed only by the thread that owns the tile cache.
+ */
+abstract class TileReplacementPolicy {
+
+    /**
+     * Constructs a policy of the specified type.
+     *
+     * @param policy a valid specification
+     * @return a valid instance
+     */
+    static TileReplacementPolicy create(G93CachePolicy policy) {
+        switch (policy) {
+            case CLOCK:
+                return new TileReplacementPolicyClock();
+            case TwoQueue:
+                return new TileReplacementPolicyTwoQueue();
+            case LRU:
+            default:
+                return new TileReplacementPolicyLru();
+        }
+    }
+
+    /**
+     * Gets the specification for the policy.
+     *
+     * @return a valid instance.
+     */
+    abstract G93CachePolicy getPolicy();
+
+    /**
+     * Sets the number of tiles that the cache is expected to hold.
+     * Policies that partition the cache use this value to size
+     * their partitions.
+     *
+     * @param capacity a positive value
+     */
+    void setCapacity(int capacity) {
+        // the default implementation does not require the capacity
+    }
+
+    /**
+     * Notifies the policy that a tile was added to the cache.
+     *
+     * @param tile a valid tile
+     */
+    abstract void tileAdded(RasterTile tile);
+
+    /**
+     * Notifies the policy that a tile held in the cache was accessed.
+     * This method is not called for repeated access to the tile that
+     * was most recently accessed.
+     *
+     * @param tile a valid tile
+     */
+    abstract void tileAccessed(RasterTile tile);
+
+    /**
+     * Selects a tile for removal from the cache and removes it from
+     * the policy's data structures.
+     *
+     * @return if the cache is not empty, a valid tile; otherwise, a null.
+     */
+    abstract RasterTile selectTileForRemoval();
+}
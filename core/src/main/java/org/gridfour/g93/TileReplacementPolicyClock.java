@@ -0,0 +1,112 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Implements the CLOCK replacement algorithm. Each access sets a reference
+ * flag in the tile. When a tile is required for removal, the queue is
+ * examined in order. Tiles with the reference flag set are given a second
+ * chance: the flag is cleared and the tile is moved to the end of the queue.
+ * <p>
+ * Because an access only sets a flag, this policy is also used by the
+ * caches that support concurrent access. Those caches call tileAccessed
+ * without locking and guard all other methods with the instance's monitor.
+ */
+class TileReplacementPolicyClock extends TileReplacementPolicy {
+
+    private final ArrayDeque<RasterTile> clockQueue = new ArrayDeque<>();
+
+    @Override
+    G93CachePolicy getPolicy() {
+        return G93CachePolicy.CLOCK;
+    }
+
+    @Override
+    void tileAdded(RasterTile tile) {
+        tile.referenced = false;
+        clockQueue.addLast(tile);
+    }
+
+    @Override
+    void tileAccessed(RasterTile tile) {
+        // avoid writing to memory (and dirtying a cache line that may
+        // be shared by other threads) unless necessary
+        if (!tile.referenced) {
+            tile.referenced = true;
+        }
+    }
+
+    @Override
+    RasterTile selectTileForRemoval() {
+        // Each pass clears the reference flags, so the loop is
+        // guaranteed to select a tile within two passes through the queue.
+        while (!clockQueue.isEmpty()) {
+            RasterTile tile = clockQueue.pollFirst();
+            if (tile.referenced) {
+                tile.referenced = false;
+                clockQueue.addLast(tile);
+            } else {
+                return tile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of tiles held by the policy.
+     *
+     * @return a value of zero or greater
+     */
+    int size() {
+        return clockQueue.size();
+    }
+
+    /**
+     * Gets an iterator over the tiles held by the policy. The iterator
+     * supports removal, so that a cache may drop an arbitrary set of tiles.
+     *
+     * @return a valid instance
+     */
+    Iterator<RasterTile> iterator() {
+        return clockQueue.iterator();
+    }
+}
@@ -0,0 +1,102 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+/**
+ * Implements least-recently-used replacement using a doubly linked list
+ * threaded through the tiles.
+ */
+class TileReplacementPolicyLru extends TileReplacementPolicy {
+
+    private RasterTile firstTile;
+    private RasterTile lastTile;
+
+    @Override
+    G93CachePolicy getPolicy() {
+        return G93CachePolicy.LRU;
+    }
+
+    @Override
+    void tileAdded(RasterTile tile) {
+        // add to head of linked list
+        if (firstTile == null) {
+            firstTile = tile;
+            lastTile = tile;
+        } else {
+            tile.next = firstTile;
+            firstTile.prior = tile;
+            firstTile = tile;
+        }
+    }
+
+    @Override
+    void tileAccessed(RasterTile tile) {
+        if (tile == firstTile) {
+            return;
+        }
+        tile.prior.next = tile.next;
+        if (tile.next == null) {
+            lastTile = tile.prior;
+        } else {
+            tile.next.prior = tile.prior;
+        }
+        tile.next = firstTile;
+        firstTile.prior = tile;
+        tile.prior = null;
+        firstTile = tile;
+    }
+
+    @Override
+    RasterTile selectTileForRemoval() {
+        RasterTile tile = lastTile;
+        if (tile == null) {
+            return null;
+        }
+        if (tile == firstTile) {
+            firstTile = null;
+            lastTile = null;
+        } else {
+            lastTile = tile.prior;
+            lastTile.next = null;
+        }
+        tile.next = null;
+        tile.prior = null;
+        return tile;
+    }
+}
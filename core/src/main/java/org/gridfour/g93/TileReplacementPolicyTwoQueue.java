@@ -0,0 +1,336 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.util.Arrays;
+
+/**
+ * Implements the 2Q replacement algorithm described by Johnson and
+ * Shasha (1994). Tiles are admitted to a first-in-first-out queue (A1in)
+ * which holds about one quarter of the cache. When a tile is removed from
+ * A1in, its index is recorded in a queue of "ghost" entries (A1out) that
+ * holds no data. A tile that is requested while its index is in A1out has
+ * demonstrated repeated use and is admitted to the main queue (Am),
+ * which is managed using least-recently-used replacement.
+ * <p>
+ * Because tiles that are accessed only once never reach the main queue,
+ * a scan of a large portion of a file does not displace the tiles
+ * that are in frequent use.
+ * <p>
+ * As with the LRU policy, the A1in and Am queues are doubly linked lists
+ * threaded through the tiles, and the ghost entries are held in
+ * integer arrays, so no objects are allocated when tiles are accessed
+ * or replaced.
+ */
+class TileReplacementPolicyTwoQueue extends TileReplacementPolicy {
+
+    /**
+     * A doubly linked list threaded through the tiles. The first tile
+     * is the most recently added, the last is the eldest.
+     */
+    private static final class TileQueue {
+
+        RasterTile firstTile;
+        RasterTile lastTile;
+        int size;
+
+        void addFirst(RasterTile tile) {
+            tile.prior = null;
+            tile.next = firstTile;
+            if (firstTile == null) {
+                lastTile = tile;
+            } else {
+                firstTile.prior = tile;
+            }
+            firstTile = tile;
+            size++;
+        }
+
+        void remove(RasterTile tile) {
+            if (tile.prior == null) {
+                firstTile = tile.next;
+            } else {
+                tile.prior.next = tile.next;
+            }
+            if (tile.next == null) {
+                lastTile = tile.prior;
+            } else {
+                tile.next.prior = tile.prior;
+            }
+            tile.next = null;
+            tile.prior = null;
+            size--;
+        }
+
+        RasterTile removeLast() {
+            RasterTile tile = lastTile;
+            if (tile != null) {
+                remove(tile);
+            }
+            return tile;
+        }
+    }
+
+    /**
+     * A first-in-first-out queue of tile indices with constant-time
+     * membership tests and removal. The entries are held in a doubly
+     * linked list threaded through arrays of node indices and are located
+     * using an open-addressing hash table with linear probing.
+     */
+    private static final class GhostQueue {
+
+        private static final int NONE = -1;
+
+        private int capacity;
+        private int[] nodeKey;
+        private int[] nodeNext;
+        private int[] nodePrior;
+        private int firstNode = NONE; // the eldest entry
+        private int lastNode = NONE;  // the most recent entry
+        private int freeNode = NONE;
+        private int nNodesUsed;
+        private int size;
+
+        private int[] tableKeys;
+        private int[] tableNodes;
+        private int mask;
+
+        GhostQueue(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            this.capacity = capacity;
+            nodeKey = new int[capacity];
+            nodeNext = new int[capacity];
+            nodePrior = new int[capacity];
+            firstNode = NONE;
+            lastNode = NONE;
+            freeNode = NONE;
+            nNodesUsed = 0;
+            size = 0;
+            int tableSize = 2;
+            while (tableSize < capacity * 2) {
+                tableSize *= 2;
+            }
+            tableKeys = new int[tableSize];
+            tableNodes = new int[tableSize];
+            Arrays.fill(tableKeys, NONE);
+            mask = tableSize - 1;
+        }
+
+        /**
+         * Sets the capacity, retaining the most recent entries.
+         */
+        void setCapacity(int capacity) {
+            if (capacity == this.capacity) {
+                return;
+            }
+            int[] keys = new int[size];
+            int n = 0;
+            for (int node = firstNode; node != NONE; node = nodeNext[node]) {
+                keys[n++] = nodeKey[node];
+            }
+            allocate(capacity);
+            for (int i = Math.max(0, n - capacity); i < n; i++) {
+                add(keys[i]);
+            }
+        }
+
+        private int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private int findSlot(int key) {
+            int slot = hash(key);
+            while (tableKeys[slot] != NONE) {
+                if (tableKeys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NONE;
+        }
+
+        /**
+         * Adds an entry, removing the eldest entry if the queue is full.
+         * The key must not already be present.
+         */
+        void add(int key) {
+            if (size == capacity) {
+                remove(nodeKey[firstNode]);
+            }
+            int node;
+            if (freeNode != NONE) {
+                node = freeNode;
+                freeNode = nodeNext[node];
+            } else {
+                node = nNodesUsed++;
+            }
+            nodeKey[node] = key;
+            nodeNext[node] = NONE;
+            nodePrior[node] = lastNode;
+            if (lastNode == NONE) {
+                firstNode = node;
+            } else {
+                nodeNext[lastNode] = node;
+            }
+            lastNode = node;
+            size++;
+
+            int slot = hash(key);
+            while (tableKeys[slot] != NONE) {
+                slot = (slot + 1) & mask;
+            }
+            tableKeys[slot] = key;
+            tableNodes[slot] = node;
+        }
+
+        /**
+         * Removes an entry if it is present.
+         *
+         * @return true if the entry was present; otherwise, false.
+         */
+        boolean remove(int key) {
+            int slot = findSlot(key);
+            if (slot == NONE) {
+                return false;
+            }
+            int node = tableNodes[slot];
+            deleteSlot(slot);
+
+            int prior = nodePrior[node];
+            int next = nodeNext[node];
+            if (prior == NONE) {
+                firstNode = next;
+            } else {
+                nodeNext[prior] = next;
+            }
+            if (next == NONE) {
+                lastNode = prior;
+            } else {
+                nodePrior[next] = prior;
+            }
+            nodeNext[node] = freeNode;
+            freeNode = node;
+            size--;
+            return true;
+        }
+
+        /**
+         * Deletes a slot from the hash table, shifting the entries that
+         * follow it so that the linear probe sequences remain unbroken.
+         */
+        private void deleteSlot(int slot) {
+            int i = slot;
+            int j = slot;
+            while (true) {
+                j = (j + 1) & mask;
+                if (tableKeys[j] == NONE) {
+                    break;
+                }
+                int k = hash(tableKeys[j]);
+                // an entry whose home slot lies cyclically in (i, j]
+                // is still reachable and is not moved.
+                boolean reachable = i <= j ? i < k && k <= j : i < k || k <= j;
+                if (!reachable) {
+                    tableKeys[i] = tableKeys[j];
+                    tableNodes[i] = tableNodes[j];
+                    i = j;
+                }
+            }
+            tableKeys[i] = NONE;
+        }
+    }
+
+    private final TileQueue a1in = new TileQueue();
+    private final TileQueue am = new TileQueue();
+    private final GhostQueue a1out = new GhostQueue(1);
+    private int kIn = 1;
+
+    @Override
+    G93CachePolicy getPolicy() {
+        return G93CachePolicy.TwoQueue;
+    }
+
+    @Override
+    void setCapacity(int capacity) {
+        kIn = Math.max(1, capacity / 4);
+        a1out.setCapacity(Math.max(1, capacity / 2));
+    }
+
+    @Override
+    void tileAdded(RasterTile tile) {
+        if (a1out.remove(tile.tileIndex)) {
+            tile.inMainQueue = true;
+            am.addFirst(tile);
+        } else {
+            tile.inMainQueue = false;
+            a1in.addFirst(tile);
+        }
+    }
+
+    @Override
+    void tileAccessed(RasterTile tile) {
+        // a tile in A1in remains in place; repeated access within
+        // the A1in window is treated as a single correlated reference.
+        // a tile in Am is moved to its most recent position.
+        if (tile.inMainQueue && tile != am.firstTile) {
+            am.remove(tile);
+            am.addFirst(tile);
+        }
+    }
+
+    @Override
+    RasterTile selectTileForRemoval() {
+        if (a1in.size > kIn || am.size == 0) {
+            RasterTile tile = a1in.removeLast();
+            if (tile != null) {
+                a1out.add(tile.tileIndex);
+                return tile;
+            }
+        }
+        RasterTile tile = am.removeLast();
+        if (tile != null) {
+            tile.inMainQueue = false;
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,144 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Provides a spliterator over the populated tiles of a file, supporting
+ * parallel streams. Each split covers a range of the tiles
+ * in order of tile index. Tiles are read using position-based reads
+ * from the concurrent-access channel of the tile store, and each
+ * thread decodes tiles using its own read context, so the tiles
+ * in different splits may be read and decoded at the same time.
+ */
+class TileSpliterator implements Spliterator<G93TileView> {
+
+    private final G93FileSpecification spec;
+    private final G93TileStore tileStore;
+    private final ThreadLocal<TileReadContext> readContext;
+    private final int[] tileIndices;
+    private int index;
+    private final int fence;
+
+    /**
+     * Constructs an instance covering the specified tiles.
+     *
+     * @param spec the specification for the file
+     * @param tileStore the tile store for the file; it must have its
+     * concurrent read channel opened.
+     * @param readContext a source of read contexts for the threads
+     * that read the tiles
+     * @param tileIndices the indices of the tiles in the order in
+     * which they are to be given
+     */
+    TileSpliterator(
+        G93FileSpecification spec,
+        G93TileStore tileStore,
+        ThreadLocal<TileReadContext> readContext,
+        int[] tileIndices) {
+        this(spec, tileStore, readContext, tileIndices, 0, tileIndices.length);
+    }
+
+    private TileSpliterator(
+        G93FileSpecification spec,
+        G93TileStore tileStore,
+        ThreadLocal<TileReadContext> readContext,
+        int[] tileIndices,
+        int index,
+        int fence) {
+        this.spec = spec;
+        this.tileStore = tileStore;
+        this.readContext = readContext;
+        this.tileIndices = tileIndices;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super G93TileView> action) {
+        if (index >= fence) {
+            return false;
+        }
+        action.accept(readTileView(tileIndices[index++]));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super G93TileView> action) {
+        while (index < fence) {
+            action.accept(readTileView(tileIndices[index++]));
+        }
+    }
+
+    private G93TileView readTileView(int tileIndex) {
+        try {
+            RasterTile tile = RasterTile.allocate(spec, tileIndex, false);
+            tileStore.readTile(tile, readContext.get());
+            return new G93TileView(spec, tile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public Spliterator<G93TileView> trySplit() {
+        int mid = (index + fence) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        TileSpliterator prefix = new TileSpliterator(
+            spec, tileStore, readContext, tileIndices, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,395 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Scans the records in the tile store of a file to establish their
+ * positions when no index is available. Large files are divided into
+ * byte ranges that are scanned in parallel, each using its own channel
+ * and a large read buffer, so that the time required for a scan is
+ * governed by the bandwidth of the disk rather than the latency of
+ * seek operations.
+ * <p>
+ * The position of the first record in a range is not known in advance.
+ * So the scan of each range begins at the first position that appears
+ * to be the start of a sequence of valid record headers. Because each
+ * record gives the position of its successor, a scan that starts at
+ * an incorrect position will produce the same results as a correct scan
+ * once it encounters a genuine record. When the results are merged,
+ * the scan of each range is accepted from the point at which it
+ * meets the position established by the preceding range. If it never
+ * does so, the range is scanned again starting from that position.
+ * Thus the results are identical to those of a sequential scan.
+ */
+class TileStoreScanner {
+
+    private static final int RECORD_HEADER_SIZE = 12;  // 3 4-byte integers
+    private static final int MIN_RECORD_SIZE = 16;
+    private static final int WINDOW_SIZE = 1024 * 1024;
+    private static final long MIN_RANGE_SIZE = 16L * 1024 * 1024;
+    // the number of consecutive valid record headers required to
+    // establish a starting position for the scan of a range
+    private static final int SYNC_RECORD_COUNT = 4;
+
+    /**
+     * The records found by a scan, in order of file position.
+     */
+    static class RecordList {
+
+        int nRecords;
+        long[] positions = new long[256];
+        // the record size, given as a negative value for free space
+        int[] sizes = new int[256];
+        // the tile index, or a negative value for non-tile records;
+        // not used for free space.
+        int[] codes = new int[256];
+
+        void add(long filePos, int recordSize, int recordCode) {
+            if (nRecords == positions.length) {
+                int n = nRecords * 2;
+                positions = Arrays.copyOf(positions, n);
+                sizes = Arrays.copyOf(sizes, n);
+                codes = Arrays.copyOf(codes, n);
+            }
+            positions[nRecords] = filePos;
+            sizes[nRecords] = recordSize;
+            codes[nRecords] = recordCode;
+            nRecords++;
+        }
+
+        void addAll(RecordList list, int startIndex) {
+            for (int i = startIndex; i < list.nRecords; i++) {
+                add(list.positions[i], list.sizes[i], list.codes[i]);
+            }
+        }
+
+        int indexOf(long filePos) {
+            return Arrays.binarySearch(positions, 0, nRecords, filePos);
+        }
+    }
+
+    /**
+     * The results from scanning a range of the file.
+     */
+    private static class RangeScan {
+
+        final long rangeStart;
+        final long rangeEnd;
+        final RecordList records = new RecordList();
+        long exitPos;
+        boolean terminated;
+        boolean failed;
+
+        RangeScan(long rangeStart, long rangeEnd) {
+            this.rangeStart = rangeStart;
+            this.rangeEnd = rangeEnd;
+        }
+    }
+
+    /**
+     * Reads record headers from a file channel using a large buffer.
+     */
+    private static class HeaderReader implements Closeable {
+
+        final FileChannel channel;
+        final ByteBuffer window
+            = ByteBuffer.allocateDirect(WINDOW_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long windowPos;
+        int windowLimit;
+        int recordSize;
+        int recordCode;
+        int recordFlags;
+
+        HeaderReader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        void readHeader(long filePos) throws IOException {
+            if (filePos < windowPos || filePos + RECORD_HEADER_SIZE > windowPos + windowLimit) {
+                window.clear();
+                windowPos = filePos;
+                while (window.position() < RECORD_HEADER_SIZE) {
+                    int n = channel.read(window, filePos + window.position());
+                    if (n < 0) {
+                        throw new IOException(
+                            "Unexpected end of file reading record at " + filePos);
+                    }
+                }
+                windowLimit = window.position();
+            }
+            int offset = (int) (filePos - windowPos);
+            recordSize = window.getInt(offset);
+            recordCode = window.getInt(offset + 4);
+            recordFlags = window.getInt(offset + 8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private final File file;
+    private final long basePosition;
+    private final long fileSize;
+    private final int maxTileIndex;
+
+    /**
+     * Constructs a scanner for the specified file.
+     *
+     * @param file the file to be scanned
+     * @param basePosition the file position of the first record
+     * @param fileSize the size of the file
+     * @param maxTileIndex the number of tiles in the raster
+     */
+    TileStoreScanner(File file, long basePosition, long fileSize, int maxTileIndex) {
+        this.file = file;
+        this.basePosition = basePosition;
+        this.fileSize = fileSize;
+        this.maxTileIndex = maxTileIndex;
+    }
+
+    /**
+     * Gets the number of ranges into which the file should be divided
+     * based on its size and the number of available processors.
+     *
+     * @return a value of one or greater.
+     */
+    int getDefaultRangeCount() {
+        long n = (fileSize - basePosition) / MIN_RANGE_SIZE;
+        int nProcessors = Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(n, nProcessors));
+    }
+
+    /**
+     * Scans the file for records.
+     *
+     * @param nRanges the number of ranges into which the file is divided
+     * @param executor the executor used to scan the ranges in parallel;
+     * not used if the number of ranges is one.
+     * @return a valid list of records
+     * @throws IOException in the event of an I/O error or if the
+     * file contains invalid records.
+     */
+    RecordList scan(int nRanges, Executor executor) throws IOException {
+        if (nRanges <= 1) {
+            RangeScan rangeScan = new RangeScan(basePosition, fileSize);
+            try (HeaderReader reader = new HeaderReader(file)) {
+                walk(reader, basePosition, rangeScan, true);
+            }
+            return rangeScan.records;
+        }
+
+        // divide the file into ranges with boundaries at multiples of 8
+        long rangeSize = ((fileSize - basePosition) / nRanges + 7) & ~0x07L;
+        List<RangeScan> rangeScans = new ArrayList<>();
+        List<FutureTask<RangeScan>> tasks = new ArrayList<>();
+        for (long rangeStart = basePosition; rangeStart < fileSize; rangeStart += rangeSize) {
+            final RangeScan rangeScan
+                = new RangeScan(rangeStart, Math.min(fileSize, rangeStart + rangeSize));
+            FutureTask<RangeScan> task = new FutureTask<>(new Callable<RangeScan>() {
+                @Override
+                public RangeScan call() throws IOException {
+                    scanRange(rangeScan);
+                    return rangeScan;
+                }
+            });
+            rangeScans.add(rangeScan);
+            tasks.add(task);
+            executor.execute(task);
+        }
+        for (FutureTask<RangeScan> task : tasks) {
+            getResult(task);
+        }
+
+        // merge the results
+        RecordList result = new RecordList();
+        long filePos = basePosition;
+        try (HeaderReader reader = new HeaderReader(file)) {
+            for (RangeScan rangeScan : rangeScans) {
+                if (filePos >= rangeScan.rangeEnd) {
+                    // the range is entirely within a preceding record
+                    continue;
+                }
+                int index = rangeScan.records.indexOf(filePos);
+                if (index < 0 || rangeScan.failed) {
+                    // the scan never met the correct sequence of records
+                    // or encountered an invalid record.  Scan the range again
+                    // so that any errors will be reported.
+                    RangeScan rescan = new RangeScan(filePos, rangeScan.rangeEnd);
+                    walk(reader, filePos, rescan, true);
+                    rangeScan = rescan;
+                    index = 0;
+                }
+                result.addAll(rangeScan.records, index);
+                filePos = rangeScan.exitPos;
+                if (rangeScan.terminated) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private RangeScan getResult(FutureTask<RangeScan> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning file", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to scan file", cause);
+        }
+    }
+
+    /**
+     * Scans a range of the file starting from the first position that
+     * appears to be the start of a valid sequence of records.
+     */
+    private void scanRange(RangeScan rangeScan) throws IOException {
+        try (HeaderReader reader = new HeaderReader(file)) {
+            for (long filePos = rangeScan.rangeStart;
+                filePos < rangeScan.rangeEnd && filePos < fileSize - RECORD_HEADER_SIZE;
+                filePos += 8) {
+                if (isSequenceValid(reader, filePos)) {
+                    walk(reader, filePos, rangeScan, false);
+                    return;
+                }
+            }
+            rangeScan.failed = true;
+        }
+    }
+
+    private boolean isSequenceValid(HeaderReader reader, long startPos) throws IOException {
+        long filePos = startPos;
+        for (int i = 0; i < SYNC_RECORD_COUNT; i++) {
+            if (filePos >= fileSize - RECORD_HEADER_SIZE) {
+                return true;
+            }
+            reader.readHeader(filePos);
+            if (reader.recordSize == 0) {
+                return true;
+            }
+            if (!isHeaderValid(filePos, reader)) {
+                return false;
+            }
+            filePos += Math.abs(reader.recordSize);
+        }
+        return true;
+    }
+
+    private boolean isHeaderValid(long filePos, HeaderReader reader) {
+        int recordSize = reader.recordSize;
+        if (recordSize == Integer.MIN_VALUE) {
+            return false;
+        }
+        int size = Math.abs(recordSize);
+        if (size < MIN_RECORD_SIZE || (size & 0x07) != 0 || filePos + size > fileSize) {
+            return false;
+        }
+        if (recordSize < 0) {
+            // free space, the remainder of the header may contain any values
+            return true;
+        }
+        int code = reader.recordCode;
+        int flags = reader.recordFlags;
+        if (code < 0) {
+            return (code == -1 || code == -2
+                || code == -G93TileStore.OVERVIEW_TILE_RECORD_CODE) && flags == 0;
+        }
+        return code < maxTileIndex && (flags & 0xfffffffe) == 0;
+    }
+
+    /**
+     * Walks the sequence of records beginning at the specified position
+     * until the end of the range is reached. In strict mode, invalid
+     * records are reported as exceptions; otherwise, they terminate the
+     * walk and the range scan is marked as failed.
+     */
+    private void walk(HeaderReader reader, long startPos, RangeScan rangeScan, boolean strict)
+        throws IOException {
+        RecordList records = rangeScan.records;
+        long filePos = startPos;
+        while (filePos < rangeScan.rangeEnd && filePos < fileSize - RECORD_HEADER_SIZE) {
+            reader.readHeader(filePos);
+            int recordSize = reader.recordSize;
+            if (recordSize == 0) {
+                rangeScan.terminated = true;
+                break;
+            }
+            if (!strict && !isHeaderValid(filePos, reader)) {
+                rangeScan.failed = true;
+                break;
+            }
+            if (recordSize < 0) {
+                records.add(filePos, recordSize, 0);
+                filePos -= recordSize;
+                continue;
+            }
+            int recordCode = reader.recordCode;
+            if (recordCode < -G93TileStore.OVERVIEW_TILE_RECORD_CODE) {
+                throw new IOException("Undefined record code " + (-recordCode));
+            } else if (recordCode >= maxTileIndex) {
+                throw new IOException("Incorrect tile index read from file " + recordCode);
+            }
+            records.add(filePos, recordSize, recordCode);
+            filePos += recordSize;
+        }
+        rangeScan.exitPos = filePos;
+    }
+}
@@ -0,0 +1,270 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+
+/**
+ * Maintains summary statistics for each tile in a file: the number of
+ * valid values, their minimum, maximum, and sum. The summaries are
+ * computed when a tile is stored and are saved in the file as a
+ * variable-length record so that they are available when the file
+ * is re-opened without decoding any tiles.
+ * <p>
+ * The summary for a tile may be unknown, for example when a file written
+ * by an earlier version of this library is opened. In that case, it is
+ * computed the first time it is requested. Summaries are computed for
+ * the first element of the tile values.
+ * <p>
+ * Because summaries may be requested by multiple threads when a file
+ * is opened for shared access, the methods of this class are synchronized.
+ */
+class TileSummaryTable {
+
+    static final String USER_ID = "G93_Tile_Stats";
+    static final String DESCRIPTION = "Per-tile summary statistics";
+    static final int RECORD_ID = 0;
+
+    // the size of the payload header and of each entry
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 24;
+
+    // a count of -1 indicates that the summary is not known.
+    private final int[] counts;
+    private final float[] minValues;
+    private final float[] maxValues;
+    private final double[] sums;
+
+    TileSummaryTable(int nTiles) {
+        counts = new int[nTiles];
+        minValues = new float[nTiles];
+        maxValues = new float[nTiles];
+        sums = new double[nTiles];
+        Arrays.fill(counts, -1);
+    }
+
+    /**
+     * Computes the summary for a tile and stores it in the table.
+     *
+     * @param tile a valid tile
+     */
+    void update(RasterTile tile) {
+        G93TileSummary summary = summarize(tile);
+        set(tile.tileIndex, (int) summary.getCount(),
+            summary.getMinimum(), summary.getMaximum(), summary.getSum());
+    }
+
+    /**
+     * Computes the summary for a tile.
+     *
+     * @param tile a valid tile
+     * @return a valid instance
+     */
+    static G93TileSummary summarize(RasterTile tile) {
+        int count = 0;
+        float minValue = Float.POSITIVE_INFINITY;
+        float maxValue = Float.NEGATIVE_INFINITY;
+        double sum = 0;
+        if (tile instanceof RasterTileInt) {
+            int[] v = ((RasterTileInt) tile).valuesArray[0];
+            int iMin = Integer.MAX_VALUE;
+            int iMax = Integer.MIN_VALUE;
+            long iSum = 0;
+            for (int i = 0; i < v.length; i++) {
+                int s = v[i];
+                if (s != INT4_NULL_CODE) {
+                    count++;
+                    iSum += s;
+                    if (s < iMin) {
+                        iMin = s;
+                    }
+                    if (s > iMax) {
+                        iMax = s;
+                    }
+                }
+            }
+            if (count > 0) {
+                // the mapping to floating-point values is monotonic
+                // for positive scale values, so the extrema may be mapped
+                // directly.
+                float a = iMin / tile.valueScale + tile.valueOffset;
+                float b = iMax / tile.valueScale + tile.valueOffset;
+                minValue = Math.min(a, b);
+                maxValue = Math.max(a, b);
+                sum = iSum / (double) tile.valueScale + count * (double) tile.valueOffset;
+            }
+        } else {
+            float[] v = ((RasterTileFloat) tile).valuesArray[0];
+            for (int i = 0; i < v.length; i++) {
+                float f = v[i];
+                if (!Float.isNaN(f)) {
+                    count++;
+                    sum += f;
+                    if (f < minValue) {
+                        minValue = f;
+                    }
+                    if (f > maxValue) {
+                        maxValue = f;
+                    }
+                }
+            }
+        }
+        return new G93TileSummary(count, minValue, maxValue, sum);
+    }
+
+    private synchronized void set(
+        int tileIndex, int count, float minValue, float maxValue, double sum) {
+        counts[tileIndex] = count;
+        minValues[tileIndex] = minValue;
+        maxValues[tileIndex] = maxValue;
+        sums[tileIndex] = sum;
+    }
+
+    /**
+     * Sets the summaries for the tiles that do not exist in the file
+     * to indicate that they contain no data.
+     *
+     * @param tileStore the tile store for the file
+     */
+    synchronized void markEmptyTiles(G93TileStore tileStore) {
+        for (int i = 0; i < counts.length; i++) {
+            if (!tileStore.doesTileExist(i)) {
+                counts[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the summary for a tile is known.
+     *
+     * @param tileIndex a valid tile index
+     * @return true if the summary is known; otherwise, false.
+     */
+    synchronized boolean isKnown(int tileIndex) {
+        return counts[tileIndex] >= 0;
+    }
+
+    /**
+     * Gets the summary for a tile.
+     *
+     * @param tileIndex a valid tile index
+     * @return if the summary is known, a valid instance; otherwise, a null.
+     */
+    synchronized G93TileSummary get(int tileIndex) {
+        int count = counts[tileIndex];
+        if (count < 0) {
+            return null;
+        }
+        return new G93TileSummary(
+            count, minValues[tileIndex], maxValues[tileIndex], sums[tileIndex]);
+    }
+
+    /**
+     * Gets the content of the table in the form used for storage. Only the
+     * known summaries for tiles that contain data are included.
+     *
+     * @param timeModified the modification time for the file, used to
+     * detect whether the table is consistent with the file when it is read.
+     * @return a valid array
+     */
+    synchronized byte[] getPayload(long timeModified) {
+        int nEntries = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                nEntries++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + nEntries * ENTRY_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(timeModified);
+        buffer.putInt(counts.length);
+        buffer.putInt(nEntries);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buffer.putInt(i);
+                buffer.putInt(counts[i]);
+                buffer.putFloat(minValues[i]);
+                buffer.putFloat(maxValues[i]);
+                buffer.putDouble(sums[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Loads the summaries from a payload obtained from getPayload().
+     * Summaries are loaded for the tiles that exist in the file.
+     * The table is not modified if the payload is inconsistent with
+     * the file.
+     *
+     * @param payload a valid array
+     * @param timeModified the modification time for the file
+     * @param tileStore the tile store for the file
+     * @return true if the payload was loaded; otherwise, false.
+     */
+    synchronized boolean load(byte[] payload, long timeModified, G93TileStore tileStore) {
+        if (payload.length < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        long payloadTime = buffer.getLong();
+        int nTiles = buffer.getInt();
+        int nEntries = buffer.getInt();
+        if (payloadTime != timeModified
+            || nTiles != counts.length
+            || nEntries < 0
+            || payload.length < HEADER_SIZE + (long) nEntries * ENTRY_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < nEntries; i++) {
+            int tileIndex = buffer.getInt();
+            int count = buffer.getInt();
+            float minValue = buffer.getFloat();
+            float maxValue = buffer.getFloat();
+            double sum = buffer.getDouble();
+            if (tileIndex >= 0 && tileIndex < nTiles && tileStore.doesTileExist(tileIndex)) {
+                set(tileIndex, count, minValue, maxValue, sum);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,319 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses and stores tiles that are evicted from the tile cache
+ * using background threads. When an application writes a large amount
+ * of data to a file, the trial compression of tiles may require more
+ * time than the production of the data. Moving the work to background
+ * threads allows the producer to continue while evicted tiles are
+ * being processed.
+ * <p>
+ * Evicted tiles are compressed by a pool of worker threads, each of which
+ * has its own instance of the codecs. The resulting packings are passed
+ * to a single writer thread which stores them in the file. Because
+ * the number of tiles that may be queued at any one time is bounded,
+ * a producer that outpaces the background threads will be blocked until
+ * space is available in the queue.
+ * <p>
+ * A tile that is requested by the cache while it is queued for writing is
+ * returned to the cache once its write operation is complete. This
+ * approach ensures that there is never more than one pending write
+ * for a particular tile.
+ * <p>
+ * With the exception of the task code, the methods of this class are
+ * intended to be called only by the thread that owns the tile cache.
+ */
+class TileWriteBehind {
+
+    private final G93TileStore tileStore;
+    private final int queueCapacity;
+    private final int nThreads;
+    private final Semaphore queueSlots;
+    private final ExecutorService compressors;
+    private final ExecutorService writer;
+    private final ThreadLocal<CodecMaster> codec;
+    private final ConcurrentHashMap<Integer, PendingWrite> pending
+        = new ConcurrentHashMap<>();
+
+    // the first error reported by the background threads.  once an error
+    // occurs, no further writes are performed.
+    private volatile IOException failure;
+
+    // Counters for gathering access statistics
+    private long nTilesQueued;
+    private long nTilesReclaimed;
+    private long nProducerStalls;
+
+    private static class PendingWrite {
+
+        final RasterTile tile;
+        final CountDownLatch done = new CountDownLatch(1);
+        byte[] packing;
+        IOException error;
+
+        PendingWrite(RasterTile tile) {
+            this.tile = tile;
+        }
+    }
+
+    /**
+     * Constructs an instance with the specified queue capacity.
+     *
+     * @param tileStore the tile store for the file
+     * @param codecMaster the codec for the file, used as a model for
+     * the codec instances used by the background threads.
+     * @param queueCapacity the maximum number of tiles that may be pending
+     * at any one time.
+     */
+    TileWriteBehind(
+        G93TileStore tileStore,
+        final CodecMaster codecMaster,
+        int queueCapacity) {
+        this.tileStore = tileStore;
+        this.queueCapacity = queueCapacity;
+        this.queueSlots = new Semaphore(queueCapacity);
+        int n = Runtime.getRuntime().availableProcessors() - 1;
+        if (n > queueCapacity) {
+            n = queueCapacity;
+        }
+        if (n < 1) {
+            n = 1;
+        }
+        nThreads = n;
+        compressors = Executors.newFixedThreadPool(nThreads,
+            new DaemonThreadFactory("G93 tile compression"));
+        writer = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("G93 tile writer"));
+        codec = new ThreadLocal<CodecMaster>() {
+            @Override
+            protected CodecMaster initialValue() {
+                return codecMaster.copy();
+            }
+        };
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Queues a tile for compression and storage. If the queue is full,
+     * this method blocks until space becomes available. The caller
+     * must not modify the tile after it is submitted.
+     *
+     * @param tile a valid tile that requires writing
+     * @throws IOException if a prior background operation failed or
+     * the calling thread is interrupted.
+     */
+    void submit(RasterTile tile) throws IOException {
+        checkFailure();
+        if (!queueSlots.tryAcquire()) {
+            nProducerStalls++;
+            try {
+                queueSlots.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to write tile "
+                    + tile.tileIndex, ex);
+            }
+        }
+        nTilesQueued++;
+        tile.clearWritingRequired();
+        final PendingWrite p = new PendingWrite(tile);
+        pending.put(tile.tileIndex, p);
+        compressors.execute(new Runnable() {
+            @Override
+            public void run() {
+                compress(p);
+            }
+        });
+    }
+
+    private void compress(final PendingWrite p) {
+        try {
+            if (failure == null) {
+                p.packing = tileStore.getCompressedPacking(p.tile, codec.get());
+            }
+        } catch (IOException ex) {
+            p.error = ex;
+        } catch (RuntimeException ex) {
+            p.error = new IOException(
+                "Failed to compress tile " + p.tile.tileIndex, ex);
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(p);
+            }
+        });
+    }
+
+    private void write(PendingWrite p) {
+        try {
+            if (p.error != null) {
+                recordFailure(p.error);
+            } else if (failure == null) {
+                tileStore.storeTile(p.tile, p.packing);
+            }
+        } catch (IOException ex) {
+            recordFailure(ex);
+        } catch (RuntimeException ex) {
+            recordFailure(new IOException(
+                "Failed to store tile " + p.tile.tileIndex, ex));
+        } finally {
+            p.packing = null;
+            pending.remove(p.tile.tileIndex, p);
+            p.done.countDown();
+            queueSlots.release();
+        }
+    }
+
+    private synchronized void recordFailure(IOException ex) {
+        if (failure == null) {
+            failure = ex;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException ex = failure;
+        if (ex != null) {
+            throw new IOException("Background write failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Gets a tile that is queued for writing, waiting for its write
+     * operation to complete if necessary. Once the write is complete,
+     * the tile may be modified and re-submitted by the caller.
+     *
+     * @param tileIndex the index of the tile
+     * @return if the tile was queued for writing, a valid instance;
+     * otherwise, a null.
+     * @throws IOException in the event of a background I/O error or
+     * if the calling thread is interrupted.
+     */
+    RasterTile reclaim(int tileIndex) throws IOException {
+        PendingWrite p = pending.get(tileIndex);
+        if (p == null) {
+            return null;
+        }
+        try {
+            p.done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for tile "
+                + tileIndex, ex);
+        }
+        checkFailure();
+        nTilesReclaimed++;
+        return p.tile;
+    }
+
+    /**
+     * Waits until all queued tiles are written to the file.
+     *
+     * @throws IOException in the event of a background I/O error or
+     * if the calling thread is interrupted.
+     */
+    void drain() throws IOException {
+        try {
+            queueSlots.acquire(queueCapacity);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for tile writes", ex);
+        }
+        queueSlots.release(queueCapacity);
+        checkFailure();
+    }
+
+    /**
+     * Shuts down the background threads. Any tiles that are still
+     * queued are written before the threads terminate.
+     */
+    void shutdown() {
+        // the compression tasks pass their results to the writer,
+        // so the writer must accept tasks until they are all complete.
+        compressors.shutdown();
+        boolean interrupted = false;
+        while (!compressors.isTerminated()) {
+            try {
+                compressors.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        writer.shutdown();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void summarize(PrintStream ps) {
+        ps.format("Tile Write-Behind%n");
+        ps.format("   Queue Capacity:            %12d%n", queueCapacity);
+        ps.format("   Compression Threads:       %12d%n", nThreads);
+        ps.format("   Tiles Queued:              %12d%n", nTilesQueued);
+        ps.format("   Tiles Reclaimed:           %12d%n", nTilesReclaimed);
+        ps.format("   Producer Stalls:           %12d%n", nProducerStalls);
+    }
+}
@@ -0,0 +1,153 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.util.Arrays;
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+
+/**
+ * Selects the cells within a rectangular region of the grid whose values
+ * lie in a specified range. Tiles whose summaries show that they cannot
+ * contain a matching value are rejected without being read.
+ * Instances of this class are immutable and may be used by multiple
+ * threads at once.
+ */
+class ValueRangeFilter {
+
+    private final float minValue;
+    private final float maxValue;
+    private final int gr0;
+    private final int gc0;
+    private final int gr1;
+    private final int gc1;
+    private final int nColumnsInGrid;
+
+    /**
+     * Constructs a filter for the specified range of values and
+     * region of the grid.
+     *
+     * @param spec the specification for the file
+     * @param minValue the minimum value in the range, inclusive
+     * @param maxValue the maximum value in the range, inclusive
+     * @param gr0 the first grid row of the region
+     * @param gc0 the first grid column of the region
+     * @param gr1 the last grid row of the region
+     * @param gc1 the last grid column of the region
+     */
+    ValueRangeFilter(G93FileSpecification spec,
+        float minValue, float maxValue, int gr0, int gc0, int gr1, int gc1) {
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.gr0 = gr0;
+        this.gc0 = gc0;
+        this.gr1 = gr1;
+        this.gc1 = gc1;
+        this.nColumnsInGrid = spec.nColsInRaster;
+    }
+
+    /**
+     * Indicates whether a tile with the specified summary may contain
+     * values within the range.
+     *
+     * @param summary the summary for the tile, or a null if the
+     * summary is not known.
+     * @return true if the tile may contain values in the range;
+     * false if it does not.
+     */
+    boolean mayContainMatches(G93TileSummary summary) {
+        if (summary == null) {
+            return true;
+        }
+        return summary.getCount() > 0
+            && summary.getMaximum() >= minValue
+            && summary.getMinimum() <= maxValue;
+    }
+
+    /**
+     * Gets the grid cell indices of the cells in the tile whose values lie
+     * within the range. The index of a cell is computed as
+     * gridRow*nColumnsInGrid + gridColumn. Only the first element of the
+     * tile values is considered.
+     *
+     * @param tile a valid tile
+     * @return a valid, potentially empty, array in order of increasing index
+     */
+    long[] getMatches(RasterTile tile) {
+        int gtRowOffset = tile.tileRow * tile.nRows;
+        int gtColOffset = tile.tileCol * tile.nCols;
+        int tr0 = Math.max(gr0, gtRowOffset) - gtRowOffset;
+        int tr1 = Math.min(gr1, gtRowOffset + tile.nRows - 1) - gtRowOffset;
+        int tc0 = Math.max(gc0, gtColOffset) - gtColOffset;
+        int tc1 = Math.min(gc1, gtColOffset + tile.nCols - 1) - gtColOffset;
+        if (tr0 > tr1 || tc0 > tc1) {
+            return new long[0];
+        }
+
+        long[] matches = new long[16];
+        int n = 0;
+        for (int tr = tr0; tr <= tr1; tr++) {
+            int index = tr * tile.nCols;
+            long gridIndex = (long) (tr + gtRowOffset) * nColumnsInGrid + gtColOffset;
+            for (int tc = tc0; tc <= tc1; tc++) {
+                if (isMatch(tile, index + tc)) {
+                    if (n == matches.length) {
+                        matches = Arrays.copyOf(matches, n * 2);
+                    }
+                    matches[n++] = gridIndex + tc;
+                }
+            }
+        }
+        return Arrays.copyOf(matches, n);
+    }
+
+    private boolean isMatch(RasterTile tile, int index) {
+        float value;
+        if (tile instanceof RasterTileInt) {
+            int s = ((RasterTileInt) tile).values[index];
+            if (s == INT4_NULL_CODE) {
+                return false;
+            }
+            value = s / tile.valueScale + tile.valueOffset;
+        } else {
+            // NaN fails both comparisons
+            value = ((RasterTileFloat) tile).values[index];
+        }
+        return value >= minValue && value <= maxValue;
+    }
+}
@@ -49,7 +49,7 @@ public class VariableLengthRecord {
     public static final int DESCRIPTION_SIZE = 32;
 
     final BufferedRandomAccessFile braf;
-    final long offset;
+    long offset;  // not final, records may be moved by compaction
     final String userId;
     final int recordId;
     final int payloadSize; // not including header
@@ -219,17 +219,24 @@ public class VariableLengthRecord {
             return new byte[0];
         }
         byte[] p = new byte[payloadSize];
-        if (payload == null) {
-            payload = new byte[payloadSize];
-            if (braf == null || braf.isClosed()) {
-                throw new IOException("Unable to read payload, file is closed");
+        if (braf == null) {
+            throw new IOException("Unable to read payload, file is closed");
+        }
+        // synchronization protects the file position in the case where
+        // the associated file is opened for shared, multi-threaded access.
+        synchronized (braf) {
+            if (payload == null) {
+                if (braf.isClosed()) {
+                    throw new IOException("Unable to read payload, file is closed");
+                }
+                byte[] b = new byte[payloadSize];
+                braf.seek(offset + VLR_HEADER_SIZE);
+                braf.readFully(b);
+                payload = b;
             }
-            braf.seek(offset + VLR_HEADER_SIZE);
-            braf.readFully(payload);
+            System.arraycopy(payload, 0, p, 0, payloadSize);
         }
 
-        System.arraycopy(payload, 0, p, 0, payloadSize);
-
         return p;
     }
 
@@ -83,7 +83,7 @@ public class BufferedRandomAccessFile
   private static final int BUFFER_SIZE = 8 * 1024;
 
   final File file;
-  final ByteBuffer buffer
+  ByteBuffer buffer
           = ByteBuffer.allocateDirect(BUFFER_SIZE).order(
                   ByteOrder.LITTLE_ENDIAN);
   RandomAccessFile raf;
@@ -311,6 +311,63 @@ public class BufferedRandomAccessFile
     return virtualLength;
   }
 
+  /**
+   * Sets the size of the internal buffer. Any pending output is written
+   * to the file before the buffer is replaced. A large buffer may improve
+   * the performance of applications that write large amounts of data
+   * sequentially, but will reduce the performance of random-access reads.
+   *
+   * @param bufferSize the size of the buffer in bytes, or zero
+   * to restore the default size.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void setBufferSize(int bufferSize) throws IOException {
+    if (bufferSize < 0) {
+      throw new IllegalArgumentException(
+              "Negative buffer size not allowed");
+    }
+    int size = bufferSize == 0 ? BUFFER_SIZE : bufferSize;
+    if (size == buffer.capacity()) {
+      return;
+    }
+    if (writeDataIsInBuffer) {
+      flushWrite();
+    }
+    if (readDataIsInBuffer) {
+      readDataIsInBuffer = false;
+      truePosition = -1;
+    }
+    buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Sets the length of the file. If the new length is less than the current
+   * length, the file is truncated and, if the file position is beyond the
+   * new length, it is set to the new length. If the new length is greater,
+   * the file is extended and the content of the extension is undefined.
+   *
+   * @param newLength the desired length of the file, in bytes
+   * @throws IOException if the length is less than zero or an I/O
+   * error occurs.
+   */
+  public void setLength(long newLength) throws IOException {
+    if (raf == null) {
+      throw new IOException("Setting length of a file that was closed");
+    }
+    if (writeDataIsInBuffer) {
+      flushWrite();
+    }
+    readDataIsInBuffer = false;
+    buffer.clear();
+    raf.setLength(newLength);
+    virtualLength = newLength;
+    if (virtualPosition > newLength) {
+      virtualPosition = newLength;
+    }
+    truePosition = virtualPosition;
+    rafChannel.position(virtualPosition);
+  }
+
   /**
    * Gets the position within the file at which the next write or read operation
    * will be performed. The file position is measured in bytes and given as
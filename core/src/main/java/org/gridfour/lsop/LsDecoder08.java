@@ -62,6 +62,14 @@ public class LsDecoder08 implements ICompressionDecoder {
 
     @Override
     public int[] decode(int nRows, int nColumns, byte[] packing) throws IOException {
+        int[] values = new int[nRows * nColumns];
+        decode(nRows, nColumns, packing, values);
+        return values;
+    }
+
+    @Override
+    public boolean decode(int nRows, int nColumns, byte[] packing, int[] values)
+        throws IOException {
 
         LsHeader header = new LsHeader(packing, 0);
         int seed = header.getSeed();
@@ -102,10 +110,9 @@ public class LsDecoder08 implements ICompressionDecoder {
                 throw new IOException(dfe.getMessage(), dfe);
             }
         }
-        int[] values = new int[nRows * nColumns];
         unpackInitializers(initializerCodes, seed, nRows, nColumns, values);
         unpackInterior(interiorCodes, u, nRows, nColumns, values);
-        return values;
+        return true;
     }
 
     private void unpackInitializers(byte[] packing, int seed, int nRows, int nColumns, int values[]) {
@@ -84,6 +84,14 @@ strictfp public class LsDecoder12 implements ICompressionDecoder {
 
     @Override
     public int[] decode(int nRows, int nColumns, byte[] packing) throws IOException {
+        int[] values = new int[nRows * nColumns];
+        decode(nRows, nColumns, packing, values);
+        return values;
+    }
+
+    @Override
+    public boolean decode(int nRows, int nColumns, byte[] packing, int[] values)
+        throws IOException {
 
         LsHeader header = new LsHeader(packing, 0);
         int seed = header.getSeed();
@@ -124,11 +132,10 @@ strictfp public class LsDecoder12 implements ICompressionDecoder {
                 throw new IOException(dfe.getMessage(), dfe);
             }
         }
-        int[] values = new int[nRows * nColumns];
         CodecM32 m32 = unpackInitializers(initializerCodes, seed, nRows, nColumns, values);
         unpackInterior(interiorCodes, u, m32, nRows, nColumns, values);
 
-        return values;
+        return true;
     }
 
     private CodecM32 unpackInitializers(byte[] packing, int seed, int nRows, int nColumns, int values[]) {
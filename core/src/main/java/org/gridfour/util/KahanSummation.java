@@ -69,6 +69,27 @@ public class KahanSummation {
     n++;
  }
 
+ /**
+  * Adds the content of another summation to this summation,
+  * preserving the extended precision of both.  This method
+  * allows partial sums computed by separate threads to be combined.
+  * @param other a valid instance
+  */
+ public void add(KahanSummation other){
+   double a = other.s;
+   double b = -other.c;
+   double y, t;
+   y = a - c;
+   t = s + y;
+   c = (t - s ) - y;
+   s = t;
+   y = b - c;
+   t = s + y;
+   c = (t - s ) - y;
+   s = t;
+   n += other.n;
+ }
+
  /**
   * The current value of the summation.
   * @return the standard-precision part of the sum,
@@ -0,0 +1,178 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the management of free space in the tile store.
+ */
+public class FileSpaceManagerTest {
+
+  @TempDir
+  Path tempDir;
+
+  public FileSpaceManagerTest() {
+  }
+
+  private String summarize(G93File g93) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(bos);
+    g93.summarize(ps, false);
+    ps.flush();
+    return bos.toString();
+  }
+
+  @Test
+  void testBestFit() {
+    FileSpaceManager manager = new FileSpaceManager();
+    manager.add(0, 4096);
+    manager.add(8192, 2048);
+    manager.add(16384, 1536);
+    assertEquals(3, manager.getFreeBlockCount());
+    assertEquals(4096 + 2048 + 1536, manager.getFreeSpace());
+    assertEquals(4096, manager.getLargestFreeBlockSize());
+
+    // an exact fit is preferred
+    FileSpaceManager.FreeBlock block = manager.allocate(1536, 1024);
+    assertEquals(16384, block.filePos);
+
+    // a block too small to leave a usable surplus is not selected,
+    // so the smallest block that can be split is used.
+    block = manager.allocate(1000, 1024);
+    assertEquals(8192, block.filePos);
+    assertNull(manager.allocate(4000, 1024));
+    assertEquals(1, manager.getFreeBlockCount());
+  }
+
+  @Test
+  void testCoalescing() {
+    FileSpaceManager manager = new FileSpaceManager();
+    manager.release(1000, 100);
+    manager.release(1200, 100);
+    assertEquals(2, manager.getFreeBlockCount());
+    FileSpaceManager.FreeBlock block = manager.release(1100, 100);
+    assertEquals(1, manager.getFreeBlockCount());
+    assertEquals(1000, block.filePos);
+    assertEquals(300, block.blockSize);
+    assertEquals(300, manager.getFreeSpace());
+    assertEquals(1, manager.getFreeBlockCountBelow(301));
+    assertEquals(0, manager.getFreeBlockCountBelow(300));
+  }
+
+  static int sample(int row, int column, int pass) {
+    if ((pass & 1) == 0) {
+      return row * column;
+    }
+    return (row * 11 + column * 5) % 2000 - 1000;
+  }
+
+  @Test
+  void testRewriteAndTruncate() throws IOException {
+    int nRowsInRaster = 200;
+    int nColsInRaster = 250;
+    int nRowsInTile = 40;
+    int nColsInTile = 50;
+    File file = new File(tempDir.toFile(), "FreeSpace.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, sample(iRow, iCol, 0));
+        }
+      }
+    }
+
+    // repeatedly rewrite the tiles with content that compresses
+    // to different sizes.  The free space should be re-used.
+    long initialSize = 0;
+    for (int iPass = 1; iPass <= 6; iPass++) {
+      try (G93File g93 = new G93File(file, "rw")) {
+        g93.setTileCacheSize(1);
+        for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+          for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+            g93.storeIntValue(iRow, iCol, sample(iRow, iCol, iPass));
+          }
+        }
+      }
+      try (G93File g93 = new G93File(file, "r")) {
+        for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+          for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+            assertEquals(sample(iRow, iCol, iPass), g93.readIntValue(iRow, iCol));
+          }
+        }
+      }
+      if (iPass == 2) {
+        initialSize = file.length();
+      }
+    }
+    long rewrittenSize = file.length();
+    assertTrue(rewrittenSize < 2 * initialSize,
+      "File grew from " + initialSize + " to " + rewrittenSize);
+
+    // clearing the tiles releases their space.  Because the released
+    // blocks are merged, the free space extends to the end of the file
+    // and the file is truncated.
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.setTileCacheSize(1);
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, INT4_NULL_CODE);
+        }
+      }
+      g93.flush();
+      String summary = summarize(g93);
+      assertTrue(summary.matches("(?s).*Free Nodes: +0.*"), summary);
+    }
+    assertTrue(file.length() < rewrittenSize);
+  }
+}
@@ -0,0 +1,384 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the block and tile-oriented access operations.
+ */
+public class G93FileBlockTest {
+
+  @TempDir
+  Path tempDir;
+
+  static final int nRowsInRaster = 200;
+  static final int nColsInRaster = 250;
+  static final int nRowsInTile = 40;
+  static final int nColsInTile = 50;
+
+  public G93FileBlockTest() {
+  }
+
+  static int sample(int row, int column) {
+    return (row * 11 + column * 5) % 2000 - 1000;
+  }
+
+  private void testWriteBlock(boolean floatType) throws IOException {
+    File file = new File(tempDir.toFile(), "Block" + floatType + ".g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    if (floatType) {
+      spec.setDataModelFloat(1);
+    }
+    spec.setDataCompressionEnabled(true);
+
+    // write a block that is aligned with the tiles using integers
+    // and an unaligned block that overlaps it using floats.
+    int[] iBlock = new int[nRowsInTile * 2 * nColsInTile * 3];
+    for (int iRow = 0; iRow < nRowsInTile * 2; iRow++) {
+      for (int iCol = 0; iCol < nColsInTile * 3; iCol++) {
+        iBlock[iRow * nColsInTile * 3 + iCol] = sample(iRow, iCol);
+      }
+    }
+    iBlock[1] = INT4_NULL_CODE;
+    int row0 = 65;
+    int col0 = 73;
+    int nRows = 101;
+    int nCols = 97;
+    float[] fBlock = new float[nRows * nCols];
+    for (int iRow = 0; iRow < nRows; iRow++) {
+      for (int iCol = 0; iCol < nCols; iCol++) {
+        fBlock[iRow * nCols + iCol] = -sample(row0 + iRow, col0 + iCol);
+      }
+    }
+    try (G93File g93 = new G93File(file, spec)) {
+      g93.setTileCacheSize(2);
+      g93.writeBlock(0, 0, nRowsInTile * 2, nColsInTile * 3, iBlock);
+      g93.writeBlock(row0, col0, nRows, nCols, fBlock);
+      assertThrows(IOException.class, ()
+        -> g93.writeBlock(nRowsInRaster - 1, 0, 2, 1, new float[2]));
+      assertThrows(IOException.class, ()
+        -> g93.writeBlock(0, 0, 2, 2, new float[3]));
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          int expected = INT4_NULL_CODE;
+          if (iRow >= row0 && iRow < row0 + nRows
+            && iCol >= col0 && iCol < col0 + nCols) {
+            expected = -sample(iRow, iCol);
+          } else if (iRow < nRowsInTile * 2 && iCol < nColsInTile * 3
+            && !(iRow == 0 && iCol == 1)) {
+            expected = sample(iRow, iCol);
+          }
+          assertEquals(expected, g93.readIntValue(iRow, iCol),
+            "Mismatch at " + iRow + ", " + iCol);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testWriteBlockInt() throws IOException {
+    testWriteBlock(false);
+  }
+
+  @Test
+  void testWriteBlockFloat() throws IOException {
+    testWriteBlock(true);
+  }
+
+  @Test
+  void testTileReadWrite() throws IOException {
+    File file = new File(tempDir.toFile(), "Tiles.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataCompressionEnabled(true);
+    int nRowsOfTiles = spec.getRowsOfTilesInGrid();
+    int nColsOfTiles = spec.getColumnsOfTilesInGrid();
+    int[] values = new int[nRowsInTile * nColsInTile];
+    List<Integer> populated = new ArrayList<>();
+    try (G93File g93 = new G93File(file, spec)) {
+      g93.setTileCacheSize(2);
+      for (int tileRow = 0; tileRow < nRowsOfTiles; tileRow++) {
+        for (int tileCol = 0; tileCol < nColsOfTiles; tileCol++) {
+          int tileIndex = tileRow * nColsOfTiles + tileCol;
+          if (tileIndex % 4 == 1) {
+            continue;
+          }
+          populated.add(tileIndex);
+          for (int i = 0; i < values.length; i++) {
+            values[i] = sample(
+              tileRow * nRowsInTile + i / nColsInTile,
+              tileCol * nColsInTile + i % nColsInTile);
+          }
+          g93.writeTile(tileRow, tileCol, values, (tileIndex & 1) == 0);
+        }
+      }
+      // tiles held in the cache are included before they are written
+      checkPopulatedTiles(g93, populated);
+    }
+
+    float[] fValues = new float[nRowsInTile * nColsInTile];
+    int[] iValues = new int[nRowsInTile * nColsInTile];
+    try (G93File g93 = new G93File(file, "r")) {
+      checkPopulatedTiles(g93, populated);
+      for (int tileRow = 0; tileRow < nRowsOfTiles; tileRow++) {
+        for (int tileCol = 0; tileCol < nColsOfTiles; tileCol++) {
+          int tileIndex = tileRow * nColsOfTiles + tileCol;
+          boolean expected = populated.contains(tileIndex);
+          assertEquals(expected, g93.readTile(tileRow, tileCol, fValues));
+          assertEquals(expected, g93.readTile(tileRow, tileCol, iValues));
+          for (int i = 0; i < values.length; i++) {
+            int row = tileRow * nRowsInTile + i / nColsInTile;
+            int col = tileCol * nColsInTile + i % nColsInTile;
+            assertEquals(g93.readIntValue(row, col), iValues[i]);
+            assertEquals(g93.readValue(row, col), fValues[i]);
+            if (expected) {
+              assertEquals(sample(row, col), iValues[i]);
+            }
+          }
+        }
+      }
+      assertThrows(IOException.class, ()
+        -> g93.readTile(nRowsOfTiles, 0, fValues));
+      assertThrows(IOException.class, ()
+        -> g93.readTile(0, 0, new float[10]));
+    }
+  }
+
+  private void checkPopulatedTiles(G93File g93, List<Integer> populated)
+    throws IOException {
+    List<Integer> found = new ArrayList<>();
+    Iterator<G93TileCoordinates> iterator = g93.getPopulatedTileIterator();
+    while (iterator.hasNext()) {
+      G93TileCoordinates tile = iterator.next();
+      assertEquals(tile.getTileRow() * nRowsInTile, tile.getGridRow());
+      assertEquals(tile.getTileColumn() * nColsInTile, tile.getGridColumn());
+      found.add(tile.getTileIndex());
+    }
+    assertEquals(populated, found);
+  }
+
+  @Test
+  void testTileStream() throws IOException {
+    File file = new File(tempDir.toFile(), "Stream.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataCompressionEnabled(true);
+    int nColsOfTiles = spec.getColumnsOfTilesInGrid();
+    long expectedSum = 0;
+    int nExpected = 0;
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          int tileIndex = (iRow / nRowsInTile) * nColsOfTiles + iCol / nColsInTile;
+          if (tileIndex % 3 != 0) {
+            g93.storeIntValue(iRow, iCol, sample(iRow, iCol));
+            expectedSum += sample(iRow, iCol);
+          }
+        }
+      }
+      assertThrows(IOException.class, () -> g93.tiles());
+    }
+    for (int i = 0; i < 25; i++) {
+      if (i % 3 != 0) {
+        nExpected++;
+      }
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      assertEquals(nExpected, g93.tiles().count());
+      long sum = g93.tiles().parallel().mapToLong(view -> {
+        long s = 0;
+        for (int row = 0; row < view.getRowsInGrid(); row++) {
+          for (int col = 0; col < view.getColumnsInGrid(); col++) {
+            s += view.getIntValue(row, col);
+          }
+        }
+        return s;
+      }).sum();
+      assertEquals(expectedSum, sum);
+
+      // the views given by a parallel stream match the tile content
+      List<G93TileView> views
+        = g93.tiles().parallel().collect(Collectors.toList());
+      assertEquals(nExpected, views.size());
+      int[] values = new int[nRowsInTile * nColsInTile];
+      for (G93TileView view : views) {
+        assertTrue(view.getTileIndex() % 3 != 0);
+        view.getValues(values);
+        for (int i = 0; i < values.length; i++) {
+          int row = view.getGridRow() + i / nColsInTile;
+          int col = view.getGridColumn() + i % nColsInTile;
+          assertEquals(g93.readIntValue(row, col), values[i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testBatchedBlockRead() throws IOException {
+    // write the tiles in reverse order, leaving every third tile
+    // unpopulated, so that the file positions of the tiles do not
+    // follow the order of the grid.
+    for (int iCompressed = 0; iCompressed < 2; iCompressed++) {
+      File file = new File(tempDir.toFile(), "Batched" + iCompressed + ".g93");
+      G93FileSpecification spec = new G93FileSpecification(
+        nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+      spec.setDataCompressionEnabled(iCompressed == 1);
+      int nRowsOfTiles = nRowsInRaster / nRowsInTile;
+      int nColsOfTiles = nColsInRaster / nColsInTile;
+      try (G93File g93 = new G93File(file, spec)) {
+        g93.setTileCacheSize(1);
+        for (int tileIndex = nRowsOfTiles * nColsOfTiles - 1; tileIndex >= 0; tileIndex--) {
+          if (tileIndex % 3 == 0) {
+            continue;
+          }
+          int row0 = (tileIndex / nColsOfTiles) * nRowsInTile;
+          int col0 = (tileIndex % nColsOfTiles) * nColsInTile;
+          for (int iRow = row0; iRow < row0 + nRowsInTile; iRow++) {
+            for (int iCol = col0; iCol < col0 + nColsInTile; iCol++) {
+              g93.storeIntValue(iRow, iCol, sample(iRow, iCol));
+            }
+          }
+        }
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      try {
+        for (int iExecutor = 0; iExecutor < 2; iExecutor++) {
+          try (G93File g93 = new G93File(file, "r")) {
+            g93.setTileCacheSize(4);
+            g93.setFlushExecutor(iExecutor == 0 ? null : executor);
+            int row0 = 15;
+            int col0 = 20;
+            int nRows = nRowsInRaster - 30;
+            int nCols = nColsInRaster - 45;
+            float[] block = g93.readBlock(row0, col0, nRows, nCols);
+            for (int iRow = 0; iRow < nRows; iRow++) {
+              for (int iCol = 0; iCol < nCols; iCol++) {
+                int gRow = row0 + iRow;
+                int gCol = col0 + iCol;
+                int tileIndex = (gRow / nRowsInTile) * nColsOfTiles + gCol / nColsInTile;
+                float expected = tileIndex % 3 == 0 ? Float.NaN : sample(gRow, gCol);
+                assertEquals(expected, block[iRow * nCols + iCol],
+                  "Mismatch at " + gRow + ", " + gCol);
+              }
+            }
+          }
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void testBlockReadIntoArray() throws IOException {
+    // integer values larger than 2^24 cannot be represented exactly
+    // as floats, so the integer block must give the raw values.
+    File file = new File(tempDir.toFile(), "BlockArray.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    int base = (1 << 24) + 1;
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = nColsInTile; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, base + sample(iRow, iCol));
+        }
+      }
+    }
+
+    int row0 = 30;
+    int col0 = 35;
+    int nRows = 60;
+    int nCols = 70;
+    int offset = 5;
+    int stride = nCols + 3;
+    int[] iBlock = new int[offset + nRows * stride];
+    float[] fBlock = new float[offset + nRows * stride];
+    Arrays.fill(iBlock, -1);
+    Arrays.fill(fBlock, -1);
+    try (G93File g93 = new G93File(file, "r")) {
+      g93.readBlockInt(row0, col0, nRows, nCols, iBlock, offset, stride);
+      g93.readBlock(row0, col0, nRows, nCols, fBlock, offset, stride);
+      int[] compact = g93.readBlockInt(row0, col0, nRows, nCols);
+      for (int iRow = 0; iRow < nRows; iRow++) {
+        for (int iCol = 0; iCol < nCols; iCol++) {
+          int index = offset + iRow * stride + iCol;
+          int expected = g93.readIntValue(row0 + iRow, col0 + iCol);
+          assertEquals(expected, iBlock[index]);
+          assertEquals(expected, compact[iRow * nCols + iCol]);
+          assertEquals(g93.readValue(row0 + iRow, col0 + iCol), fBlock[index]);
+        }
+        // values outside the block are not modified
+        for (int iCol = nCols; iCol < stride && iRow < nRows - 1; iCol++) {
+          assertEquals(-1, iBlock[offset + iRow * stride + iCol]);
+        }
+      }
+      assertEquals(-1, iBlock[offset - 1]);
+      assertEquals(INT4_NULL_CODE, iBlock[offset]);
+      assertEquals(base + sample(row0, nColsInTile),
+        iBlock[offset + nColsInTile - col0]);
+      assertThrows(IOException.class, ()
+        -> g93.readBlockInt(row0, col0, nRows, nCols, iBlock, offset, nCols - 1));
+      assertThrows(IOException.class, ()
+        -> g93.readBlockInt(row0, col0, nRows, nCols, iBlock, offset + stride, stride));
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the bulk-loading mode for writing new files.
+ */
+public class G93FileBulkLoadTest {
+
+  @TempDir
+  Path tempDir;
+
+  public G93FileBulkLoadTest() {
+  }
+
+  static int sample(int row, int column) {
+    return (row * 11 + column * 5) % 2000 - 1000;
+  }
+
+  @Test
+  void testBulkLoad() throws IOException {
+    int nRowsInRaster = 200;
+    int nColsInRaster = 250;
+    for (boolean compressed : new boolean[]{false, true}) {
+      G93FileSpecification spec = new G93FileSpecification(
+        nRowsInRaster, nColsInRaster, 40, 50);
+      spec.setDataCompressionEnabled(compressed);
+      File reference = new File(tempDir.toFile(), "Reference" + compressed + ".g93");
+      File file = new File(tempDir.toFile(), "BulkLoad" + compressed + ".g93");
+      for (File target : new File[]{reference, file}) {
+        try (G93File g93 = new G93File(target, spec)) {
+          g93.setBulkLoadEnabled(target == file);
+          // a small cache ensures that tiles are written more than once
+          g93.setTileCacheSize(2);
+          for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+            for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+              g93.storeIntValue(iRow, iCol, sample(iRow, iCol));
+            }
+          }
+          // read back values while bulk loading is in progress
+          assertEquals(sample(0, 0), g93.readIntValue(0, 0));
+        }
+      }
+
+      // abandoned copies of tiles are removed when the file is closed
+      assertTrue(file.length() <= reference.length(),
+        "Bulk load " + file.length() + ", reference " + reference.length());
+      try (G93File g93 = new G93File(file, "r")) {
+        for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+          for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+            assertEquals(sample(iRow, iCol), g93.readIntValue(iRow, iCol));
+          }
+        }
+      }
+    }
+  }
+}
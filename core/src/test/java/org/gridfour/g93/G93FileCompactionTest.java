@@ -0,0 +1,142 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the compaction of a file that has been fragmented
+ * by the rewriting of its tiles and records.
+ */
+public class G93FileCompactionTest {
+
+  @TempDir
+  Path tempDir;
+
+  public G93FileCompactionTest() {
+  }
+
+  private String summarize(G93File g93) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(bos);
+    g93.summarize(ps, false);
+    ps.flush();
+    return bos.toString();
+  }
+
+  static int sample(int row, int column, int pass) {
+    if ((pass & 1) == 0) {
+      return row * column;
+    }
+    return (row * 11 + column * 5) % 2000 - 1000;
+  }
+
+  @Test
+  void testCompact() throws IOException {
+    int nRowsInRaster = 200;
+    int nColsInRaster = 250;
+    File file = new File(tempDir.toFile(), "Compact.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, 40, 50);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      g93.storeVariableLengthRecord("Test", 1, "First", "Written first");
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, sample(iRow, iCol, 0));
+        }
+      }
+    }
+
+    // rewrite the tiles in a pattern that fragments the file
+    // and leaves the tiles out of order.
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.setTileCacheSize(1);
+      for (int iCol = nColsInRaster - 1; iCol >= 0; iCol--) {
+        for (int iRow = nRowsInRaster - 1; iRow >= 0; iRow--) {
+          g93.storeIntValue(iRow, iCol, sample(iRow, iCol, 1));
+        }
+        if (iCol == nColsInRaster / 2) {
+          g93.storeVariableLengthRecord("Test", 2, "Second", "Written second");
+        }
+      }
+    }
+
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.storeIntValue(0, 0, -1);
+      g93.flush();
+      long sizeBeforeCompaction = file.length();
+      long reduction = g93.compact();
+      assertTrue(reduction > 0);
+      g93.flush();
+      assertEquals(sizeBeforeCompaction - reduction, file.length());
+      String summary = summarize(g93);
+      assertTrue(summary.matches("(?s).*Free Nodes: +0.*"), summary);
+      // a second compaction has nothing to do
+      assertEquals(0, g93.compact());
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          int expected = iRow == 0 && iCol == 0 ? -1 : sample(iRow, iCol, 1);
+          assertEquals(expected, g93.readIntValue(iRow, iCol));
+        }
+      }
+      int nFound = 0;
+      for (VariableLengthRecord vlr : g93.getVariableLengthRecords()) {
+        if ("Test".equals(vlr.getUserId())) {
+          nFound++;
+          String expected = vlr.getRecordId() == 1 ? "Written first" : "Written second";
+          assertEquals(expected, vlr.readPayloadText());
+        }
+      }
+      assertEquals(2, nFound);
+    }
+  }
+}
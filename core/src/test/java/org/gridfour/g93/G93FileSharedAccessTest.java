@@ -0,0 +1,180 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that a file opened for shared access returns correct
+ * values when read from multiple threads at once.
+ */
+public class G93FileSharedAccessTest {
+
+  @TempDir
+  Path tempDir;
+
+  static final int nRowsInRaster = 500;
+  static final int nColsInRaster = 450;
+  static final int nRowsInTile = 60;
+  static final int nColsInTile = 50;
+
+  public G93FileSharedAccessTest() {
+  }
+
+  static int sample(int row, int column) {
+    // a smooth surface with an empty region in the upper-left corner
+    if (row < 100 && column < 120) {
+      return Integer.MIN_VALUE;
+    }
+    return (row * 7 + column * 3) % 1000;
+  }
+
+  private File writeTestFile(String name, boolean compressed) throws IOException {
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataCompressionEnabled(compressed);
+    return G93TestFiles.writeIntFile(
+      tempDir, name, spec, G93FileSharedAccessTest::sample);
+  }
+
+  @Test
+  void testConcurrentReads() throws Exception {
+    File file0 = writeTestFile("SharedNonCompressed.g93", false);
+    File file1 = writeTestFile("SharedCompressed.g93", true);
+    testConcurrentReads(file0, false);
+    testConcurrentReads(file1, false);
+    testConcurrentReads(file0, true);
+    testConcurrentReads(file1, true);
+  }
+
+  @Test
+  void testMemoryMappedReads() throws Exception {
+    File file = writeTestFile("MappedCompressed.g93", true);
+    try (G93File g93 = new G93File(file, "r")) {
+      g93.setMemoryMappedReadEnabled(true);
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          assertEquals(sample(iRow, iCol), g93.readIntValue(iRow, iCol));
+        }
+      }
+    }
+  }
+
+  @Test
+  void testMappedSegments() throws Exception {
+    File file = new File(tempDir.toFile(), "Segments.dat");
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+      StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      ByteBuffer b = ByteBuffer.allocate(1000);
+      for (int i = 0; i < 1000; i++) {
+        b.put((byte) i);
+      }
+      b.flip();
+      channel.write(b);
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // small segments force ranges to be taken from the overlapping
+      // portion of a segment
+      MappedFileSegments segments = new MappedFileSegments(channel, 40, 64);
+      for (int pos = 0; pos < 960; pos += 8) {
+        ByteBuffer b = segments.getBuffer(pos, 40);
+        for (int i = 0; i < 40; i++) {
+          assertEquals((byte) (pos + i), b.get(), "Mismatch at " + (pos + i));
+        }
+      }
+    }
+  }
+
+  private void testConcurrentReads(File file, boolean mapped) throws Exception {
+    int nThreads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    try (final G93File g93 = G93File.openShared(file)) {
+      g93.setMemoryMappedReadEnabled(mapped);
+      // a small cache forces frequent reads and replacements
+      g93.setTileCacheSize(4);
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int iThread = 0; iThread < nThreads; iThread++) {
+        final int offset = iThread;
+        futures.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws IOException {
+            int nChecked = 0;
+            for (int iRow = offset; iRow < nRowsInRaster; iRow += 3) {
+              for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+                assertEquals(sample(iRow, iCol), g93.readIntValue(iRow, iCol),
+                  "Mismatch at " + iRow + ", " + iCol);
+                nChecked++;
+              }
+              float[] block = g93.readBlock(iRow, 0, 1, nColsInRaster);
+              for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+                int s = sample(iRow, iCol);
+                if (s == Integer.MIN_VALUE) {
+                  assertEquals(Float.NaN, block[iCol]);
+                } else {
+                  assertEquals((float) s, block[iCol]);
+                }
+              }
+            }
+            return nChecked;
+          }
+        }));
+      }
+      for (Future<Integer> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the construction and use of overview levels.
+ */
+public class G93OverviewTest {
+
+  @TempDir
+  Path tempDir;
+
+  static final int nRowsInRaster = 230;
+  static final int nColsInRaster = 270;
+  static final int nRowsInTile = 40;
+  static final int nColsInTile = 50;
+
+  public G93OverviewTest() {
+  }
+
+  static boolean isPopulated(int row, int column) {
+    return (row / nRowsInTile + column / nColsInTile) % 3 != 0;
+  }
+
+  private File writeFile(String name, boolean integerData) throws IOException {
+    File file = new File(tempDir.toFile(), name);
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    if (integerData) {
+      spec.setDataModelInt(1);
+    } else {
+      spec.setDataModelFloat(1);
+    }
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          if (isPopulated(iRow, iCol)) {
+            g93.storeValue(iRow, iCol, (iRow * 7 + iCol * 3) % 500);
+          }
+        }
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Checks that values read at reduced resolution match the values
+   * at the same positions in the full-resolution grid.
+   */
+  private void checkNearest(G93File g93, int row0, int col0, int nRows, int nCols, int step)
+    throws IOException {
+    float[] block = g93.readBlockAtResolution(row0, col0, nRows, nCols, step);
+    int nRowsOut = (nRows + step - 1) / step;
+    int nColsOut = (nCols + step - 1) / step;
+    assertEquals(nRowsOut * nColsOut, block.length);
+    for (int i = 0; i < nRowsOut; i++) {
+      for (int j = 0; j < nColsOut; j++) {
+        float expected = g93.readValue(row0 + i * step, col0 + j * step);
+        assertEquals(expected, block[i * nColsOut + j], "step " + step);
+      }
+    }
+  }
+
+  @Test
+  void testNearestOverviews() throws IOException {
+    for (boolean tileDirectory : new boolean[]{false, true}) {
+      File file = writeFile("Nearest" + tileDirectory + ".g93", true);
+      try (G93File g93 = new G93File(file, "rw")) {
+        g93.setTileDirectoryEnabled(tileDirectory);
+        assertEquals(0, g93.getOverviewLevelCount());
+        g93.buildOverviews(G93OverviewSampling.NEAREST);
+        assertEquals(3, g93.getOverviewLevelCount());
+        checkNearest(g93, 0, 0, nRowsInRaster, nColsInRaster, 4);
+      }
+
+      try (G93File g93 = new G93File(file, "r")) {
+        assertEquals(3, g93.getOverviewLevelCount());
+        for (int step = 1; step <= 32; step *= 2) {
+          checkNearest(g93, 0, 0, nRowsInRaster, nColsInRaster, step);
+          checkNearest(g93, 16, 32, 150, 201, step);
+        }
+        assertThrows(IOException.class, ()
+          -> g93.buildOverviews(G93OverviewSampling.NEAREST));
+      }
+    }
+  }
+
+  /**
+   * Computes a reduced-resolution grid by averaging the non-null values
+   * in each 2-by-2 block of cells.
+   */
+  private static float[][] reduce(float[][] grid) {
+    int nRows = (grid.length + 1) / 2;
+    int nCols = (grid[0].length + 1) / 2;
+    float[][] result = new float[nRows][nCols];
+    for (int iRow = 0; iRow < nRows; iRow++) {
+      for (int iCol = 0; iCol < nCols; iCol++) {
+        double sum = 0;
+        int n = 0;
+        for (int r = iRow * 2; r < Math.min(grid.length, iRow * 2 + 2); r++) {
+          for (int c = iCol * 2; c < Math.min(grid[0].length, iCol * 2 + 2); c++) {
+            if (!Float.isNaN(grid[r][c])) {
+              sum += grid[r][c];
+              n++;
+            }
+          }
+        }
+        result[iRow][iCol] = n == 0 ? Float.NaN : (float) (sum / n);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  void testAverageOverviews() throws IOException {
+    File file = writeFile("Average.g93", false);
+    try (G93File g93 = new G93File(file, "rw")) {
+      assertThrows(IOException.class, ()
+        -> g93.buildOverviews(0, G93OverviewSampling.AVERAGE));
+      assertThrows(IOException.class, ()
+        -> g93.buildOverviews(4, G93OverviewSampling.AVERAGE));
+      g93.buildOverviews(2, G93OverviewSampling.AVERAGE);
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      assertEquals(2, g93.getOverviewLevelCount());
+      float[][] grid = new float[nRowsInRaster][nColsInRaster];
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          grid[iRow][iCol] = g93.readValue(iRow, iCol);
+        }
+      }
+      float[] block = null;
+      for (int step = 2; step <= 4; step *= 2) {
+        grid = reduce(grid);
+        int nColsOut = grid[0].length;
+        block = g93.readBlockAtResolution(0, 0, nRowsInRaster, nColsInRaster, step);
+        for (int i = 0; i < grid.length; i++) {
+          for (int j = 0; j < nColsOut; j++) {
+            assertEquals(grid[i][j], block[i * nColsOut + j], 1.0e-3,
+              "step " + step + " at " + i + ", " + j);
+          }
+        }
+      }
+
+      // there is no third level, so a step of 8 samples the second level.
+      int nCols4 = grid[0].length;
+      float[] block8 = g93.readBlockAtResolution(0, 0, nRowsInRaster, nColsInRaster, 8);
+      int nCols8 = (nColsInRaster + 7) / 8;
+      for (int i = 0; i < block8.length / nCols8; i++) {
+        for (int j = 0; j < nCols8; j++) {
+          assertEquals(block[i * 2 * nCols4 + j * 2], block8[i * nCols8 + j]);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testMultiLayerOverviews() throws IOException {
+    // only the upper-left block of tiles is populated, so most of the
+    // overview tiles cover empty regions and are not stored in the file.
+    File file = new File(tempDir.toFile(), "MultiLayer.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataModelInt(2);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      float[] values = new float[2];
+      for (int iRow = 0; iRow < nRowsInTile * 2; iRow++) {
+        for (int iCol = 0; iCol < nColsInTile * 2; iCol++) {
+          values[0] = (iRow * 7 + iCol * 3) % 500;
+          values[1] = -values[0];
+          g93.storeValues(iRow, iCol, values);
+        }
+      }
+    }
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.buildOverviews(G93OverviewSampling.NEAREST);
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      float[] values = new float[2];
+      for (int step = 2; step <= 8; step *= 2) {
+        float[] block = g93.readBlockAtResolution(
+          0, 0, nRowsInRaster, nColsInRaster, step);
+        int nRowsOut = (nRowsInRaster + step - 1) / step;
+        int nColsOut = (nColsInRaster + step - 1) / step;
+        int nCellsOut = nRowsOut * nColsOut;
+        assertEquals(nCellsOut * 2, block.length);
+        for (int i = 0; i < nRowsOut; i++) {
+          for (int j = 0; j < nColsOut; j++) {
+            g93.readValues(i * step, j * step, values);
+            for (int k = 0; k < 2; k++) {
+              assertEquals(values[k], block[k * nCellsOut + i * nColsOut + j],
+                "step " + step + ", layer " + k + " at " + i + ", " + j);
+            }
+          }
+        }
+        assertTrue(Float.isNaN(block[nCellsOut - 1]));
+        assertTrue(Float.isNaN(block[2 * nCellsOut - 1]));
+      }
+    }
+  }
+
+  @Test
+  void testModificationAndCompaction() throws IOException {
+    File file = writeFile("Modified.g93", true);
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.buildOverviews(G93OverviewSampling.NEAREST);
+    }
+    long sizeWithOverviews = file.length();
+
+    // the overviews are retained when the file is compacted
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.storeVariableLengthRecord("Test", 1, "Test", "Some text");
+      g93.compact();
+      assertEquals(3, g93.getOverviewLevelCount());
+      checkNearest(g93, 0, 0, nRowsInRaster, nColsInRaster, 8);
+    }
+    try (G93File g93 = new G93File(file, "r")) {
+      assertEquals(3, g93.getOverviewLevelCount());
+      checkNearest(g93, 16, 32, 150, 201, 8);
+    }
+
+    // modifying the file invalidates the overviews
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.storeIntValue(0, 0, -1);
+      assertEquals(0, g93.getOverviewLevelCount());
+      checkNearest(g93, 0, 0, nRowsInRaster, nColsInRaster, 8);
+    }
+    try (G93File g93 = new G93File(file, "r")) {
+      assertEquals(0, g93.getOverviewLevelCount());
+      checkNearest(g93, 0, 0, nRowsInRaster, nColsInRaster, 8);
+      for (VariableLengthRecord vlr : g93.getVariableLengthRecords()) {
+        assertTrue(!OverviewPyramid.USER_ID.equals(vlr.getUserId()));
+      }
+    }
+    assertTrue(file.length() < sizeWithOverviews);
+  }
+}
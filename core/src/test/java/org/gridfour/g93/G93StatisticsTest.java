@@ -0,0 +1,430 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.gridfour.util.KahanSummation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the computation of statistics for G93 files.
+ */
+public class G93StatisticsTest {
+
+  @TempDir
+  Path tempDir;
+
+  static final int nRowsInRaster = 230;
+  static final int nColsInRaster = 270;
+  static final int nRowsInTile = 40;
+  static final int nColsInTile = 50;
+
+  public G93StatisticsTest() {
+  }
+
+  private String summarize(G93File g93) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(bos);
+    g93.summarize(ps, false);
+    ps.flush();
+    return bos.toString();
+  }
+
+  static float sample(int row, int column) {
+    return ((row * 11 + column * 5) % 2000 - 1000) / 4.0f + 1.0e5f;
+  }
+
+  static boolean isPopulated(int row, int column) {
+    return (row / nRowsInTile + column / nColsInTile) % 3 != 0;
+  }
+
+  private void checkStatistics(G93File g93, int row0, int col0, int nRows, int nCols)
+    throws IOException {
+    double hMin = 1.0e5 - 200;
+    double hMax = 1.0e5 + 200;
+    int nBins = 16;
+    long[] histogram = new long[nBins];
+    long nBelow = 0;
+    long nAbove = 0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    KahanSummation sum = new KahanSummation();
+    for (int iRow = row0; iRow < row0 + nRows; iRow++) {
+      for (int iCol = col0; iCol < col0 + nCols; iCol++) {
+        float v = g93.readValue(iRow, iCol);
+        if (Float.isNaN(v)) {
+          continue;
+        }
+        sum.add(v);
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+        if (v < hMin) {
+          nBelow++;
+        } else if (v > hMax) {
+          nAbove++;
+        } else {
+          histogram[Math.min(nBins - 1, (int) ((v - hMin) * nBins / (hMax - hMin)))]++;
+        }
+      }
+    }
+    double mean = sum.getMean();
+    double ss = 0;
+    for (int iRow = row0; iRow < row0 + nRows; iRow++) {
+      for (int iCol = col0; iCol < col0 + nCols; iCol++) {
+        float v = g93.readValue(iRow, iCol);
+        if (!Float.isNaN(v)) {
+          ss += (v - mean) * (v - mean);
+        }
+      }
+    }
+    double sigma = Math.sqrt(ss / sum.getSummandCount());
+
+    G93Statistics stats
+      = g93.computeStatistics(row0, col0, nRows, nCols, hMin, hMax, nBins);
+    assertEquals((long) nRows * nCols, stats.getCellCount());
+    assertEquals(sum.getSummandCount(), stats.getCount());
+    assertEquals(stats.getCellCount() - stats.getCount(), stats.getNullCount());
+    if (stats.getCount() == 0) {
+      assertTrue(Double.isNaN(stats.getMinimum()));
+      assertTrue(Double.isNaN(stats.getMean()));
+      return;
+    }
+    assertEquals(min, stats.getMinimum());
+    assertEquals(max, stats.getMaximum());
+    assertEquals(mean, stats.getMean(), 1.0e-9 * Math.abs(mean));
+    assertEquals(sigma, stats.getStandardDeviation(), 1.0e-6 * sigma);
+    assertArrayEquals(histogram, stats.getHistogram());
+    assertEquals(nBelow, stats.getCountBelowHistogram());
+    assertEquals(nAbove, stats.getCountAboveHistogram());
+  }
+
+  @Test
+  void testStatistics() throws IOException {
+    File file = new File(tempDir.toFile(), "Statistics.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataModelIntegerScaledFloat(1, 4.0f, 0.0f);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          if (isPopulated(iRow, iCol)) {
+            g93.storeValue(iRow, iCol, sample(iRow, iCol));
+          }
+        }
+      }
+      // statistics for a file opened for writing include the
+      // content of the cache.
+      checkStatistics(g93, 0, 0, nRowsInRaster, nColsInRaster);
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      checkStatistics(g93, 0, 0, nRowsInRaster, nColsInRaster);
+      checkStatistics(g93, 17, 33, 150, 201);
+      checkStatistics(g93, 45, 55, 1, 1);
+      // a region with no populated tiles
+      checkStatistics(g93, 0, 0, nRowsInTile, nColsInTile);
+      G93Statistics stats = g93.computeStatistics();
+      assertTrue(!stats.isHistogramAvailable());
+      assertEquals(0, stats.getHistogram().length);
+      assertThrows(IOException.class, ()
+        -> g93.computeStatistics(0, 0, 10, 10, 5, 5, 10));
+    }
+  }
+
+  @Test
+  void testKahanMerge() {
+    KahanSummation a = new KahanSummation();
+    KahanSummation b = new KahanSummation();
+    KahanSummation c = new KahanSummation();
+    for (int i = 0; i < 100000; i++) {
+      double v = 1.0e8 + i * 0.1;
+      if ((i & 1) == 0) {
+        a.add(v);
+      } else {
+        b.add(v);
+      }
+      c.add(v);
+    }
+    a.add(b);
+    assertEquals(c.getSummandCount(), a.getSummandCount());
+    assertEquals(c.getSum(), a.getSum(), 1.0e-3);
+  }
+
+  @Test
+  void testStandardDeviationMerge() {
+    // values with a large magnitude and a small spread would lose
+    // all precision in the variance if it were computed from a
+    // sum of squares.  The population variance of (i % 10) * 0.25
+    // is 8.25 * 0.0625.
+    G93Statistics a = new G93Statistics(0, 0, 0);
+    G93Statistics b = new G93Statistics(0, 0, 0);
+    G93Statistics c = new G93Statistics(0, 0, 0);
+    for (int i = 0; i < 100000; i++) {
+      double v = 1.0e9 + (i % 10) * 0.25;
+      if (i < 30000) {
+        a.addValue(v);
+      } else {
+        b.addValue(v);
+      }
+      c.addValue(v);
+    }
+    double sigma = Math.sqrt(8.25 * 0.0625);
+    double mean = 1.0e9 + 4.5 * 0.25;
+    assertEquals(mean, c.getMean(), 1.0e-6);
+    assertEquals(sigma, c.getStandardDeviation(), 1.0e-6);
+    G93Statistics empty = new G93Statistics(0, 0, 0);
+    empty.merge(a);
+    empty.merge(b);
+    assertEquals(c.getCount(), empty.getCount());
+    assertEquals(mean, empty.getMean(), 1.0e-6);
+    assertEquals(sigma, empty.getStandardDeviation(), 1.0e-6);
+  }
+
+  private void checkTileSummaries(G93File g93) throws IOException {
+    G93FileSpecification spec = g93.getSpecification();
+    for (int tileRow = 0; tileRow < spec.getRowsOfTilesInGrid(); tileRow++) {
+      for (int tileCol = 0; tileCol < spec.getColumnsOfTilesInGrid(); tileCol++) {
+        int row0 = tileRow * nRowsInTile;
+        int col0 = tileCol * nColsInTile;
+        int nRows = Math.min(nRowsInTile, nRowsInRaster - row0);
+        int nCols = Math.min(nColsInTile, nColsInRaster - col0);
+        G93Statistics stats = g93.computeStatistics(row0, col0, nRows, nCols, 0, 0, 0);
+        G93TileSummary summary = g93.getTileSummary(tileRow, tileCol);
+        assertEquals(stats.getCount(), summary.getCount());
+        if (stats.getCount() == 0) {
+          assertTrue(Float.isNaN(summary.getMinimum()));
+        } else {
+          assertEquals(stats.getMinimum(), summary.getMinimum());
+          assertEquals(stats.getMaximum(), summary.getMaximum());
+          assertEquals(stats.getMean(), summary.getMean(), 1.0e-6 * stats.getMean());
+        }
+      }
+    }
+    G93Statistics stats = g93.computeStatistics();
+    G93TileSummary summary = g93.getSummary();
+    assertEquals(stats.getCount(), summary.getCount());
+    assertEquals(stats.getMinimum(), summary.getMinimum());
+    assertEquals(stats.getMaximum(), summary.getMaximum());
+    assertEquals(stats.getMean(), summary.getMean(), 1.0e-6 * stats.getMean());
+  }
+
+  @Test
+  void testTileSummaries() throws IOException {
+    File file = new File(tempDir.toFile(), "Summaries.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataModelIntegerScaledFloat(1, 4.0f, 0.0f);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          if (isPopulated(iRow, iCol) && iRow >= 50) {
+            g93.storeValue(iRow, iCol, sample(iRow, iCol));
+          }
+        }
+      }
+      checkTileSummaries(g93);
+    }
+
+    long payloadPos = 0;
+    try (G93File g93 = new G93File(file, "r")) {
+      assertTrue(g93.isTileSummaryAvailable());
+      checkTileSummaries(g93);
+      int[] extent = g93.getDataExtent();
+      assertArrayEquals(new int[]{40, 0, nRowsInRaster - 1, nColsInRaster - 1}, extent);
+      for (VariableLengthRecord vlr : g93.getVariableLengthRecords()) {
+        if (vlr.getUserId().equals(TileSummaryTable.USER_ID)) {
+          payloadPos = vlr.getFilePosition() + VariableLengthRecord.VLR_HEADER_SIZE;
+        }
+      }
+    }
+    assertTrue(payloadPos > 0);
+
+    // modify a tile, the summaries are updated when the file is closed.
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.storeValue(nRowsInRaster - 1, nColsInRaster - 1, 0.0f);
+    }
+    try (G93File g93 = new G93File(file, "r")) {
+      assertTrue(g93.isTileSummaryAvailable());
+      assertEquals(0.0f, g93.getSummary().getMinimum());
+      checkTileSummaries(g93);
+      for (VariableLengthRecord vlr : g93.getVariableLengthRecords()) {
+        if (vlr.getUserId().equals(TileSummaryTable.USER_ID)) {
+          payloadPos = vlr.getFilePosition() + VariableLengthRecord.VLR_HEADER_SIZE;
+        }
+      }
+    }
+
+    // a summary record that does not match the modification time of
+    // the file is ignored and the summaries are computed when needed.
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(payloadPos);
+      raf.writeLong(12345L);
+    }
+    try (G93File g93 = new G93File(file, "r")) {
+      assertTrue(!g93.isTileSummaryAvailable());
+      // summaries are computed as a value-range query scans the tiles
+      long nValues = g93.queryValueRange(
+        Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY).parallel().count();
+      assertTrue(g93.isTileSummaryAvailable());
+      assertEquals(g93.getSummary().getCount(), nValues);
+      checkTileSummaries(g93);
+    }
+  }
+
+  private void checkValueRange(G93File g93,
+    int row0, int col0, int nRows, int nCols, float min, float max)
+    throws IOException {
+    List<Long> expected = new ArrayList<>();
+    BitSet expectedBitmap = new BitSet();
+    for (int iRow = row0; iRow < row0 + nRows; iRow++) {
+      for (int iCol = col0; iCol < col0 + nCols; iCol++) {
+        float v = g93.readValue(iRow, iCol);
+        if (v >= min && v <= max) {
+          expected.add((long) iRow * nColsInRaster + iCol);
+          expectedBitmap.set((iRow - row0) * nCols + iCol - col0);
+        }
+      }
+    }
+    long[] matches = g93.queryValueRange(row0, col0, nRows, nCols, min, max)
+      .parallel().sorted().toArray();
+    assertEquals(expected.size(), matches.length);
+    for (int i = 0; i < matches.length; i++) {
+      assertEquals((long) expected.get(i), matches[i]);
+    }
+    assertEquals(expectedBitmap,
+      g93.queryValueRangeBitmap(row0, col0, nRows, nCols, min, max));
+  }
+
+  @Test
+  void testValueRangeQuery() throws IOException {
+    File file = new File(tempDir.toFile(), "ValueRange.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          if (isPopulated(iRow, iCol)) {
+            g93.storeValue(iRow, iCol, iRow + iCol / 1000.0f);
+          }
+        }
+      }
+      checkValueRange(g93, 0, 0, nRowsInRaster, nColsInRaster, 100, 120.5f);
+    }
+
+    try (G93File g93 = new G93File(file, "r")) {
+      checkValueRange(g93, 0, 0, nRowsInRaster, nColsInRaster, 100, 120.5f);
+      checkValueRange(g93, 17, 33, 150, 201, 50, 60);
+      checkValueRange(g93, 0, 0, nRowsInRaster, nColsInRaster, -10, -5);
+      assertEquals(1, g93.queryValueRange(45, 55, 1, 1, 45, 46).count());
+      assertThrows(IOException.class, () -> g93.queryValueRange(5, 4));
+    }
+
+    // tiles that cannot contain values in the range are not read
+    try (G93File g93 = new G93File(file, "rw")) {
+      assertEquals(0, g93.queryValueRange(-10, -5).count());
+      assertTrue(summarize(g93).matches("(?s).*Tile Reads: +0\\b.*"));
+    }
+  }
+
+  @Test
+  void testTileSummariesWithWriteBehind() throws IOException {
+    File file = new File(tempDir.toFile(), "SummariesWriteBehind.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataModelFloat(1);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeValue(iRow, iCol, sample(iRow, iCol));
+        }
+      }
+    }
+
+    // with a cache of one tile, each modified tile is queued for
+    // writing as soon as the next one is accessed.  The summaries
+    // must reflect the queued content rather than the prior content.
+    // The most recently queued tiles are checked first because they
+    // are the ones most likely to be waiting for the writer.
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.setTileCacheSize(1);
+      g93.setWriteBehindQueueCapacity(64);
+      g93.setWriteBehindEnabled(true);
+      G93FileSpecification s = g93.getSpecification();
+      int nRowsOfTiles = s.getRowsOfTilesInGrid();
+      int nColsOfTiles = s.getColumnsOfTilesInGrid();
+      for (int tileRow = 0; tileRow < nRowsOfTiles; tileRow++) {
+        for (int tileCol = 0; tileCol < nColsOfTiles; tileCol++) {
+          int row1 = Math.min(nRowsInRaster, (tileRow + 1) * nRowsInTile);
+          int col1 = Math.min(nColsInRaster, (tileCol + 1) * nColsInTile);
+          for (int iRow = tileRow * nRowsInTile; iRow < row1; iRow++) {
+            for (int iCol = tileCol * nColsInTile; iCol < col1; iCol++) {
+              g93.storeValue(iRow, iCol, -sample(iRow, iCol));
+            }
+          }
+        }
+      }
+      for (int tileRow = nRowsOfTiles - 1; tileRow >= 0; tileRow--) {
+        for (int tileCol = nColsOfTiles - 1; tileCol >= 0; tileCol--) {
+          assertTrue(g93.getTileSummary(tileRow, tileCol).getMaximum() < 0);
+        }
+      }
+      assertEquals(0, g93.queryValueRange(0, 2.0e5f).count());
+      assertEquals((long) nRowsInRaster * nColsInRaster,
+        g93.queryValueRange(-2.0e5f, 0).count());
+    }
+  }
+}
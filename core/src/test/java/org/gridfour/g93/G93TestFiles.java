@@ -0,0 +1,136 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.IntBinaryOperator;
+
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+
+/**
+ * Provides methods for writing the sample files used by the tests.
+ */
+final class G93TestFiles {
+
+  // the structure of the standard sample file
+  static final int nRowsInRaster = 400;
+  static final int nColsInRaster = 500;
+  static final int nRowsInTile = 40;
+  static final int nColsInTile = 50;
+
+  private G93TestFiles() {
+  }
+
+  /**
+   * Gives the value stored at a row and column of the standard
+   * sample file.
+   *
+   * @param row the grid row
+   * @param column the grid column
+   * @return an integer value
+   */
+  static int sample(int row, int column) {
+    return (row * 11 + column * 5) % 2000 - 1000;
+  }
+
+  /**
+   * Stores the values given by a sample function in every cell of a file.
+   * Cells for which the function gives the null code are left unpopulated.
+   *
+   * @param g93 a file opened for writing
+   * @param sampler a function giving the value for a row and column
+   * @throws IOException in the event of an I/O error
+   */
+  static void storeSamples(G93File g93, IntBinaryOperator sampler)
+    throws IOException {
+    G93FileSpecification spec = g93.getSpecification();
+    int nRows = spec.getRowsInGrid();
+    int nCols = spec.getColumnsInGrid();
+    for (int iRow = 0; iRow < nRows; iRow++) {
+      for (int iCol = 0; iCol < nCols; iCol++) {
+        int s = sampler.applyAsInt(iRow, iCol);
+        if (s != INT4_NULL_CODE) {
+          g93.storeIntValue(iRow, iCol, s);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a new file with the specified structure populated by the
+   * values given by a sample function.
+   *
+   * @param dir the directory for the file
+   * @param name the name of the file
+   * @param spec the specification for the file
+   * @param sampler a function giving the value for a row and column
+   * @return the file
+   * @throws IOException in the event of an I/O error
+   */
+  static File writeIntFile(
+    Path dir, String name, G93FileSpecification spec, IntBinaryOperator sampler)
+    throws IOException {
+    File file = new File(dir.toFile(), name);
+    try (G93File g93 = new G93File(file, spec)) {
+      g93.setTileCacheSize(G93CacheSize.Large);
+      storeSamples(g93, sampler);
+    }
+    return file;
+  }
+
+  /**
+   * Writes a new file with the structure and values of the standard
+   * sample file.
+   *
+   * @param dir the directory for the file
+   * @param name the name of the file
+   * @param compressed true if data compression is to be enabled
+   * @return the file
+   * @throws IOException in the event of an I/O error
+   */
+  static File writeIntFile(Path dir, String name, boolean compressed)
+    throws IOException {
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataCompressionEnabled(compressed);
+    return writeIntFile(dir, name, spec, G93TestFiles::sample);
+  }
+}
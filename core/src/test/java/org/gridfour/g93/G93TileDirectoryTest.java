@@ -0,0 +1,158 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.gridfour.g93.G93TestFiles.sample;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the methods used to locate tiles when a file is opened.
+ */
+public class G93TileDirectoryTest {
+
+  @TempDir
+  Path tempDir;
+
+  static final int nRowsInRaster = 200;
+  static final int nColsInRaster = 250;
+
+  public G93TileDirectoryTest() {
+  }
+
+  private File writeTestFile(String name, boolean directory, boolean index)
+    throws IOException {
+    File file = new File(tempDir.toFile(), name);
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, 40, 50);
+    spec.setDataCompressionEnabled(true);
+    try (G93File g93 = new G93File(file, spec)) {
+      g93.setTileDirectoryEnabled(directory);
+      g93.setIndexCreationEnabled(index);
+      g93.storeVariableLengthRecord("Test", 1, "Directory test", "Payload");
+      G93TestFiles.storeSamples(g93, G93TestFiles::sample);
+    }
+    return file;
+  }
+
+  private void checkFile(File file, String source, int value00) throws IOException {
+    try (G93File g93 = new G93File(file, "r")) {
+      String summary = summarize(g93);
+      assertTrue(summary.contains("Tile positions from: " + source), summary);
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          int expected = iRow == 0 && iCol == 0 ? value00 : sample(iRow, iCol);
+          assertEquals(expected, g93.readIntValue(iRow, iCol));
+        }
+      }
+      List<VariableLengthRecord> vlrList = g93.getVariableLengthRecords();
+      boolean found = false;
+      for (VariableLengthRecord vlr : vlrList) {
+        if ("Test".equals(vlr.getUserId())) {
+          assertEquals("Payload", vlr.readPayloadText());
+          found = true;
+        }
+      }
+      assertTrue(found, "Missing VLR");
+    }
+  }
+
+  private String summarize(G93File g93) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(bos);
+    g93.summarize(ps, false);
+    ps.flush();
+    return bos.toString();
+  }
+
+  @Test
+  void testTileDirectory() throws IOException {
+    File file = writeTestFile("Directory.g93", true, false);
+    checkFile(file, "tile directory", sample(0, 0));
+
+    // the directory is maintained when the file is modified
+    try (G93File g93 = new G93File(file, "rw")) {
+      assertTrue(g93.isTileDirectoryEnabled());
+      g93.storeIntValue(0, 0, -1);
+    }
+    checkFile(file, "tile directory", -1);
+
+    // a directory that does not match the modification time
+    // of the file is not used.
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(16);
+      raf.writeLong(0x0102030405060708L);
+    }
+    checkFile(file, "file scan", -1);
+
+    // the directory can be disabled
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.setTileDirectoryEnabled(false);
+    }
+    try (G93File g93 = new G93File(file, "r")) {
+      assertFalse(g93.isTileDirectoryEnabled());
+    }
+    checkFile(file, "file scan", -1);
+  }
+
+  @Test
+  void testIndexFile() throws IOException {
+    File file = writeTestFile("Indexed.g93", false, true);
+    checkFile(file, "index file", sample(0, 0));
+
+    // an index that is out-of-date is replaced after the file is scanned
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(16);
+      raf.writeLong(0x0102030405060708L);
+    }
+    checkFile(file, "file scan", sample(0, 0));
+    checkFile(file, "index file", sample(0, 0));
+  }
+}
@@ -0,0 +1,93 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests the primitive tile map in both its dense and hashed forms.
+ */
+public class IntTileMapTest {
+
+  public IntTileMapTest() {
+  }
+
+  private void testMap(int nRowsInRaster, int nColsInRaster) throws IOException {
+    G93FileSpecification spec
+      = new G93FileSpecification(nRowsInRaster, nColsInRaster, 2, 2);
+    int nTiles = spec.nRowsOfTiles * spec.nColsOfTiles;
+    IntTileMap map = new IntTileMap(nTiles);
+    HashMap<Integer, RasterTile> reference = new HashMap<>();
+    Random random = new Random(0);
+    for (int i = 0; i < 200000; i++) {
+      // a limited range of indices ensures that there are many collisions
+      // and removals, in addition to insertions
+      int tileIndex = random.nextInt(4000) * (nTiles / 4000);
+      if (random.nextBoolean()) {
+        RasterTile tile = RasterTile.allocate(spec, tileIndex, false);
+        map.put(tile);
+        reference.put(tileIndex, tile);
+      } else {
+        map.remove(tileIndex);
+        reference.remove(tileIndex);
+      }
+      assertEquals(reference.size(), map.size());
+    }
+    for (int i = 0; i < nTiles; i += nTiles / 4000) {
+      assertSame(reference.get(i), map.get(i), "Mismatch for tile " + i);
+    }
+    assertEquals(reference.size(), map.values().size());
+  }
+
+  @Test
+  void testDenseMap() throws IOException {
+    testMap(200, 200);
+  }
+
+  @Test
+  void testHashedMap() throws IOException {
+    testMap(2000, 2000);
+  }
+}
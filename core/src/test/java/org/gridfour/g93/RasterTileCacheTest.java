@@ -0,0 +1,407 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.gridfour.g93.G93TestFiles.nColsInRaster;
+import static org.gridfour.g93.G93TestFiles.nColsInTile;
+import static org.gridfour.g93.G93TestFiles.nRowsInRaster;
+import static org.gridfour.g93.G93TestFiles.nRowsInTile;
+import static org.gridfour.g93.G93TestFiles.sample;
+import static org.gridfour.g93.G93TestFiles.writeIntFile;
+import static org.gridfour.util.GridfourConstants.INT4_NULL_CODE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the optional behaviors of the tile cache.
+ */
+public class RasterTileCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  public RasterTileCacheTest() {
+  }
+
+  private void checkFile(G93File g93) throws IOException {
+    for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+      for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+        assertEquals(sample(iRow, iCol), g93.readIntValue(iRow, iCol),
+          "Mismatch at " + iRow + ", " + iCol);
+      }
+    }
+  }
+
+  private String summarize(G93File g93) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(bos);
+    g93.summarize(ps, false);
+    ps.flush();
+    return bos.toString();
+  }
+
+  @Test
+  void testPrefetch() throws IOException {
+    File file = writeIntFile(tempDir, "Prefetch.g93", true);
+    try (G93File g93 = new G93File(file, "r")) {
+      g93.setTileCacheSize(G93CacheSize.Large);
+      g93.setTilePrefetchLookahead(3);
+      g93.setTilePrefetchEnabled(true);
+      checkFile(g93);
+      // a column-major scan exercises strides other than one
+      for (int iCol = 0; iCol < nColsInRaster; iCol += 7) {
+        for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+          assertEquals(sample(iRow, iCol), g93.readIntValue(iRow, iCol));
+        }
+      }
+      assertTrue(summarize(g93).contains("Tile Prefetch"));
+    }
+  }
+
+  @Test
+  void testWriteBehind() throws IOException {
+    for (int i = 0; i < 2; i++) {
+      boolean compressed = i == 1;
+      File file = new File(tempDir.toFile(), "WriteBehind" + i + ".g93");
+      G93FileSpecification spec = new G93FileSpecification(
+        nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+      spec.setDataCompressionEnabled(compressed);
+      try (G93File g93 = new G93File(file, spec)) {
+        // a small cache and queue, combined with a column-major
+        // write pattern, forces tiles to be reclaimed from the queue
+        g93.setTileCacheSize(2);
+        g93.setWriteBehindQueueCapacity(2);
+        g93.setWriteBehindEnabled(true);
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+            g93.storeIntValue(iRow, iCol, sample(iRow, iCol));
+          }
+        }
+        g93.flush();
+        checkFile(g93);
+        String summary = summarize(g93);
+        assertTrue(summary.contains("Tile Write-Behind"));
+      }
+      try (G93File g93 = new G93File(file, "r")) {
+        checkFile(g93);
+      }
+    }
+  }
+
+  @Test
+  void testParallelFlush() throws IOException {
+    // the parallel and serial flush operations should produce
+    // files with identical tile stores.
+    byte[][] content = new byte[2][];
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 2; i++) {
+      File file = new File(tempDir.toFile(), "Flush" + i + ".g93");
+      G93FileSpecification spec = new G93FileSpecification(
+        nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+      spec.setDataCompressionEnabled(true);
+      try (G93File g93 = new G93File(file, spec)) {
+        g93.setTileCacheSize(G93CacheSize.Large);
+        if (i == 0) {
+          g93.setFlushExecutor(null);
+        } else {
+          g93.setFlushExecutor(executor);
+        }
+        // write in column-major order so that the order of tiles in the
+        // cache differs from the order of the tile indices
+        for (int iCol = nColsInRaster - 1; iCol >= 0; iCol--) {
+          for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+            g93.storeIntValue(iRow, iCol, sample(iRow, iCol));
+          }
+        }
+      }
+      long summaryTimePos = 0;
+      try (G93File g93 = new G93File(file, "r")) {
+        checkFile(g93);
+        for (VariableLengthRecord vlr : g93.getVariableLengthRecords()) {
+          if (vlr.getUserId().equals(TileSummaryTable.USER_ID)) {
+            summaryTimePos = vlr.getFilePosition() + VariableLengthRecord.VLR_HEADER_SIZE;
+          }
+        }
+      }
+      byte[] b = Files.readAllBytes(file.toPath());
+      // the tile summary record is stamped with the modification time
+      // of the file, which differs between the two files.
+      Arrays.fill(b, (int) summaryTimePos, (int) summaryTimePos + 8, (byte) 0);
+      ByteBuffer buffer = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+      int offset = (int) buffer.getLong(32);
+      content[i] = Arrays.copyOfRange(b, offset, b.length);
+    }
+    executor.shutdown();
+    assertArrayEquals(content[0], content[1], "Tile stores differ");
+  }
+
+  @Test
+  void testCacheSizeInBytes() throws IOException {
+    File file = writeIntFile(tempDir, "Bytes.g93", false);
+    try (G93File g93 = new G93File(file, "r")) {
+      long footprint = RasterTile.computeMemoryFootprint(g93.getSpecification());
+      long budget = footprint * 3 + footprint / 2;
+      g93.setTileCacheSizeInBytes(budget);
+      checkFile(g93);
+      assertEquals(footprint * 3, g93.getTileCacheBytesInUse());
+      // a budget smaller than one tile still retains the current tile
+      g93.setTileCacheSizeInBytes(1);
+      assertEquals(footprint, g93.getTileCacheBytesInUse());
+      checkFile(g93);
+      g93.setTileCacheSize(G93CacheSize.Large);
+      checkFile(g93);
+      assertTrue(g93.getTileCacheBytesInUse() > budget);
+    }
+  }
+
+  @Test
+  void testTileRecycling() throws IOException {
+    for (boolean compressed : new boolean[]{false, true}) {
+      File file = writeIntFile(tempDir, "Recycle" + compressed + ".g93", compressed);
+      try (G93File g93 = new G93File(file, "rw")) {
+        g93.setTileCacheSize(2);
+        checkFile(g93);
+        checkFile(g93);
+        String summary = summarize(g93);
+        assertTrue(summary.matches("(?s).*Tiles Recycled: +[1-9].*"), summary);
+        // tiles that are modified and removed from the cache are
+        // written before their memory is re-used
+        for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+          for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+            g93.storeIntValue(iRow, iCol, -sample(iRow, iCol));
+          }
+        }
+        for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+          for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+            assertEquals(-sample(iRow, iCol), g93.readIntValue(iRow, iCol));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testRecycledTileNullState() throws IOException {
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    spec.setDataModelInt(2);
+    RasterTile tile = RasterTile.allocate(spec, 0, false);
+    for (int[] layer : tile.getIntCoding()) {
+      Arrays.fill(layer, 7);
+    }
+    // a recycled tile that is populated for a missing tile must not
+    // retain values from its prior use in any layer
+    RasterTile recycled = RasterTile.allocate(spec, 1, false, tile);
+    recycled.setToNullState();
+    for (int[] layer : recycled.getIntCoding()) {
+      for (int value : layer) {
+        assertEquals(INT4_NULL_CODE, value);
+      }
+    }
+  }
+
+  @Test
+  void testCompressedTileCache() throws IOException {
+    File file = writeIntFile(tempDir, "CompressedCache.g93", true);
+    try (G93File g93 = new G93File(file, "r")) {
+      g93.setTileCacheSize(2);
+      g93.setCompressedTileCacheSizeInBytes(16 * 1024 * 1024);
+      // the first pass reads the tiles from the file, the second
+      // pass decodes them from the compressed cache
+      checkFile(g93);
+      checkFile(g93);
+      String summary = summarize(g93);
+      assertTrue(summary.contains("Compressed Tile Cache"));
+    }
+
+    // modify tiles and verify that the compressed cache does not
+    // retain obsolete packings
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.setTileCacheSize(2);
+      g93.setCompressedTileCacheSizeInBytes(16 * 1024 * 1024);
+      checkFile(g93);
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, -sample(iRow, iCol));
+        }
+      }
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          assertEquals(-sample(iRow, iCol), g93.readIntValue(iRow, iCol));
+        }
+      }
+    }
+  }
+
+  @Test
+  void testSharedTileCache() throws IOException {
+    File fileA = writeIntFile(tempDir, "SharedCacheA.g93", true);
+    File fileB = new File(tempDir.toFile(), "SharedCacheB.g93");
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, nRowsInTile, nColsInTile);
+    try (G93File g93 = new G93File(fileB, spec)) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, -sample(iRow, iCol));
+        }
+      }
+    }
+
+    long footprint = RasterTile.computeMemoryFootprint(spec);
+    G93SharedTileCache cache = new G93SharedTileCache(footprint * 6);
+    try (G93File a = new G93File(fileA, "r"); G93File b = new G93File(fileB, "r")) {
+      a.setSharedTileCache(cache);
+      b.setSharedTileCache(cache);
+      // interleave access to the two files so that each file's tiles
+      // compete for the shared budget
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          assertEquals(sample(iRow, iCol), a.readIntValue(iRow, iCol));
+          assertEquals(-sample(iRow, iCol), b.readIntValue(iRow, iCol));
+        }
+      }
+      assertTrue(cache.getBytesInUse() <= cache.getSizeInBytes());
+      assertTrue(cache.getBytesInUse() > 0);
+      assertTrue(summarize(a).contains("Tile Cache (shared by files)"));
+      a.close();
+      long bytesInUse = cache.getBytesInUse();
+      assertTrue(bytesInUse > 0 && bytesInUse < footprint * 6);
+      for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+        assertEquals(-sample(0, iCol), b.readIntValue(0, iCol));
+      }
+    }
+    assertEquals(0, cache.getBytesInUse());
+  }
+
+  @Test
+  void testSharedTileCacheWithCopiedFile() throws IOException {
+    File fileA = writeIntFile(tempDir, "SharedCopyA.g93", true);
+    File fileB = new File(tempDir.toFile(), "SharedCopyB.g93");
+    Files.copy(fileA.toPath(), fileB.toPath());
+    // the copy retains the UUID of the original, but its content diverges.
+    try (G93File g93 = new G93File(fileB, "rw")) {
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, -sample(iRow, iCol));
+        }
+      }
+    }
+
+    G93SharedTileCache cache = new G93SharedTileCache(64 * 1024 * 1024);
+    try (G93File a = new G93File(fileA, "r"); G93File b = new G93File(fileB, "r")) {
+      a.setSharedTileCache(cache);
+      b.setSharedTileCache(cache);
+      checkFile(a);
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          assertEquals(-sample(iRow, iCol), b.readIntValue(iRow, iCol));
+        }
+      }
+      long bytesInUse = cache.getBytesInUse();
+
+      // closing a second instance of the same file does not remove
+      // the tiles loaded by the first.
+      try (G93File a2 = new G93File(fileA, "r")) {
+        a2.setSharedTileCache(cache);
+        assertEquals(sample(0, 0), a2.readIntValue(0, 0));
+      }
+      assertEquals(bytesInUse, cache.getBytesInUse());
+      b.close();
+      assertTrue(cache.getBytesInUse() > 0);
+      checkFile(a);
+    }
+    assertEquals(0, cache.getBytesInUse());
+  }
+
+  @Test
+  void testCachePolicies() throws IOException {
+    File file = writeIntFile(tempDir, "Policy.g93", true);
+    for (G93CachePolicy policy : G93CachePolicy.values()) {
+      try (G93File g93 = new G93File(file, "r")) {
+        g93.setTileCacheSize(8);
+        g93.setTileCachePolicy(policy);
+        checkFile(g93);
+        String summary = summarize(g93);
+        assertTrue(summary.contains(policy.name()));
+        assertTrue(summary.contains("Cache Misses"));
+      }
+    }
+
+    // With the 2Q policy, a scan of the file should not displace
+    // a set of tiles that are in frequent use.
+    long[] nTilesRead = new long[2];
+    G93CachePolicy[] policies = {G93CachePolicy.LRU, G93CachePolicy.TwoQueue};
+    for (int i = 0; i < policies.length; i++) {
+      try (G93File g93 = new G93File(file, "r")) {
+        g93.setTileCacheSize(8);
+        g93.setTileCachePolicy(policies[i]);
+        for (int iPass = 0; iPass < 5; iPass++) {
+          // access the first four tiles repeatedly, then scan the file
+          for (int k = 0; k < 3; k++) {
+            for (int iCol = 0; iCol < nColsInTile * 4; iCol += nColsInTile) {
+              assertEquals(sample(0, iCol), g93.readIntValue(0, iCol));
+            }
+          }
+          checkFile(g93);
+        }
+        String summary = summarize(g93);
+        String line = summary.substring(summary.indexOf("Tiles Read:"));
+        line = line.substring(11, line.indexOf('\n')).trim();
+        nTilesRead[i] = Long.parseLong(line);
+      }
+    }
+    assertTrue(nTilesRead[1] < nTilesRead[0],
+      "2Q did not reduce reads " + nTilesRead[1] + " " + nTilesRead[0]);
+  }
+}
@@ -0,0 +1,146 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests the 2Q replacement policy against a straightforward
+ * implementation based on the standard collections.
+ */
+public class TileReplacementPolicyTwoQueueTest {
+
+  public TileReplacementPolicyTwoQueueTest() {
+  }
+
+  /**
+   * A reference implementation of the 2Q algorithm.
+   */
+  private static class Reference {
+
+    final LinkedHashMap<Integer, RasterTile> a1in = new LinkedHashMap<>();
+    final LinkedHashMap<Integer, RasterTile> am = new LinkedHashMap<>(16, 0.75f, true);
+    final LinkedHashSet<Integer> a1out = new LinkedHashSet<>();
+    final int kIn;
+    final int kOut;
+
+    Reference(int capacity) {
+      kIn = Math.max(1, capacity / 4);
+      kOut = Math.max(1, capacity / 2);
+    }
+
+    void tileAdded(RasterTile tile) {
+      if (a1out.remove(tile.tileIndex)) {
+        am.put(tile.tileIndex, tile);
+      } else {
+        a1in.put(tile.tileIndex, tile);
+      }
+    }
+
+    void tileAccessed(RasterTile tile) {
+      am.get(tile.tileIndex);
+    }
+
+    RasterTile selectTileForRemoval() {
+      if (a1in.size() > kIn || am.isEmpty()) {
+        RasterTile tile = removeEldest(a1in);
+        if (tile != null) {
+          a1out.add(tile.tileIndex);
+          Iterator<Integer> iterator = a1out.iterator();
+          while (a1out.size() > kOut) {
+            iterator.next();
+            iterator.remove();
+          }
+          return tile;
+        }
+      }
+      return removeEldest(am);
+    }
+
+    private static RasterTile removeEldest(LinkedHashMap<Integer, RasterTile> map) {
+      Iterator<RasterTile> iterator = map.values().iterator();
+      if (!iterator.hasNext()) {
+        return null;
+      }
+      RasterTile tile = iterator.next();
+      iterator.remove();
+      return tile;
+    }
+  }
+
+  @Test
+  void testAgainstReference() throws IOException {
+    G93FileSpecification spec = new G93FileSpecification(400, 400, 2, 2);
+    for (int capacity : new int[]{1, 3, 16, 64}) {
+      TileReplacementPolicy policy = TileReplacementPolicy.create(G93CachePolicy.TwoQueue);
+      policy.setCapacity(capacity);
+      Reference reference = new Reference(capacity);
+      HashMap<Integer, RasterTile> cache = new HashMap<>();
+      Random random = new Random(capacity);
+      for (int i = 0; i < 100000; i++) {
+        // a skewed distribution gives a mix of hits in both queues,
+        // ghost hits, and misses.
+        int tileIndex = (int) Math.abs(random.nextGaussian() * capacity * 2);
+        RasterTile tile = cache.get(tileIndex);
+        if (tile != null) {
+          policy.tileAccessed(tile);
+          reference.tileAccessed(tile);
+          continue;
+        }
+        if (cache.size() == capacity) {
+          RasterTile removed = policy.selectTileForRemoval();
+          assertSame(reference.selectTileForRemoval(), removed);
+          cache.remove(removed.tileIndex);
+        }
+        tile = RasterTile.allocate(spec, tileIndex, false);
+        cache.put(tileIndex, tile);
+        policy.tileAdded(tile);
+        reference.tileAdded(tile);
+      }
+    }
+  }
+}
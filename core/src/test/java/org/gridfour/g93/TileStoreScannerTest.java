@@ -0,0 +1,141 @@
+/* --------------------------------------------------------------------
+ *
+ * The MIT License
+ *
+ * Copyright (C) 2020  Gary W. Lucas.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * ---------------------------------------------------------------------
+ */
+
+ /*
+ * -----------------------------------------------------------------------
+ *
+ * Revision History:
+ * Date     Name         Description
+ * ------   ---------    -------------------------------------------------
+ * 10/2020  G. Lucas     Created
+ *
+ * Notes:
+ *
+ * -----------------------------------------------------------------------
+ */
+package org.gridfour.g93;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the parallel scan of the records in a file.
+ */
+public class TileStoreScannerTest {
+
+  @TempDir
+  Path tempDir;
+
+  static final int nRowsInRaster = 200;
+  static final int nColsInRaster = 250;
+
+  public TileStoreScannerTest() {
+  }
+
+  private File writeTestFile(String name, boolean compressed) throws IOException {
+    File file = new File(tempDir.toFile(), name);
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, 20, 25);
+    spec.setDataCompressionEnabled(compressed);
+    try (G93File g93 = new G93File(file, spec)) {
+      g93.storeVariableLengthRecord("Test", 1, "First", "Written first");
+      for (int iRow = 0; iRow < nRowsInRaster; iRow++) {
+        for (int iCol = 0; iCol < nColsInRaster; iCol++) {
+          g93.storeIntValue(iRow, iCol, iRow * iCol);
+        }
+      }
+    }
+
+    // rewrite and clear tiles so that the file contains free space
+    // and records that are out of order.
+    try (G93File g93 = new G93File(file, "rw")) {
+      g93.setTileCacheSize(1);
+      for (int iCol = nColsInRaster - 1; iCol >= 0; iCol--) {
+        for (int iRow = nRowsInRaster - 1; iRow >= 0; iRow--) {
+          int value = (iRow * 11 + iCol * 5) % 2000 - 1000;
+          if (iRow < 40 && iCol < 50) {
+            value = Integer.MIN_VALUE;
+          }
+          g93.storeIntValue(iRow, iCol, value);
+        }
+        if (iCol == nColsInRaster / 2) {
+          g93.storeVariableLengthRecord("Test", 2, "Second", "Written second");
+        }
+      }
+    }
+    return file;
+  }
+
+  private TileStoreScanner getScanner(File file) throws IOException {
+    long basePosition;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      raf.seek(32);
+      basePosition = Long.reverseBytes(raf.readLong());
+    }
+    G93FileSpecification spec = new G93FileSpecification(
+      nRowsInRaster, nColsInRaster, 20, 25);
+    return new TileStoreScanner(file, basePosition, file.length(),
+      spec.nRowsOfTiles * spec.nColsOfTiles);
+  }
+
+  @Test
+  void testParallelScan() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (boolean compressed : new boolean[]{false, true}) {
+        File file = writeTestFile("Scan" + compressed + ".g93", compressed);
+        TileStoreScanner scanner = getScanner(file);
+        TileStoreScanner.RecordList expected = scanner.scan(1, executor);
+        assertTrue(expected.nRecords > 0);
+        boolean freeSpaceFound = false;
+        for (int i = 0; i < expected.nRecords; i++) {
+          freeSpaceFound |= expected.sizes[i] < 0;
+        }
+        assertTrue(freeSpaceFound, "Test file does not contain free space");
+        for (int nRanges : new int[]{2, 3, 7, 16, 61}) {
+          TileStoreScanner.RecordList result = scanner.scan(nRanges, executor);
+          assertEquals(expected.nRecords, result.nRecords, "ranges " + nRanges);
+          for (int i = 0; i < expected.nRecords; i++) {
+            assertEquals(expected.positions[i], result.positions[i]);
+            assertEquals(expected.sizes[i], result.sizes[i]);
+            assertEquals(expected.codes[i], result.codes[i]);
+          }
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -232,5 +232,26 @@ public class BufferedRandomAccessFileTest {
 		fail("IOException while performing tests: "+ioex.getMessage());
 	}
   }
-  
+
+  @Test
+  public void testSetLength() throws Exception {
+    File tempFile = new File(tempDir.toFile(), "Length.data");
+    try (BufferedRandomAccessFile braf
+      = new BufferedRandomAccessFile(tempFile, "rw")) {
+      for (int i = 0; i < 4096; i++) {
+        braf.leWriteInt(i);
+      }
+      // truncate while data is still pending in the write buffer
+      braf.setLength(1024);
+      assertEquals(1024, braf.getFileSize());
+      assertEquals(1024, braf.getFilePosition());
+      assertEquals(1024, tempFile.length());
+      braf.leWriteInt(-1);
+      assertEquals(1028, braf.getFileSize());
+      braf.seek(1020);
+      assertEquals(255, braf.leReadInt());
+      assertEquals(-1, braf.leReadInt());
+    }
+  }
+
 }
@@ -266,6 +266,7 @@ public class PackageData {
     try (G93File g93 = new G93File(outputFile, spec)) {
       g93.setTileCacheSize(G93CacheSize.Large);
       g93.setIndexCreationEnabled(true);
+      g93.setBulkLoadEnabled(true);
       storeGeoreferencingInformation(g93);
 
       // Initialize data-statistics collection ---------------------------